@@ -0,0 +1,136 @@
+package org.folio.edge.orders;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Rejects new requests while the event loop lags behind or too many calls wait for Okapi, so that an overloaded
+ * instance answers some requests at once instead of all of them after the request timeout.
+ * <p>
+ * The lag is how late a timer that fires every {@link #PROBE_INTERVAL_MS} runs, or how overdue it already is. The
+ * pending calls are the upstream calls in flight or queued in the {@link ConcurrencyLimiter}; requests answered from
+ * the response cache or by a coalesced call do not count. Each {@link Priority} applies its share of the thresholds:
+ * low priority requests are rejected from half of them, high priority requests only from twice them.
+ */
+public class AdmissionController {
+
+  private static final Logger logger = LogManager.getLogger(AdmissionController.class);
+
+  static final long PROBE_INTERVAL_MS = 100;
+  private static final long PROBE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(PROBE_INTERVAL_MS);
+
+  /**
+   * How much of the capacity a request may use, e.g. order placement before reference data lookups.
+   */
+  public enum Priority {
+    HIGH(2.0),
+    NORMAL(1.0),
+    LOW(0.5);
+
+    private final double share;
+
+    Priority(double share) {
+      this.share = share;
+    }
+  }
+
+  private final long maxLagNanos;
+  private final int maxPending;
+  private final IntSupplier pending;
+  private final LongSupplier clock;
+  private final LongAdder admitted = new LongAdder();
+  private final Map<Priority, LongAdder> rejected = new EnumMap<>(Priority.class);
+  private volatile boolean started;
+  private volatile long lagNanos;
+  private volatile long nextProbeNanos;
+
+  /**
+   * @param maxEventLoopLagMs lag from which normal priority requests are rejected, 0 for no limit
+   * @param maxPending pending calls from which normal priority requests are rejected, 0 for no limit
+   * @param pending the upstream calls in flight or queued, e.g. {@link ConcurrencyLimiter#getPending}
+   */
+  public AdmissionController(long maxEventLoopLagMs, int maxPending, IntSupplier pending) {
+    this(maxEventLoopLagMs, maxPending, pending, System::nanoTime);
+  }
+
+  AdmissionController(long maxEventLoopLagMs, int maxPending, IntSupplier pending, LongSupplier clock) {
+    if (maxEventLoopLagMs < 0 || maxPending < 0) {
+      throw new IllegalArgumentException("Invalid admission thresholds: lag " + maxEventLoopLagMs + " ms, pending " + maxPending);
+    }
+    this.maxLagNanos = TimeUnit.MILLISECONDS.toNanos(maxEventLoopLagMs);
+    this.maxPending = maxPending;
+    this.pending = pending;
+    this.clock = clock;
+    for (Priority priority : Priority.values()) {
+      rejected.put(priority, new LongAdder());
+    }
+  }
+
+  /**
+   * Starts measuring the lag of the event loop of the current context, without it only pending calls count.
+   */
+  public void start(Vertx vertx) {
+    probe();
+    vertx.setTimer(PROBE_INTERVAL_MS, id -> start(vertx));
+  }
+
+  /**
+   * Measures how late this probe runs and expects the next one an interval later.
+   */
+  void probe() {
+    long now = clock.getAsLong();
+    long lag = started ? Math.max(0, now - nextProbeNanos) : 0;
+    if (maxLagNanos > 0 && lag >= maxLagNanos && lagNanos < maxLagNanos) {
+      logger.warn("probe:: Event loop lags {} ms behind, {} upstream calls pending", TimeUnit.NANOSECONDS.toMillis(lag), pending.getAsInt());
+    }
+    lagNanos = lag;
+    nextProbeNanos = now + PROBE_INTERVAL_NANOS;
+    started = true;
+  }
+
+  /**
+   * @return the lag of the last probe, or how overdue the next one is if that is more; an event loop that far behind
+   * needs about as long to catch up, which makes it the wait a rejected client is asked for
+   */
+  public long getLagNanos() {
+    return started ? Math.max(lagNanos, clock.getAsLong() - nextProbeNanos) : 0;
+  }
+
+  /**
+   * @return {@code true} if the request may go on
+   */
+  public boolean tryAdmit(Priority priority) {
+    if (maxPending > 0 && pending.getAsInt() >= maxPending * priority.share
+      || maxLagNanos > 0 && getLagNanos() >= maxLagNanos * priority.share) {
+      rejected.get(priority).increment();
+      return false;
+    }
+    admitted.increment();
+    return true;
+  }
+
+  /**
+   * @return the thresholds, the current lag and pending calls, and the requests admitted and rejected per priority
+   */
+  public JsonObject getStatistics() {
+    JsonObject rejectedByPriority = new JsonObject();
+    rejected.forEach((priority, count) -> rejectedByPriority.put(priority.name(), count.sum()));
+    return new JsonObject()
+      .put("maxEventLoopLagMs", TimeUnit.NANOSECONDS.toMillis(maxLagNanos))
+      .put("maxPending", maxPending)
+      .put("eventLoopLagMs", TimeUnit.NANOSECONDS.toMillis(getLagNanos()))
+      .put("pending", pending.getAsInt())
+      .put("admitted", admitted.sum())
+      .put("rejected", rejectedByPriority);
+  }
+}
@@ -0,0 +1,292 @@
+package org.folio.edge.orders;
+
+import static org.folio.edge.orders.Constants.API_CONFIGURATION_DEFAULT;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.networknt.schema.JsonSchema;
+import com.networknt.schema.JsonSchemaFactory;
+import com.networknt.schema.SchemaValidatorsConfig;
+import com.networknt.schema.SpecVersion;
+import com.networknt.schema.ValidationMessage;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpRequest;
+import io.vertx.ext.web.client.WebClient;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.folio.rest.mappings.model.ApiConfiguration;
+
+/**
+ * Owns the current {@link RoutingTable} and (re)loads it from the {@code api_config} file or URL.
+ * <p>
+ * A reload polls the file modification time, or sends a conditional GET with the last
+ * {@code ETag}/{@code Last-Modified} to the URL, validates changed content against
+ * {@value #API_CONFIGURATION_SCHEMA} and swaps the new table in atomically. Requests that already
+ * resolved their routing finish on the old table. A failed reload keeps the current table.
+ */
+public class ApiConfigurationManager {
+
+  private static final Logger logger = LogManager.getLogger(ApiConfigurationManager.class);
+
+  static final String API_CONFIGURATION_SCHEMA = "schema/apiConfiguration.json";
+  private static final Pattern IS_URL = Pattern.compile("(?i)^http[s]?://.*");
+  private static final long FETCH_TIMEOUT_MS = 10_000;
+
+  private final Vertx vertx;
+  private final String location;
+  private final boolean url;
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final JsonSchema schema;
+  private final AtomicReference<RoutingTable> routingTable = new AtomicReference<>(RoutingTable.compile(List.of()));
+  private final List<Consumer<RoutingTable>> swapListeners = new CopyOnWriteArrayList<>();
+
+  private final AtomicLong reloadCount = new AtomicLong();
+  private final AtomicLong reloadFailures = new AtomicLong();
+  private volatile boolean loaded;
+  private volatile long reloadIntervalMs;
+  private volatile Instant lastReloadTime;
+  private volatile String lastError;
+  private volatile Instant lastErrorTime;
+
+  // reload state, only used from the context that runs the reloads
+  private WebClient webClient;
+  private boolean reloading;
+  private Buffer currentContent;
+  private String etag;
+  private String lastModified;
+  private long fileLastModified = -1;
+  private long fileSize = -1;
+
+  /**
+   * @param vertx    Vert.x instance used for timers, file system and HTTP access
+   * @param location file path or http(s) URL of the configuration, {@code null} for the bundled default
+   */
+  public ApiConfigurationManager(Vertx vertx, String location) {
+    this.vertx = vertx;
+    this.location = location;
+    this.url = location != null && IS_URL.matcher(location).matches();
+    this.schema = loadSchema();
+  }
+
+  /**
+   * @return the routing table currently in use
+   */
+  public RoutingTable getRoutingTable() {
+    return routingTable.get();
+  }
+
+  /**
+   * Registers a listener that is called on the loading context after a table was loaded or swapped in.
+   */
+  public void onSwap(Consumer<RoutingTable> listener) {
+    swapListeners.add(listener);
+  }
+
+  /**
+   * Loads the configuration without blocking the event loop: the file or URL is read with the
+   * Vert.x file system or web client and the content is validated and compiled on a worker thread.
+   *
+   * @return future with the loaded routing table
+   */
+  public Future<RoutingTable> init() {
+    logger.debug("init:: Initializing API configuration: {}", location);
+    fileLastModified = -1;
+    fileSize = -1;
+    etag = null;
+    lastModified = null;
+    Future<Buffer> content = location == null ? readDefault() : fetchIfChanged();
+    return content
+      .compose(c -> vertx.executeBlocking(() -> parse(c))
+        .map(table -> {
+          publish(table, c);
+          loaded = true;
+          logger.info("init:: ApiConfiguration has been loaded from {}", location == null ? API_CONFIGURATION_DEFAULT : location);
+          return table;
+        }))
+      .onFailure(this::recordFailure);
+  }
+
+  /**
+   * @return {@code true} once the initial configuration has been loaded
+   */
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  /**
+   * Starts polling the configuration source for changes.
+   *
+   * @param intervalMs polling interval in milliseconds
+   */
+  public void startReloading(long intervalMs) {
+    if (reloadIntervalMs > 0) {
+      return;
+    }
+    if (location == null) {
+      logger.warn("startReloading:: Reload is not supported for the bundled default '{}'", API_CONFIGURATION_DEFAULT);
+      return;
+    }
+    logger.info("startReloading:: Checking '{}' for changes every {} ms", location, intervalMs);
+    reloadIntervalMs = intervalMs;
+    vertx.setPeriodic(intervalMs, id -> reload());
+  }
+
+  /**
+   * Checks the configuration source and swaps in a new routing table if the content changed.
+   *
+   * @return future with {@code true} if a new table was swapped in
+   */
+  public Future<Boolean> reload() {
+    if (reloading || location == null || !loaded) {
+      return Future.succeededFuture(false);
+    }
+    reloading = true;
+    return fetchIfChanged()
+      .compose(content -> {
+        if (content == null) {
+          return Future.succeededFuture(false);
+        }
+        return vertx.executeBlocking(() -> parse(content))
+          .map(table -> {
+            swap(table, content);
+            return true;
+          });
+      })
+      .onFailure(this::recordFailure)
+      .onComplete(ar -> reloading = false);
+  }
+
+  /**
+   * @return reload statistics for the admin endpoint
+   */
+  public JsonObject getStatus() {
+    return new JsonObject()
+      .put("loaded", loaded)
+      .put("reloadEnabled", reloadIntervalMs > 0)
+      .put("reloadIntervalMs", reloadIntervalMs)
+      .put("reloadCount", reloadCount.get())
+      .put("reloadFailures", reloadFailures.get())
+      .put("lastReloadTime", lastReloadTime == null ? null : lastReloadTime.toString())
+      .put("lastError", lastError)
+      .put("lastErrorTime", lastErrorTime == null ? null : lastErrorTime.toString())
+      .put("routes", routingTable.get().slices().size());
+  }
+
+  RoutingTable parse(Buffer content) throws IOException {
+    JsonNode tree = mapper.readTree(content.getBytes());
+    Set<ValidationMessage> errors = schema.validate(tree);
+    if (!errors.isEmpty()) {
+      throw new IllegalArgumentException("Invalid api configuration: " + errors.stream()
+        .map(ValidationMessage::getMessage)
+        .collect(Collectors.joining("; ")));
+    }
+    return RoutingTable.compile(mapper.treeToValue(tree, ApiConfiguration.class).getRouting());
+  }
+
+  private Future<Buffer> readDefault() {
+    logger.warn("No api configuration file specified. Using default '{}'", API_CONFIGURATION_DEFAULT);
+    return vertx.executeBlocking(() -> {
+      try (InputStream in = Objects.requireNonNull(getClass().getClassLoader().getResourceAsStream(API_CONFIGURATION_DEFAULT))) {
+        return Buffer.buffer(in.readAllBytes());
+      }
+    });
+  }
+
+  private Future<Buffer> fetchIfChanged() {
+    return url ? fetchUrlIfChanged() : fetchFileIfChanged();
+  }
+
+  private Future<Buffer> fetchFileIfChanged() {
+    return vertx.fileSystem().props(location)
+      .compose(props -> {
+        if (props.lastModifiedTime() == fileLastModified && props.size() == fileSize) {
+          return Future.succeededFuture();
+        }
+        fileLastModified = props.lastModifiedTime();
+        fileSize = props.size();
+        return vertx.fileSystem().readFile(location).map(this::changedContent);
+      });
+  }
+
+  private Future<Buffer> fetchUrlIfChanged() {
+    if (webClient == null) {
+      webClient = WebClient.create(vertx);
+    }
+    HttpRequest<Buffer> request = webClient.getAbs(location).timeout(FETCH_TIMEOUT_MS);
+    if (etag != null) {
+      request.putHeader(HttpHeaders.IF_NONE_MATCH.toString(), etag);
+    }
+    if (lastModified != null) {
+      request.putHeader(HttpHeaders.IF_MODIFIED_SINCE.toString(), lastModified);
+    }
+    return request.send()
+      .compose(resp -> {
+        if (resp.statusCode() == 304) {
+          return Future.succeededFuture();
+        }
+        if (resp.statusCode() != 200) {
+          return Future.failedFuture("Unexpected status " + resp.statusCode() + " when fetching " + location);
+        }
+        etag = resp.getHeader(HttpHeaders.ETAG.toString());
+        lastModified = resp.getHeader(HttpHeaders.LAST_MODIFIED.toString());
+        return Future.succeededFuture(changedContent(resp.body()));
+      });
+  }
+
+  private Buffer changedContent(Buffer content) {
+    return content == null || content.equals(currentContent) ? null : content;
+  }
+
+  private void swap(RoutingTable table, Buffer content) {
+    publish(table, content);
+    lastReloadTime = Instant.now();
+    reloadCount.incrementAndGet();
+    logger.info("swap:: ApiConfiguration has been reloaded from {}, routes: {}", location, table.slices().size());
+  }
+
+  private void publish(RoutingTable table, Buffer content) {
+    routingTable.set(table);
+    currentContent = content;
+    swapListeners.forEach(listener -> listener.accept(table));
+  }
+
+  private void recordFailure(Throwable t) {
+    lastError = t.getMessage();
+    lastErrorTime = Instant.now();
+    if (loaded) {
+      reloadFailures.incrementAndGet();
+      logger.warn("Failed to reload ApiConfiguration from '{}', keeping the current one", location, t);
+    } else {
+      logger.error("Failed to load ApiConfiguration from '{}'", location, t);
+    }
+  }
+
+  private static JsonSchema loadSchema() {
+    // the draft-04 "id" of the routing property is not a valid URI reference, it only names the generated class
+    SchemaValidatorsConfig config = SchemaValidatorsConfig.builder()
+      .schemaIdValidator((id, rootSchema, schemaLocation, resolvedSchemaLocation, validationContext) -> true)
+      .build();
+    try (InputStream in = Objects.requireNonNull(ApiConfigurationManager.class.getClassLoader().getResourceAsStream(API_CONFIGURATION_SCHEMA))) {
+      return JsonSchemaFactory.getInstance(SpecVersion.VersionFlag.V4).getSchema(in, config);
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to load " + API_CONFIGURATION_SCHEMA, e);
+    }
+  }
+}
@@ -0,0 +1,44 @@
+package org.folio.edge.orders;
+
+import java.io.InputStream;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Reads a Vert.x {@link Buffer} in the chunks the reader asks for, so parsers and decompressors do not need a
+ * copy of the whole body as a byte array first.
+ */
+public class BufferInputStream extends InputStream {
+
+  private final Buffer buffer;
+  private int position;
+
+  public BufferInputStream(Buffer buffer) {
+    this.buffer = buffer;
+  }
+
+  @Override
+  public int read() {
+    return position < buffer.length() ? buffer.getByte(position++) & 0xff : -1;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) {
+    if (len == 0) {
+      return 0;
+    }
+    int available = available();
+    if (available == 0) {
+      return -1;
+    }
+    int count = Math.min(len, available);
+    buffer.getBytes(position, position + count, b, off);
+    position += count;
+    return count;
+  }
+
+  @Override
+  public int available() {
+    return buffer.length() - position;
+  }
+}
@@ -0,0 +1,28 @@
+package org.folio.edge.orders;
+
+import java.io.OutputStream;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Appends everything written to a Vert.x {@link Buffer}, so serializers and compressors can write a response
+ * body without an intermediate byte array or String.
+ */
+public class BufferOutputStream extends OutputStream {
+
+  private final Buffer buffer;
+
+  public BufferOutputStream(Buffer buffer) {
+    this.buffer = buffer;
+  }
+
+  @Override
+  public void write(int b) {
+    buffer.appendByte((byte) b);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) {
+    buffer.appendBytes(b, off, len);
+  }
+}
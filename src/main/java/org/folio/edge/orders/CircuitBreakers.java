@@ -0,0 +1,261 @@
+package org.folio.edge.orders;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A circuit breaker per tenant and upstream path, so that calls to a module that fails or hangs are answered at once
+ * instead of after the request timeout.
+ * <p>
+ * A closed breaker records the outcome of the last {@code windowSize} calls. Once the window is full and the share
+ * of failed calls, exceptions or 5xx responses, reaches the failure rate threshold, or the share of calls slower
+ * than the slow call threshold reaches the slow call rate threshold, the breaker opens and calls fail with a
+ * {@link CircuitOpenException}. After the open duration it lets {@code halfOpenCalls} probes through: if they all
+ * succeed in time it closes, otherwise it opens again.
+ */
+public class CircuitBreakers {
+
+  private static final Logger logger = LogManager.getLogger(CircuitBreakers.class);
+
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final int failureRateThreshold;
+  private final int slowCallRateThreshold;
+  private final long slowCallThresholdNanos;
+  private final int windowSize;
+  private final long openDurationNanos;
+  private final int halfOpenCalls;
+  private final LongSupplier clock;
+  private final Map<String, Breaker> breakers = new HashMap<>();
+
+  /**
+   * @param failureRateThreshold percentage of failed calls in the window that opens the breaker
+   * @param slowCallRateThreshold percentage of slow calls in the window that opens the breaker
+   * @param slowCallThresholdMs duration from which a call counts as slow
+   * @param windowSize number of recent calls the rates are computed from
+   * @param openDurationMs how long an open breaker fails calls before it probes the module again
+   * @param halfOpenCalls number of probes that must succeed to close the breaker again
+   */
+  public CircuitBreakers(int failureRateThreshold, int slowCallRateThreshold, long slowCallThresholdMs, int windowSize,
+                         long openDurationMs, int halfOpenCalls) {
+    this(failureRateThreshold, slowCallRateThreshold, slowCallThresholdMs, windowSize, openDurationMs, halfOpenCalls,
+      System::nanoTime);
+  }
+
+  CircuitBreakers(int failureRateThreshold, int slowCallRateThreshold, long slowCallThresholdMs, int windowSize,
+                  long openDurationMs, int halfOpenCalls, LongSupplier clock) {
+    if (failureRateThreshold < 1 || failureRateThreshold > 100 || slowCallRateThreshold < 1 || slowCallRateThreshold > 100
+      || slowCallThresholdMs < 1 || windowSize < 1 || openDurationMs < 1 || halfOpenCalls < 1) {
+      throw new IllegalArgumentException(String.format("Invalid circuit breaker settings: failure rate %d%%, slow call "
+          + "rate %d%%, slow call %d ms, window %d, open %d ms, half-open calls %d", failureRateThreshold,
+        slowCallRateThreshold, slowCallThresholdMs, windowSize, openDurationMs, halfOpenCalls));
+    }
+    this.failureRateThreshold = failureRateThreshold;
+    this.slowCallRateThreshold = slowCallRateThreshold;
+    this.slowCallThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowCallThresholdMs);
+    this.windowSize = windowSize;
+    this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMs);
+    this.halfOpenCalls = halfOpenCalls;
+    this.clock = clock;
+  }
+
+  /**
+   * Runs the call unless the breaker of the tenant and path is open, and records its outcome.
+   *
+   * @param failedResult tells a result that counts as a failure, e.g. a 5xx response
+   * @return the result of the call, or a {@link CircuitOpenException} if the breaker did not let it through
+   */
+  public <T> Future<T> execute(String tenant, String path, Supplier<Future<T>> call, Predicate<T> failedResult) {
+    Breaker breaker;
+    synchronized (breakers) {
+      breaker = breakers.computeIfAbsent(tenant + '\n' + path, k -> new Breaker(tenant, path));
+    }
+    if (!breaker.tryAcquire()) {
+      return Future.failedFuture(new CircuitOpenException(tenant, path));
+    }
+    long start = clock.getAsLong();
+    Future<T> result;
+    try {
+      result = call.get();
+    } catch (RuntimeException e) {
+      result = Future.failedFuture(e);
+    }
+    return result.andThen(ar ->
+      breaker.record(ar.failed() || failedResult.test(ar.result()), clock.getAsLong() - start >= slowCallThresholdNanos));
+  }
+
+  /**
+   * @return the state of the tenant and path, {@link State#CLOSED} if it was never called
+   */
+  public State getState(String tenant, String path) {
+    Breaker breaker;
+    synchronized (breakers) {
+      breaker = breakers.get(tenant + '\n' + path);
+    }
+    return breaker == null ? State.CLOSED : breaker.state();
+  }
+
+  /**
+   * @return per tenant and path the state, the failure and slow call rates of the window and the counters of state
+   * changes and rejected calls
+   */
+  public JsonObject getStatistics() {
+    JsonObject tenants = new JsonObject();
+    synchronized (breakers) {
+      breakers.values().forEach(breaker -> {
+        JsonObject paths = tenants.getJsonObject(breaker.tenant);
+        if (paths == null) {
+          paths = new JsonObject();
+          tenants.put(breaker.tenant, paths);
+        }
+        paths.put(breaker.path, breaker.toJson());
+      });
+    }
+    return new JsonObject()
+      .put("failureRateThreshold", failureRateThreshold)
+      .put("slowCallRateThreshold", slowCallRateThreshold)
+      .put("slowCallThresholdMs", TimeUnit.NANOSECONDS.toMillis(slowCallThresholdNanos))
+      .put("windowSize", windowSize)
+      .put("openDurationMs", TimeUnit.NANOSECONDS.toMillis(openDurationNanos))
+      .put("halfOpenCalls", halfOpenCalls)
+      .put("tenants", tenants);
+  }
+
+  private final class Breaker {
+
+    private final String tenant;
+    private final String path;
+    // outcomes of the recent calls in a ring, only those of the closed state
+    private final boolean[] failed = new boolean[windowSize];
+    private final boolean[] slow = new boolean[windowSize];
+    private int recorded;
+    private int next;
+    private int failures;
+    private int slowCalls;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int probesStarted;
+    private int probesSucceeded;
+    private long opened;
+    private long halfOpened;
+    private long closed;
+    private long rejected;
+
+    private Breaker(String tenant, String path) {
+      this.tenant = tenant;
+      this.path = path;
+    }
+
+    private synchronized boolean tryAcquire() {
+      if (state == State.OPEN) {
+        if (clock.getAsLong() - openedAt < openDurationNanos) {
+          rejected++;
+          return false;
+        }
+        transition(State.HALF_OPEN);
+      }
+      if (state == State.HALF_OPEN) {
+        if (probesStarted >= halfOpenCalls) {
+          rejected++;
+          return false;
+        }
+        probesStarted++;
+      }
+      return true;
+    }
+
+    private synchronized void record(boolean callFailed, boolean callSlow) {
+      if (state == State.HALF_OPEN) {
+        if (callFailed || callSlow) {
+          transition(State.OPEN);
+        } else if (++probesSucceeded >= halfOpenCalls) {
+          transition(State.CLOSED);
+        }
+        return;
+      }
+      if (state == State.OPEN) {
+        // a call that started before the breaker opened
+        return;
+      }
+      if (recorded == windowSize) {
+        failures -= failed[next] ? 1 : 0;
+        slowCalls -= slow[next] ? 1 : 0;
+      } else {
+        recorded++;
+      }
+      failed[next] = callFailed;
+      slow[next] = callSlow;
+      failures += callFailed ? 1 : 0;
+      slowCalls += callSlow ? 1 : 0;
+      next = (next + 1) % windowSize;
+      if (recorded == windowSize
+        && (failures * 100 >= failureRateThreshold * windowSize || slowCalls * 100 >= slowCallRateThreshold * windowSize)) {
+        transition(State.OPEN);
+      }
+    }
+
+    private void transition(State to) {
+      logger.warn("transition:: Circuit breaker of tenant {} and {} changes from {} to {}, failed calls: {}, slow calls: {}",
+        tenant, path, state, to, failures, slowCalls);
+      state = to;
+      switch (to) {
+        case OPEN:
+          opened++;
+          openedAt = clock.getAsLong();
+          break;
+        case HALF_OPEN:
+          halfOpened++;
+          probesStarted = 0;
+          probesSucceeded = 0;
+          break;
+        default:
+          closed++;
+          recorded = 0;
+          next = 0;
+          failures = 0;
+          slowCalls = 0;
+          break;
+      }
+    }
+
+    private synchronized State state() {
+      return state;
+    }
+
+    private synchronized JsonObject toJson() {
+      return new JsonObject()
+        .put("state", state.name())
+        .put("calls", recorded)
+        .put("failureRate", recorded == 0 ? 0 : failures * 100 / recorded)
+        .put("slowCallRate", recorded == 0 ? 0 : slowCalls * 100 / recorded)
+        .put("opened", opened)
+        .put("halfOpened", halfOpened)
+        .put("closed", closed)
+        .put("rejected", rejected);
+    }
+  }
+
+  /**
+   * The breaker of the tenant and path is open, the request is answered without calling Okapi.
+   */
+  public static final class CircuitOpenException extends RuntimeException {
+
+    private CircuitOpenException(String tenant, String path) {
+      super("Circuit breaker of tenant " + tenant + " and " + path + " is open", null, false, false);
+    }
+  }
+}
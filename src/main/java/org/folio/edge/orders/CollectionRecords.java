@@ -0,0 +1,203 @@
+package org.folio.edge.orders;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonFactoryBuilder;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Reads the records of a FOLIO collection response, e.g. {@code {"funds": [...], "totalRecords": 2}}, in one pass
+ * over its tokens, all at once or slice by slice. The records are the elements of the first top-level array; the total is the top-level
+ * {@code totalRecords}, or the one in {@code resultInfo}.
+ */
+public final class CollectionRecords {
+
+  /**
+   * Records are written one per line for {@link Format#NDJSON}, or comma separated to go into a JSON array.
+   */
+  public enum Format {
+    JSON_ARRAY,
+    NDJSON
+  }
+
+  // records are written as root values, the separators are written explicitly
+  private static final JsonFactory JSON_FACTORY = new JsonFactoryBuilder().rootValueSeparator((String) null).build();
+  private static final String TOTAL_RECORDS = "totalRecords";
+  private static final int SLICE_CAPACITY = 64 * 1024;
+
+  private final Buffer records;
+  private final int count;
+  private final Integer totalRecords;
+
+  private CollectionRecords(Buffer records, int count, Integer totalRecords) {
+    this.records = records;
+    this.count = count;
+    this.totalRecords = totalRecords;
+  }
+
+  /**
+   * @param body a collection response
+   * @param format how the records are separated in {@link #getRecords()}
+   * @throws IOException if the body is not a JSON object
+   */
+  public static CollectionRecords read(Buffer body, Format format) throws IOException {
+    try (Reader reader = reader(body, format)) {
+      // an unbounded slice holds all records
+      Buffer records = reader.next(Integer.MAX_VALUE);
+      return new CollectionRecords(records, reader.getCount(), reader.getTotalRecords());
+    }
+  }
+
+  /**
+   * @param body a collection response
+   * @param format how the records are separated in the slices
+   * @throws IOException if the body is not a JSON object
+   */
+  public static Reader reader(Buffer body, Format format) throws IOException {
+    return new Reader(JSON_FACTORY.createParser(new BufferInputStream(body)), format);
+  }
+
+  /**
+   * Reads the records in slices of about the same size, so that a large collection can be written while it is read.
+   * The slices put together are the records {@link #read} returns.
+   */
+  public static final class Reader implements Closeable {
+
+    private final JsonParser parser;
+    private final Format format;
+    private int count;
+    private Integer totalRecords;
+    private Integer resultInfoTotal;
+    private boolean found;
+    private boolean inRecords;
+    private boolean finished;
+
+    private Reader(JsonParser parser, Format format) throws IOException {
+      this.parser = parser;
+      this.format = format;
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        JsonParseException e = new JsonParseException(parser, "Expected a collection object but found " + parser.currentToken());
+        parser.close();
+        throw e;
+      }
+    }
+
+    /**
+     * @param maxBytes size after which no further record is added to the slice, a single record may exceed it
+     * @return the next records, possibly none, or {@code null} once the whole response was read
+     * @throws IOException if the response is not valid JSON
+     */
+    public Buffer next(int maxBytes) throws IOException {
+      if (finished) {
+        return null;
+      }
+      Buffer records = Buffer.buffer(Math.min(maxBytes, SLICE_CAPACITY));
+      try (JsonGenerator generator = JSON_FACTORY.createGenerator(new BufferOutputStream(records))) {
+        while (records.length() + generator.getOutputBuffered() < maxBytes && nextRecord()) {
+          if (format == Format.JSON_ARRAY && count > 0) {
+            generator.writeRaw(',');
+          }
+          generator.copyCurrentStructure(parser);
+          if (format == Format.NDJSON) {
+            generator.writeRaw('\n');
+          }
+          count++;
+        }
+      }
+      return records;
+    }
+
+    /**
+     * Moves to the start of the next record, reading the fields around the records on the way.
+     */
+    private boolean nextRecord() throws IOException {
+      while (!finished) {
+        if (inRecords) {
+          if (parser.nextToken() != JsonToken.END_ARRAY) {
+            return true;
+          }
+          inRecords = false;
+        } else if (parser.nextToken() != JsonToken.FIELD_NAME) {
+          finished = true;
+        } else {
+          String field = parser.currentName();
+          JsonToken token = parser.nextToken();
+          if (!found && token == JsonToken.START_ARRAY) {
+            found = true;
+            inRecords = true;
+          } else if (TOTAL_RECORDS.equals(field) && token == JsonToken.VALUE_NUMBER_INT) {
+            totalRecords = parser.getIntValue();
+          } else if ("resultInfo".equals(field) && token == JsonToken.START_OBJECT) {
+            resultInfoTotal = readTotalRecords(parser);
+          } else {
+            parser.skipChildren();
+          }
+        }
+      }
+      return false;
+    }
+
+    /**
+     * @return the number of records read so far
+     */
+    public int getCount() {
+      return count;
+    }
+
+    /**
+     * @return the total the upstream module reported, {@code null} if none was read so far
+     */
+    public Integer getTotalRecords() {
+      return totalRecords == null ? resultInfoTotal : totalRecords;
+    }
+
+    @Override
+    public void close() {
+      try {
+        parser.close();
+      } catch (IOException e) {
+        // the parser reads from memory, closing it only recycles its buffers
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  private static Integer readTotalRecords(JsonParser parser) throws IOException {
+    Integer totalRecords = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      if (parser.nextToken() == JsonToken.VALUE_NUMBER_INT && TOTAL_RECORDS.equals(field)) {
+        totalRecords = parser.getIntValue();
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return totalRecords;
+  }
+
+  /**
+   * @return the records in the requested format, without enclosing brackets for {@link Format#JSON_ARRAY}
+   */
+  public Buffer getRecords() {
+    return records;
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * @return the total the upstream module reported, {@code null} if the response has none
+   */
+  public Integer getTotalRecords() {
+    return totalRecords;
+  }
+}
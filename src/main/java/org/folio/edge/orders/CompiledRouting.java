@@ -0,0 +1,228 @@
+package org.folio.edge.orders;
+
+import static org.folio.edge.orders.Constants.BILLING_AND_SHIPPING_PATH;
+import static org.folio.edge.orders.Constants.HTTP_METHOD_GET;
+import static org.folio.edge.orders.Constants.HTTP_METHOD_POST;
+import static org.folio.edge.orders.Constants.HTTP_METHOD_PUT;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.ext.web.client.HttpResponse;
+import org.folio.rest.mappings.model.ResponseTransform;
+import org.folio.rest.mappings.model.Routing;
+
+/**
+ * A {@link Routing} entry together with everything that can be derived from it once at startup.
+ */
+public final class CompiledRouting {
+
+  static final int DEFAULT_COMPRESSION_MIN_SIZE = 1024;
+  static final int DEFAULT_COMPRESSION_LEVEL = 6;
+  static final int DEFAULT_CACHE_MAX_SIZE = 1000;
+  static final int DEFAULT_AGGREGATE_PAGE_SIZE = 1000;
+  static final int DEFAULT_AGGREGATE_MAX_RECORDS = 50_000;
+
+  private final Routing routing;
+  private final String routeName;
+  private final String requestMethod;
+  private final ProxyPathTemplate proxyPathTemplate;
+  private final boolean streamRequestBody;
+  private final int compressionMinSize;
+  private final int compressionLevel;
+  private final ExpiringCache<String, HttpResponse<Buffer>> responseCache;
+  private final SingleFlight<String, HttpResponse<Buffer>> inFlightRequests;
+  private final ResponseTransformer responseTransformer;
+  private final LatencyTracker latencies;
+  private final boolean collection;
+  private final boolean aggregateAllowed;
+  private final RateLimiter.Limit rateLimit;
+  private final AdmissionController.Priority admissionPriority;
+
+  private CompiledRouting(Routing routing) {
+    this.routing = routing;
+    this.routeName = routing.getMethod() + ' ' + routing.getPathPattern();
+    this.requestMethod = QueryUtil.getRequestMethod(routing);
+    this.proxyPathTemplate = ProxyPathTemplate.compile(routing.getProxyPath());
+    this.streamRequestBody = (HTTP_METHOD_POST.equals(requestMethod) || HTTP_METHOD_PUT.equals(requestMethod))
+      && !Boolean.TRUE.equals(routing.getBufferRequestBody());
+    this.compressionMinSize = routing.getCompressionMinSize() == null ? DEFAULT_COMPRESSION_MIN_SIZE : routing.getCompressionMinSize();
+    this.compressionLevel = routing.getCompressionLevel() == null ? DEFAULT_COMPRESSION_LEVEL : routing.getCompressionLevel();
+    this.responseCache = HTTP_METHOD_GET.equals(requestMethod) && routing.getCacheTtlMs() != null && routing.getCacheTtlMs() > 0
+      ? new ExpiringCache<>(routing.getCacheMaxSize() == null ? DEFAULT_CACHE_MAX_SIZE : routing.getCacheMaxSize(), routing.getCacheTtlMs(),
+          routing.getStaleWhileRevalidateMs() == null ? 0 : routing.getStaleWhileRevalidateMs())
+      : null;
+    this.inFlightRequests = HTTP_METHOD_GET.equals(requestMethod) && !Boolean.FALSE.equals(routing.getCoalesceRequests())
+      ? new SingleFlight<>()
+      : null;
+    this.responseTransformer = compileResponseTransform(routing);
+    if (routing.getHedgeAfterPercentile() != null && !HTTP_METHOD_GET.equals(requestMethod)) {
+      throw new IllegalArgumentException("hedgeAfterPercentile needs a GET route: " + routing.getPathPattern());
+    }
+    this.latencies = routing.getHedgeAfterPercentile() == null ? null : new LatencyTracker(routing.getHedgeAfterPercentile());
+    this.collection = HTTP_METHOD_GET.equals(requestMethod) && routing.getProxyPath().contains(":offset")
+      && routing.getProxyPath().contains(":limit");
+    this.aggregateAllowed = Boolean.TRUE.equals(routing.getAllowAggregate());
+    if (aggregateAllowed && !collection) {
+      throw new IllegalArgumentException("allowAggregate needs a GET route with :offset and :limit in its proxyPath: "
+        + routing.getPathPattern());
+    }
+    if (aggregateAllowed && responseTransformer != null) {
+      // pages are merged record by record, a transform of the whole response has nothing to apply to
+      throw new IllegalArgumentException("allowAggregate can not be combined with a responseTransform: "
+        + routing.getPathPattern());
+    }
+    this.rateLimit = compileRateLimit(routing);
+    this.admissionPriority = routing.getAdmissionPriority() == null
+      ? AdmissionController.Priority.NORMAL
+      : AdmissionController.Priority.valueOf(routing.getAdmissionPriority().name());
+  }
+
+  private static RateLimiter.Limit compileRateLimit(Routing routing) {
+    Double perSecond = routing.getRateLimitPerSecond();
+    if (perSecond == null) {
+      if (routing.getRateLimitBurst() != null) {
+        throw new IllegalArgumentException("rateLimitBurst needs rateLimitPerSecond: " + routing.getPathPattern());
+      }
+      return null;
+    }
+    // without a burst an idle client may send one second's worth of requests at once
+    int burst = routing.getRateLimitBurst() == null ? (int) Math.max(1, Math.ceil(perSecond)) : routing.getRateLimitBurst();
+    return new RateLimiter.Limit(perSecond, burst);
+  }
+
+  private static ResponseTransformer compileResponseTransform(Routing routing) {
+    ResponseTransform transform = routing.getResponseTransform();
+    if (transform != null) {
+      return ResponseTransformer.compile(transform);
+    }
+    // configurations written before transforms were declarable still get the address conversion
+    return BILLING_AND_SHIPPING_PATH.equals(routing.getPathPattern())
+      ? ResponseTransformer.BUILT_IN.get(ResponseTransformer.TENANT_ADDRESSES_TO_CONFIGS)
+      : null;
+  }
+
+  public static CompiledRouting compile(Routing routing) {
+    return new CompiledRouting(routing);
+  }
+
+  public Routing getRouting() {
+    return routing;
+  }
+
+  /**
+   * @return method and path pattern of the route, e.g. {@code POST /orders}, which names it in statistics
+   */
+  public String getRouteName() {
+    return routeName;
+  }
+
+  /**
+   * @return the HTTP method used towards Okapi, {@code proxyMethod} if set or {@code method} otherwise
+   */
+  public String getRequestMethod() {
+    return requestMethod;
+  }
+
+  public ProxyPathTemplate getProxyPathTemplate() {
+    return proxyPathTemplate;
+  }
+
+  /**
+   * @return {@code true} if the request body is piped to Okapi as it arrives instead of being read into memory first
+   */
+  public boolean isStreamRequestBody() {
+    return streamRequestBody;
+  }
+
+  /**
+   * @return {@code true} if a response body of the given length is encoded for clients that accept it
+   */
+  public boolean isCompressible(int length) {
+    return compressionEnabled() && length >= compressionMinSize;
+  }
+
+  public boolean compressionEnabled() {
+    return compressionMinSize >= 0;
+  }
+
+  public int getCompressionLevel() {
+    return compressionLevel;
+  }
+
+  /**
+   * @return the cache of successful upstream responses, {@code null} if the route is not cached
+   */
+  public ExpiringCache<String, HttpResponse<Buffer>> getResponseCache() {
+    return responseCache;
+  }
+
+  /**
+   * @return the upstream GETs in flight that identical requests attach to, {@code null} if the route does not coalesce
+   */
+  public SingleFlight<String, HttpResponse<Buffer>> getInFlightRequests() {
+    return inFlightRequests;
+  }
+
+  /**
+   * @return {@code true} if clients may project the response with the {@code fields} parameter
+   */
+  public boolean isFieldProjectionAllowed() {
+    return Boolean.TRUE.equals(routing.getAllowFieldsParam());
+  }
+
+  /**
+   * @return the recent upstream latencies of a route that hedges its calls, {@code null} if it does not
+   */
+  public LatencyTracker getLatencies() {
+    return latencies;
+  }
+
+  /**
+   * @return {@code true} for a paginated GET route, whose proxyPath has {@code :offset} and {@code :limit}
+   */
+  public boolean isCollection() {
+    return collection;
+  }
+
+  /**
+   * @return {@code true} if clients may ask for the records of all pages with the {@code aggregate} parameter
+   */
+  public boolean isAggregateAllowed() {
+    return aggregateAllowed;
+  }
+
+  public int getAggregatePageSize() {
+    return routing.getAggregatePageSize() == null ? DEFAULT_AGGREGATE_PAGE_SIZE : routing.getAggregatePageSize();
+  }
+
+  public int getAggregateMaxRecords() {
+    return routing.getAggregateMaxRecords() == null ? DEFAULT_AGGREGATE_MAX_RECORDS : routing.getAggregateMaxRecords();
+  }
+
+  /**
+   * @return the limit of an API key on this route, {@code null} if only the limit per API key applies
+   */
+  public RateLimiter.Limit getRateLimit() {
+    return rateLimit;
+  }
+
+  /**
+   * @return the priority of the route's requests when the instance is overloaded
+   */
+  public AdmissionController.Priority getAdmissionPriority() {
+    return admissionPriority;
+  }
+
+  /**
+   * @return the transform of successful responses, {@code null} if they are forwarded as they are
+   */
+  public ResponseTransformer getResponseTransformer() {
+    return responseTransformer;
+  }
+
+  @Override
+  public String toString() {
+    return "CompiledRouting{" +
+      "routing=" + routing +
+      '}';
+  }
+}
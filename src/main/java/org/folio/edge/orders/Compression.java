@@ -0,0 +1,150 @@
+package org.folio.edge.orders;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * HTTP content coding for the gzip and deflate encodings: {@code Accept-Encoding} negotiation and
+ * encoding/decoding of whole bodies. The methods are CPU bound and should not run on the event loop for large bodies.
+ */
+public class Compression {
+
+  public static final String GZIP = "gzip";
+  public static final String DEFLATE = "deflate";
+  public static final String IDENTITY = "identity";
+  /**
+   * Upper bound for a decoded request or upstream response body, protects against small archives expanding to
+   * gigabytes.
+   */
+  public static final long MAX_DECODED_LENGTH = 64L * 1024 * 1024;
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private Compression() {
+  }
+
+  /**
+   * Picks the encoding for a response from an {@code Accept-Encoding} header value, gzip wins a tie with deflate.
+   *
+   * @return {@link #GZIP}, {@link #DEFLATE} or {@code null} if the response should not be encoded
+   */
+  public static String negotiate(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return null;
+    }
+    float gzip = -1;
+    float deflate = -1;
+    float any = -1;
+    for (String part : acceptEncoding.split(",")) {
+      String[] tokens = part.split(";");
+      String coding = tokens[0].trim().toLowerCase(Locale.ROOT);
+      float q = quality(tokens);
+      switch (coding) {
+        case GZIP, "x-gzip" -> gzip = Math.max(gzip, q);
+        case DEFLATE -> deflate = Math.max(deflate, q);
+        case "*" -> any = q;
+        default -> {
+          // brotli, zstd and other codings are not supported
+        }
+      }
+    }
+    gzip = gzip < 0 ? any : gzip;
+    deflate = deflate < 0 ? any : deflate;
+    if (gzip > 0 && gzip >= deflate) {
+      return GZIP;
+    }
+    return deflate > 0 ? DEFLATE : null;
+  }
+
+  /**
+   * @return {@code true} for gzip and deflate, the encodings {@link #encode} and {@link #decode} handle
+   */
+  public static boolean isSupported(String encoding) {
+    return GZIP.equalsIgnoreCase(encoding) || "x-gzip".equalsIgnoreCase(encoding) || DEFLATE.equalsIgnoreCase(encoding);
+  }
+
+  /**
+   * @return {@code true} if the {@code Content-Encoding} value leaves the body as is
+   */
+  public static boolean isIdentity(String encoding) {
+    return encoding == null || encoding.isBlank() || IDENTITY.equalsIgnoreCase(encoding.trim());
+  }
+
+  /**
+   * @param level compression level from 1 (fastest) to 9 (smallest)
+   */
+  public static Buffer encode(Buffer body, String encoding, int level) throws IOException {
+    Buffer encoded = Buffer.buffer(Math.max(body.length() / 4, 64));
+    if (DEFLATE.equalsIgnoreCase(encoding)) {
+      Deflater deflater = new Deflater(level);
+      try (OutputStream out = new DeflaterOutputStream(new BufferOutputStream(encoded), deflater, BUFFER_SIZE)) {
+        out.write(body.getBytes());
+      } finally {
+        deflater.end();
+      }
+    } else {
+      try (OutputStream out = new LeveledGzipOutputStream(new BufferOutputStream(encoded), level)) {
+        out.write(body.getBytes());
+      }
+    }
+    return encoded;
+  }
+
+  /**
+   * Inflates the body straight from the buffer into one that starts at the encoded length and grows as needed.
+   *
+   * @throws IOException if the body is corrupt or decodes to more than {@code maxLength} bytes
+   */
+  public static Buffer decode(Buffer body, String encoding, long maxLength) throws IOException {
+    if (isIdentity(encoding) || body.length() == 0) {
+      return body;
+    }
+    if (!isSupported(encoding)) {
+      throw new IOException("Unsupported Content-Encoding: " + encoding);
+    }
+    Buffer decoded = Buffer.buffer((int) Math.min(body.length(), maxLength));
+    InputStream raw = new BufferInputStream(body);
+    try (InputStream in = DEFLATE.equalsIgnoreCase(encoding) ? new InflaterInputStream(raw) : new GZIPInputStream(raw)) {
+      byte[] chunk = new byte[BUFFER_SIZE];
+      int n;
+      while ((n = in.read(chunk)) != -1) {
+        decoded.appendBytes(chunk, 0, n);
+        if (decoded.length() > maxLength) {
+          throw new IOException("Decoded body exceeds " + maxLength + " bytes");
+        }
+      }
+    }
+    return decoded;
+  }
+
+  private static float quality(String[] tokens) {
+    for (int i = 1; i < tokens.length; i++) {
+      String param = tokens[i].trim();
+      if (param.startsWith("q=")) {
+        try {
+          return Float.parseFloat(param.substring(2));
+        } catch (NumberFormatException e) {
+          return 0;
+        }
+      }
+    }
+    return 1;
+  }
+
+  private static class LeveledGzipOutputStream extends GZIPOutputStream {
+
+    LeveledGzipOutputStream(OutputStream out, int level) throws IOException {
+      super(out, BUFFER_SIZE);
+      def.setLevel(level);
+    }
+  }
+}
@@ -0,0 +1,246 @@
+package org.folio.edge.orders;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Limits the upstream calls in flight per tenant and route, with a limit that follows the measured latency.
+ * <p>
+ * The limit grows by one per limit's worth of calls that finish within {@link #LATENCY_TOLERANCE} times the fastest
+ * latency seen recently, or within a few milliseconds of it, while the limit is in use, and shrinks by
+ * {@link #BACKOFF} when a call is slower or fails (AIMD). Calls over the limit wait in arrival order, at most {@code maxQueued} of them and for at most
+ * {@code maxWaitMs}; other calls fail with a {@link LimitExceededException}. A call answered by an open circuit breaker
+ * is not measured.
+ */
+public class ConcurrencyLimiter {
+
+  static final double LATENCY_TOLERANCE = 2.0;
+  static final double BACKOFF = 0.9;
+  // the fastest latency drifts towards the observed ones, so a module that became slower for good is not held
+  // to the latency it had before
+  private static final double BASELINE_DRIFT = 0.01;
+  // latencies this close to the fastest one are jitter, not queueing
+  private static final long LATENCY_SLACK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+  private static final int MIN_LIMIT = 1;
+
+  private final int initialLimit;
+  private final int maxLimit;
+  private final int maxQueued;
+  private final long maxWaitMs;
+  private final Map<String, State> states = new HashMap<>();
+  private final AtomicInteger pending = new AtomicInteger();
+
+  /**
+   * @param initialLimit the limit of a tenant and route before any latency was measured
+   * @param maxLimit the highest limit
+   * @param maxQueued calls waiting per tenant and route, 0 rejects calls over the limit at once
+   * @param maxWaitMs how long a call waits for a permit
+   */
+  public ConcurrencyLimiter(int initialLimit, int maxLimit, int maxQueued, long maxWaitMs) {
+    if (initialLimit < MIN_LIMIT || maxLimit < initialLimit || maxQueued < 0 || maxWaitMs < 1) {
+      throw new IllegalArgumentException(String.format("Invalid concurrency limits: initial %d, max %d, queue %d, wait %d ms",
+        initialLimit, maxLimit, maxQueued, maxWaitMs));
+    }
+    this.initialLimit = initialLimit;
+    this.maxLimit = maxLimit;
+    this.maxQueued = maxQueued;
+    this.maxWaitMs = maxWaitMs;
+  }
+
+  /**
+   * Runs the call once a permit of the tenant and route is free, and measures it.
+   *
+   * @return the result of the call, or a {@link LimitExceededException} if no permit was free in time
+   */
+  public <T> Future<T> execute(String tenant, String route, Supplier<Future<T>> call) {
+    State state;
+    synchronized (states) {
+      state = states.computeIfAbsent(tenant + '\n' + route, k -> new State(tenant, route, initialLimit));
+    }
+    pending.incrementAndGet();
+    return state.acquire().compose(v -> {
+      long start = System.nanoTime();
+      Future<T> result;
+      try {
+        result = call.get();
+      } catch (RuntimeException e) {
+        result = Future.failedFuture(e);
+      }
+      return result.andThen(ar -> {
+        // answered by an open circuit breaker before Okapi was called, it tells nothing about the module's latency
+        boolean measured = !(ar.failed() && ar.cause() instanceof CircuitBreakers.CircuitOpenException);
+        state.release(System.nanoTime() - start, ar.failed(), measured);
+      });
+    }).andThen(ar -> pending.decrementAndGet());
+  }
+
+  /**
+   * @return the calls in flight or waiting for a permit, over all tenants and routes
+   */
+  public int getPending() {
+    return pending.get();
+  }
+
+  /**
+   * @return per tenant and route the limit, the calls in flight and waiting, and the counters of waits and rejections
+   */
+  public JsonObject getStatistics() {
+    JsonObject tenants = new JsonObject();
+    synchronized (states) {
+      states.values().forEach(state -> {
+        JsonObject routes = tenants.getJsonObject(state.tenant);
+        if (routes == null) {
+          routes = new JsonObject();
+          tenants.put(state.tenant, routes);
+        }
+        routes.put(state.route, state.toJson());
+      });
+    }
+    return new JsonObject()
+      .put("initialLimit", initialLimit)
+      .put("maxLimit", maxLimit)
+      .put("maxQueued", maxQueued)
+      .put("maxWaitMs", maxWaitMs)
+      .put("pending", pending.get())
+      .put("tenants", tenants);
+  }
+
+  private final class State {
+
+    private final String tenant;
+    private final String route;
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private long baselineNanos;
+    private long calls;
+    private long queued;
+    private long waitNanos;
+    private long rejected;
+    private long timedOut;
+
+    private State(String tenant, String route, int limit) {
+      this.tenant = tenant;
+      this.route = route;
+      this.limit = limit;
+    }
+
+    private synchronized Future<Void> acquire() {
+      calls++;
+      if (inFlight < (int) limit) {
+        inFlight++;
+        return Future.succeededFuture();
+      }
+      if (waiters.size() >= maxQueued) {
+        rejected++;
+        return Future.failedFuture(new LimitExceededException(tenant, route));
+      }
+      queued++;
+      Waiter waiter = new Waiter(Vertx.currentContext(), Promise.promise(), System.nanoTime());
+      waiters.add(waiter);
+      if (waiter.context != null) {
+        waiter.timerId = waiter.context.owner().setTimer(maxWaitMs, id -> timeout(waiter));
+      }
+      return waiter.promise.future();
+    }
+
+    private void timeout(Waiter waiter) {
+      synchronized (this) {
+        if (!waiters.remove(waiter)) {
+          return;
+        }
+        timedOut++;
+        waitNanos += System.nanoTime() - waiter.since;
+      }
+      waiter.promise.fail(new LimitExceededException(tenant, route));
+    }
+
+    private void release(long latencyNanos, boolean failed, boolean measured) {
+      Waiter next;
+      synchronized (this) {
+        if (measured) {
+          adjust(latencyNanos, failed);
+        }
+        inFlight--;
+        if (inFlight >= (int) limit || (next = waiters.poll()) == null) {
+          return;
+        }
+        inFlight++;
+        waitNanos += System.nanoTime() - next.since;
+      }
+      if (next.context == null) {
+        next.promise.complete();
+      } else {
+        next.context.owner().cancelTimer(next.timerId);
+        next.context.runOnContext(v -> next.promise.complete());
+      }
+    }
+
+    private void adjust(long latencyNanos, boolean failed) {
+      if (failed) {
+        limit = Math.max(MIN_LIMIT, limit * BACKOFF);
+        return;
+      }
+      if (baselineNanos == 0 || latencyNanos < baselineNanos) {
+        baselineNanos = latencyNanos;
+      } else {
+        baselineNanos += (long) ((latencyNanos - baselineNanos) * BASELINE_DRIFT);
+      }
+      if (latencyNanos > baselineNanos * LATENCY_TOLERANCE && latencyNanos - baselineNanos > LATENCY_SLACK_NANOS) {
+        limit = Math.max(MIN_LIMIT, limit * BACKOFF);
+      } else if (inFlight * 2 >= limit) {
+        // only a limit that is in use is raised, otherwise it would grow without ever being tested
+        limit = Math.min(maxLimit, limit + 1 / limit);
+      }
+    }
+
+    private synchronized JsonObject toJson() {
+      long waited = queued - waiters.size();
+      return new JsonObject()
+        .put("limit", (int) limit)
+        .put("inFlight", inFlight)
+        .put("queueDepth", waiters.size())
+        .put("calls", calls)
+        .put("queued", queued)
+        .put("rejected", rejected)
+        .put("timedOut", timedOut)
+        .put("averageWaitMs", waited == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(waitNanos / waited))
+        .put("baselineLatencyMs", TimeUnit.NANOSECONDS.toMillis(baselineNanos));
+    }
+  }
+
+  private static final class Waiter {
+
+    private final Context context;
+    private final Promise<Void> promise;
+    private final long since;
+    private long timerId;
+
+    private Waiter(Context context, Promise<Void> promise, long since) {
+      this.context = context;
+      this.promise = promise;
+      this.since = since;
+    }
+  }
+
+  /**
+   * No permit of the tenant and route was free in time, the request is shed without calling Okapi.
+   */
+  public static final class LimitExceededException extends RuntimeException {
+
+    private LimitExceededException(String tenant, String route) {
+      super("Too many requests of tenant " + tenant + " to " + route + " in flight", null, false, false);
+    }
+  }
+}
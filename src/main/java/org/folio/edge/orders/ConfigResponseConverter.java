@@ -1,7 +1,16 @@
 package org.folio.edge.orders;
 
-import io.vertx.core.json.JsonArray;
-import io.vertx.core.json.JsonObject;
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import io.vertx.core.buffer.Buffer;
 
 /**
  * Converts responses from various FOLIO APIs into a unified config format.
@@ -12,38 +21,143 @@ import io.vertx.core.json.JsonObject;
  *   ],
  *   "totalRecords": N
  * }</pre>
+ * The conversion streams tokens from the upstream body to the output buffer, at most one address is held at a time.
+ * It is the built-in response transform {@value ResponseTransformer#TENANT_ADDRESSES_TO_CONFIGS}.
  */
-public class ConfigResponseConverter {
+public class ConfigResponseConverter implements ResponseTransformer {
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
 
   /**
    * Converts a tenant-addresses response into the unified config format.
    *
    * @param response the raw response from /tenant-addresses
    * @return the response in config format
+   * @throws IOException if the response is not valid JSON or an address does not have the expected types
    */
-  public JsonObject fromTenantAddresses(JsonObject response) {
-    JsonArray addresses = response.getJsonArray("addresses", new JsonArray());
-    JsonArray configs = new JsonArray();
+  public Buffer fromTenantAddresses(Buffer response) throws IOException {
+    Buffer converted = Buffer.buffer(response.length());
+    StringBuilder value = new StringBuilder();
+    try (JsonParser parser = JSON_FACTORY.createParser(new BufferInputStream(response));
+         JsonGenerator generator = JSON_FACTORY.createGenerator(new BufferOutputStream(converted))) {
+      expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+      generator.writeStartObject();
+      generator.writeArrayFieldStart("configs");
+      int totalRecords = 0;
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.currentName();
+        JsonToken token = parser.nextToken();
+        if ("addresses".equals(field) && token == JsonToken.START_ARRAY) {
+          while (parser.nextToken() != JsonToken.END_ARRAY) {
+            expect(parser, parser.currentToken(), JsonToken.START_OBJECT);
+            writeConfig(parser, generator, value);
+            totalRecords++;
+          }
+        } else {
+          parser.skipChildren();
+        }
+      }
+      generator.writeEndArray();
+      generator.writeNumberField("totalRecords", totalRecords);
+      generator.writeEndObject();
+    }
+    return converted;
+  }
 
-    for (int i = 0; i < addresses.size(); i++) {
-      JsonObject address = addresses.getJsonObject(i);
+  @Override
+  public Buffer transform(Buffer body) throws IOException {
+    return fromTenantAddresses(body);
+  }
 
-      JsonObject valueObj = new JsonObject()
-        .put("name", address.getString("name", ""))
-        .put("address", address.getString("address", ""));
+  /**
+   * Reads one address and writes its config. The metadata is copied straight to the output if id, name and
+   * address came before it, as FOLIO sends them, and held in a {@link TokenBuffer} until the end otherwise.
+   */
+  private static void writeConfig(JsonParser parser, JsonGenerator generator, StringBuilder value) throws IOException {
+    String id = null;
+    String name = "";
+    String address = "";
+    int seen = 0;
+    boolean started = false;
+    TokenBuffer metadata = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      parser.nextToken();
+      switch (field) {
+        case "id" -> {
+          id = stringOrNull(parser);
+          seen |= 1;
+        }
+        case "name" -> {
+          name = stringOrNull(parser);
+          seen |= 2;
+        }
+        case "address" -> {
+          address = stringOrNull(parser);
+          seen |= 4;
+        }
+        case "metadata" -> {
+          if (parser.currentToken() != JsonToken.VALUE_NULL) {
+            expect(parser, parser.currentToken(), JsonToken.START_OBJECT);
+          }
+          if (seen == 7 && !started) {
+            writeStart(generator, id, name, address, value);
+            started = true;
+            generator.writeFieldName("metadata");
+            generator.copyCurrentStructure(parser);
+          } else {
+            metadata = new TokenBuffer(parser);
+            metadata.copyCurrentStructure(parser);
+          }
+        }
+        default -> parser.skipChildren();
+      }
+    }
+    if (!started) {
+      writeStart(generator, id, name, address, value);
+      if (metadata != null) {
+        generator.writeFieldName("metadata");
+        metadata.serialize(generator);
+      }
+    }
+    generator.writeEndObject();
+  }
 
-      JsonObject config = new JsonObject()
-        .put("id", address.getString("id"))
-        .put("value", valueObj.encode());
+  private static void writeStart(JsonGenerator generator, String id, String name, String address, StringBuilder value)
+    throws IOException {
+    generator.writeStartObject();
+    generator.writeStringField("id", id);
+    value.setLength(0);
+    value.append("{\"name\":");
+    appendJsonString(value, name);
+    value.append(",\"address\":");
+    appendJsonString(value, address);
+    value.append('}');
+    generator.writeFieldName("value");
+    generator.writeString(value.toString());
+  }
 
-      if (address.containsKey("metadata")) {
-        config.put("metadata", address.getJsonObject("metadata"));
-      }
-      configs.add(config);
+  private static void appendJsonString(StringBuilder sb, String value) {
+    if (value == null) {
+      sb.append("null");
+      return;
     }
+    sb.append('"');
+    JsonStringEncoder.getInstance().quoteAsString(value, sb);
+    sb.append('"');
+  }
 
-    return new JsonObject()
-      .put("configs", configs)
-      .put("totalRecords", configs.size());
+  private static String stringOrNull(JsonParser parser) throws IOException {
+    if (parser.currentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expect(parser, parser.currentToken(), JsonToken.VALUE_STRING);
+    return parser.getText();
+  }
+
+  private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws JsonParseException {
+    if (actual != expected) {
+      throw new JsonParseException(parser, "Expected " + expected + " but found " + actual);
+    }
   }
-}
\ No newline at end of file
+}
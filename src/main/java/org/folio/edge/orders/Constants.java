@@ -7,12 +7,65 @@ public class Constants {
 
   public static final String API_CONFIGURATION_PROPERTY_NAME = "api_config";
   public static final String API_CONFIGURATION_DEFAULT = "api_configuration.json";
+  public static final String API_CONFIGURATION_RELOAD_INTERVAL_PROPERTY_NAME = "api_config_reload_interval_ms";
+  public static final String WARMUP_API_KEY_PROPERTY_NAME = "warmup_api_key";
+  public static final String READINESS_REQUIRE_TENANT_LOGIN_PROPERTY_NAME = "readiness_require_tenant_login";
+  public static final String ADMIN_TOKEN_PROPERTY_NAME = "admin_token";
+  public static final String MODULE_ID_CACHE_TTL_PROPERTY_NAME = "module_id_cache_ttl_ms";
+  public static final long MODULE_ID_CACHE_TTL_DEFAULT_MS = 300_000;
+  public static final String CREDENTIAL_CACHE_TTL_PROPERTY_NAME = "credential_cache_ttl_ms";
+  public static final long CREDENTIAL_CACHE_TTL_DEFAULT_MS = 300_000;
+  public static final String CREDENTIAL_CACHE_NEGATIVE_TTL_PROPERTY_NAME = "credential_cache_negative_ttl_ms";
+  public static final long CREDENTIAL_CACHE_NEGATIVE_TTL_DEFAULT_MS = 30_000;
+  public static final String CREDENTIAL_CACHE_MAX_SIZE_PROPERTY_NAME = "credential_cache_max_size";
+  public static final int CREDENTIAL_CACHE_MAX_SIZE_DEFAULT = 1000;
+  // same property and default as the token cache of edge-common, which the orders handler no longer uses
+  public static final String TOKEN_CACHE_TTL_PROPERTY_NAME = "token_cache_ttl_ms";
+  public static final long TOKEN_CACHE_TTL_DEFAULT_MS = 3_600_000;
   public static final String HTTP_METHOD_POST = "POST";
   public static final String HTTP_METHOD_GET = "GET";
   public static final String HTTP_METHOD_PUT = "PUT";
   public static final String CUSTOM_FIELDS_INTERFACE_NAME = "custom-fields";
   public static final String CUSTOM_FIELDS_MODULE_NAME = "mod-orders-storage";
   public static final String BILLING_AND_SHIPPING_PATH = "/orders/addresses/billing-and-shipping";
+  public static final String FIELDS_PARAM = "fields";
+  public static final String AGGREGATE_PARAM = "aggregate";
+  public static final String AGGREGATE_CONCURRENCY_PROPERTY_NAME = "aggregate_concurrency_per_tenant";
+  public static final int AGGREGATE_CONCURRENCY_DEFAULT = 4;
+  public static final String APPLICATION_NDJSON = "application/x-ndjson";
+  public static final String CONCURRENCY_LIMIT_INITIAL_PROPERTY_NAME = "concurrency_limit_initial";
+  public static final int CONCURRENCY_LIMIT_INITIAL_DEFAULT = 20;
+  public static final String CONCURRENCY_LIMIT_MAX_PROPERTY_NAME = "concurrency_limit_max";
+  public static final int CONCURRENCY_LIMIT_MAX_DEFAULT = 200;
+  public static final String CONCURRENCY_LIMIT_QUEUE_SIZE_PROPERTY_NAME = "concurrency_limit_queue_size";
+  public static final int CONCURRENCY_LIMIT_QUEUE_SIZE_DEFAULT = 50;
+  public static final String CONCURRENCY_LIMIT_QUEUE_TIMEOUT_PROPERTY_NAME = "concurrency_limit_queue_timeout_ms";
+  public static final long CONCURRENCY_LIMIT_QUEUE_TIMEOUT_DEFAULT_MS = 1000;
+  public static final String CIRCUIT_BREAKER_FAILURE_RATE_PROPERTY_NAME = "circuit_breaker_failure_rate_threshold";
+  public static final int CIRCUIT_BREAKER_FAILURE_RATE_DEFAULT = 50;
+  public static final String CIRCUIT_BREAKER_SLOW_CALL_RATE_PROPERTY_NAME = "circuit_breaker_slow_call_rate_threshold";
+  public static final int CIRCUIT_BREAKER_SLOW_CALL_RATE_DEFAULT = 80;
+  public static final String CIRCUIT_BREAKER_SLOW_CALL_PROPERTY_NAME = "circuit_breaker_slow_call_threshold_ms";
+  public static final long CIRCUIT_BREAKER_SLOW_CALL_DEFAULT_MS = 10_000;
+  public static final String CIRCUIT_BREAKER_WINDOW_SIZE_PROPERTY_NAME = "circuit_breaker_window_size";
+  public static final int CIRCUIT_BREAKER_WINDOW_SIZE_DEFAULT = 20;
+  public static final String CIRCUIT_BREAKER_OPEN_DURATION_PROPERTY_NAME = "circuit_breaker_open_duration_ms";
+  public static final long CIRCUIT_BREAKER_OPEN_DURATION_DEFAULT_MS = 30_000;
+  public static final String CIRCUIT_BREAKER_HALF_OPEN_CALLS_PROPERTY_NAME = "circuit_breaker_half_open_calls";
+  public static final int CIRCUIT_BREAKER_HALF_OPEN_CALLS_DEFAULT = 3;
+  public static final String RETRY_BUDGET_RATIO_PROPERTY_NAME = "retry_budget_ratio_percent";
+  public static final int RETRY_BUDGET_RATIO_DEFAULT = 10;
+  public static final String RETRY_BUDGET_MAX_TOKENS_PROPERTY_NAME = "retry_budget_max_tokens";
+  public static final int RETRY_BUDGET_MAX_TOKENS_DEFAULT = 100;
+  public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+  public static final String RATE_LIMIT_PER_SECOND_PROPERTY_NAME = "rate_limit_per_second";
+  public static final double RATE_LIMIT_PER_SECOND_DEFAULT = 0;
+  public static final String RATE_LIMIT_BURST_PROPERTY_NAME = "rate_limit_burst";
+  public static final int RATE_LIMIT_BURST_DEFAULT = 20;
+  public static final String ADMISSION_MAX_EVENT_LOOP_LAG_PROPERTY_NAME = "admission_max_event_loop_lag_ms";
+  public static final long ADMISSION_MAX_EVENT_LOOP_LAG_DEFAULT_MS = 200;
+  public static final String ADMISSION_MAX_PENDING_PROPERTY_NAME = "admission_max_pending_requests";
+  public static final int ADMISSION_MAX_PENDING_DEFAULT = 1000;
 
   public enum ErrorCodes {
     // Subject to change pending additional information from the GOBI folks
@@ -22,7 +75,9 @@ public class Constants {
     FORBIDDEN(403),
     NOT_FOUND(404),
     REQUEST_TIMEOUT(408),
-    INTERNAL_SERVER_ERROR(500);
+    TOO_MANY_REQUESTS(429),
+    INTERNAL_SERVER_ERROR(500),
+    SERVICE_UNAVAILABLE(503);
 
     private final Integer value;
     private static final Map<Integer, ErrorCodes> CONSTANTS = new HashMap<>();
@@ -0,0 +1,155 @@
+package org.folio.edge.orders;
+
+import java.util.concurrent.CompletionException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.folio.edge.core.security.SecureStore;
+import org.folio.edge.core.security.SecureStore.NotFoundException;
+import org.folio.edge.core.utils.ApiKeyUtils;
+import org.folio.edge.core.utils.ApiKeyUtils.ClientInfo;
+import org.folio.edge.core.utils.ApiKeyUtils.MalformedApiKeyException;
+import org.folio.edge.core.utils.OkapiClientFactory;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Caches the steps from an API key to an Okapi token: the decoded key, the password from the secure store and
+ * the token of the login.
+ * <p>
+ * Malformed keys and users the secure store does not know are remembered for the negative time to live, so
+ * clients retrying with a bad key are rejected without decoding it or asking the secure store again. Secure
+ * store lookups run on a worker thread because the Vault and AWS SSM stores block on a remote call. Tokens are
+ * kept and refreshed by a {@link TokenManager}.
+ */
+public class CredentialCache {
+
+  private static final Logger logger = LogManager.getLogger(CredentialCache.class);
+
+  private final SecureStore secureStore;
+  private final ExpiringCache<String, ClientInfo> apiKeys;
+  private final ExpiringCache<String, String> invalidApiKeys;
+  private final ExpiringCache<String, String> passwords;
+  private final ExpiringCache<String, String> unknownUsers;
+  private final TokenManager tokens;
+
+  /**
+   * @param ttlMs how long decoded keys and passwords are kept
+   * @param negativeTtlMs how long malformed keys and unknown users are rejected without another lookup
+   * @param tokenTtlMs how long the token of a login is reused at most
+   */
+  public CredentialCache(SecureStore secureStore, int maxSize, long ttlMs, long negativeTtlMs, long tokenTtlMs) {
+    this(secureStore, maxSize, ttlMs, negativeTtlMs, new TokenManager(maxSize, tokenTtlMs));
+  }
+
+  CredentialCache(SecureStore secureStore, int maxSize, long ttlMs, long negativeTtlMs, TokenManager tokens) {
+    this.secureStore = secureStore;
+    this.apiKeys = new ExpiringCache<>(maxSize, ttlMs);
+    this.invalidApiKeys = new ExpiringCache<>(maxSize, negativeTtlMs);
+    this.passwords = new ExpiringCache<>(maxSize, ttlMs);
+    this.unknownUsers = new ExpiringCache<>(maxSize, negativeTtlMs);
+    this.tokens = tokens;
+  }
+
+  public ClientInfo decode(String apiKey) throws MalformedApiKeyException {
+    ClientInfo clientInfo = apiKeys.get(apiKey);
+    if (clientInfo != null) {
+      return clientInfo;
+    }
+    String reason = invalidApiKeys.get(apiKey);
+    if (reason != null) {
+      throw new MalformedApiKeyException(reason);
+    }
+    try {
+      clientInfo = ApiKeyUtils.parseApiKey(apiKey);
+    } catch (MalformedApiKeyException e) {
+      invalidApiKeys.put(apiKey, String.valueOf(e.getMessage()));
+      throw e;
+    }
+    apiKeys.put(apiKey, clientInfo);
+    return clientInfo;
+  }
+
+  /**
+   * Returns the token of the user or logs in with the password from the secure store.
+   *
+   * @param ocf makes a new client of the user's tenant for every login, the first one and the background refreshes,
+   *            so that no refresh holds on to the client of the request that logged in first
+   * @return the token, failed with {@link NotFoundException} if the secure store has no password for the user
+   */
+  public Future<String> getToken(Vertx vertx, OkapiClientFactory ocf, ClientInfo clientInfo) {
+    String key = key(clientInfo);
+    return tokens.getToken(vertx, key, clientInfo.tenantId, () -> login(vertx, ocf, clientInfo, key));
+  }
+
+  private Future<String> login(Vertx vertx, OkapiClientFactory ocf, ClientInfo clientInfo, String key) {
+    return getPassword(vertx, clientInfo, key)
+      .compose(password -> Future.fromCompletionStage(
+        ocf.getOkapiClient(clientInfo.tenantId).login(clientInfo.username, password), vertx.getOrCreateContext()))
+      .recover(t -> Future.failedFuture(t instanceof CompletionException && t.getCause() != null ? t.getCause() : t))
+      .compose(token -> token == null
+        ? Future.failedFuture("Login of " + clientInfo.username + " to tenant " + clientInfo.tenantId + " returned no token")
+        : Future.succeededFuture(token));
+  }
+
+  private Future<String> getPassword(Vertx vertx, ClientInfo clientInfo, String key) {
+    String password = passwords.get(key);
+    if (password != null) {
+      return Future.succeededFuture(password);
+    }
+    String reason = unknownUsers.get(key);
+    if (reason != null) {
+      return Future.failedFuture(new NotFoundException(reason));
+    }
+    return vertx.executeBlocking(() -> secureStore.get(clientInfo.salt, clientInfo.tenantId, clientInfo.username), false)
+      .onSuccess(found -> passwords.put(key, found))
+      .onFailure(t -> {
+        if (t instanceof NotFoundException) {
+          unknownUsers.put(key, String.valueOf(t.getMessage()));
+        }
+      });
+  }
+
+  /**
+   * Drops the cached keys, passwords and tokens of a tenant, or of all tenants if it is {@code null}.
+   *
+   * @return the number of entries removed
+   */
+  public int invalidate(String tenant) {
+    if (tenant == null) {
+      int removed = apiKeys.size() + invalidApiKeys.size() + passwords.size() + unknownUsers.size()
+        + tokens.invalidateIf(key -> true);
+      apiKeys.clear();
+      invalidApiKeys.clear();
+      passwords.clear();
+      unknownUsers.clear();
+      logger.info("invalidate:: Dropped {} cached credentials", removed);
+      return removed;
+    }
+    String prefix = tenant + '\n';
+    int removed = apiKeys.invalidateIf((apiKey, clientInfo) -> tenant.equals(clientInfo.tenantId))
+      + passwords.invalidateIf((key, password) -> key.startsWith(prefix))
+      + unknownUsers.invalidateIf((key, reason) -> key.startsWith(prefix))
+      + tokens.invalidateIf(key -> key.startsWith(prefix));
+    logger.info("invalidate:: Dropped {} cached credentials of tenant {}", removed, tenant);
+    return removed;
+  }
+
+  /**
+   * @return counters of every cache, and token ages, refreshes and login failures per tenant
+   */
+  public JsonObject getStatistics() {
+    return new JsonObject()
+      .put("apiKeys", apiKeys.getStatistics())
+      .put("invalidApiKeys", invalidApiKeys.getStatistics())
+      .put("passwords", passwords.getStatistics())
+      .put("unknownUsers", unknownUsers.getStatistics())
+      .put("tokens", tokens.getStatistics());
+  }
+
+  private static String key(ClientInfo clientInfo) {
+    return clientInfo.tenantId + '\n' + clientInfo.username + '\n' + clientInfo.salt;
+  }
+}
@@ -0,0 +1,171 @@
+package org.folio.edge.orders;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import io.vertx.core.buffer.Buffer;
+import org.folio.rest.mappings.model.ResponseTransform;
+
+/**
+ * A {@link ResponseTransform} compiled into a single pass over the tokens of the response.
+ * <p>
+ * With {@code items} the elements of that top-level array are transformed, the array is renamed to
+ * {@code itemsAs}, the top-level fields in {@code keep} are copied in their original order and the number of
+ * elements is written to {@code count} after them. Without {@code items} the response itself is transformed, or
+ * every element if it is an array. Transforming an object keeps the {@code fields} listed, all if none are, and
+ * renames them by {@code rename}. Values are copied as they are, nested objects included. The result is wrapped in
+ * an object under {@code wrap} if it is set.
+ */
+final class DeclarativeResponseTransformer implements ResponseTransformer {
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private final String items;
+  private final String itemsAs;
+  private final Set<String> keep;
+  private final Set<String> fields;
+  private final Map<String, String> rename;
+  private final String count;
+  private final String wrap;
+
+  private DeclarativeResponseTransformer(ResponseTransform transform) {
+    this.items = transform.getItems();
+    this.itemsAs = transform.getItemsAs() == null ? items : transform.getItemsAs();
+    this.keep = copyOf(transform.getKeep());
+    this.fields = isEmpty(transform.getFields()) ? null : copyOf(transform.getFields());
+    this.rename = transform.getRename() == null ? Map.of() : Map.copyOf(transform.getRename());
+    this.count = transform.getCount();
+    this.wrap = transform.getWrap();
+  }
+
+  /**
+   * @throws IllegalArgumentException if the transform declares nothing or uses properties of {@code items} without it
+   */
+  static DeclarativeResponseTransformer compile(ResponseTransform transform) {
+    if (!isDeclared(transform)) {
+      throw new IllegalArgumentException("Response transform declares nothing");
+    }
+    if (transform.getItems() == null
+      && (transform.getItemsAs() != null || !isEmpty(transform.getKeep()) || transform.getCount() != null)) {
+      throw new IllegalArgumentException("Response transform sets itemsAs, keep or count without items");
+    }
+    return new DeclarativeResponseTransformer(transform);
+  }
+
+  /**
+   * @return {@code true} if the transform sets any property besides {@code builtIn}
+   */
+  static boolean isDeclared(ResponseTransform transform) {
+    return transform.getItems() != null || transform.getItemsAs() != null || !isEmpty(transform.getKeep())
+      || !isEmpty(transform.getFields()) || (transform.getRename() != null && !transform.getRename().isEmpty())
+      || transform.getCount() != null || transform.getWrap() != null;
+  }
+
+  @Override
+  public Buffer transform(Buffer body) throws IOException {
+    Buffer transformed = Buffer.buffer(body.length());
+    try (JsonParser parser = JSON_FACTORY.createParser(new BufferInputStream(body));
+         JsonGenerator generator = JSON_FACTORY.createGenerator(new BufferOutputStream(transformed))) {
+      JsonToken first = parser.nextToken();
+      if (first == null) {
+        throw new JsonParseException(parser, "Empty response");
+      }
+      if (wrap != null) {
+        generator.writeStartObject();
+        generator.writeFieldName(wrap);
+      }
+      if (items == null) {
+        transformValue(parser, generator);
+      } else {
+        transformItems(parser, generator);
+      }
+      if (wrap != null) {
+        generator.writeEndObject();
+      }
+      if (parser.nextToken() != null) {
+        throw new JsonParseException(parser, "Unexpected content after the response");
+      }
+    }
+    return transformed;
+  }
+
+  private void transformItems(JsonParser parser, JsonGenerator generator) throws IOException {
+    if (parser.currentToken() != JsonToken.START_OBJECT) {
+      throw new JsonParseException(parser, "Expected an object with " + items + " but found " + parser.currentToken());
+    }
+    generator.writeStartObject();
+    int elements = 0;
+    boolean found = false;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      JsonToken token = parser.nextToken();
+      if (!found && items.equals(field) && token == JsonToken.START_ARRAY) {
+        found = true;
+        generator.writeArrayFieldStart(itemsAs);
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+          transformValue(parser, generator);
+          elements++;
+        }
+        generator.writeEndArray();
+      } else if (keep.contains(field)) {
+        generator.writeFieldName(field);
+        generator.copyCurrentStructure(parser);
+      } else {
+        parser.skipChildren();
+      }
+    }
+    if (!found) {
+      generator.writeArrayFieldStart(itemsAs);
+      generator.writeEndArray();
+    }
+    if (count != null) {
+      generator.writeNumberField(count, elements);
+    }
+    generator.writeEndObject();
+  }
+
+  /**
+   * Transforms the object at the current token, or every element of an array. Other values are copied.
+   */
+  private void transformValue(JsonParser parser, JsonGenerator generator) throws IOException {
+    JsonToken token = parser.currentToken();
+    if (token == JsonToken.START_ARRAY) {
+      generator.writeStartArray();
+      while (parser.nextToken() != JsonToken.END_ARRAY) {
+        transformValue(parser, generator);
+      }
+      generator.writeEndArray();
+    } else if (token == JsonToken.START_OBJECT) {
+      generator.writeStartObject();
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.currentName();
+        parser.nextToken();
+        if (fields == null || fields.contains(field)) {
+          generator.writeFieldName(rename.getOrDefault(field, field));
+          generator.copyCurrentStructure(parser);
+        } else {
+          parser.skipChildren();
+        }
+      }
+      generator.writeEndObject();
+    } else {
+      generator.copyCurrentStructure(parser);
+    }
+  }
+
+  private static boolean isEmpty(List<String> list) {
+    return list == null || list.isEmpty();
+  }
+
+  private static Set<String> copyOf(List<String> list) {
+    return list == null ? Set.of() : Set.copyOf(list);
+  }
+}
@@ -0,0 +1,99 @@
+package org.folio.edge.orders;
+
+import static org.folio.edge.core.Constants.APPLICATION_JSON;
+import static org.folio.edge.core.Constants.APPLICATION_XML;
+import static org.folio.edge.core.Constants.MSG_ACCESS_DENIED;
+import static org.folio.edge.core.Constants.MSG_REQUEST_TIMEOUT;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+
+import org.folio.edge.orders.Constants.ErrorCodes;
+import org.folio.edge.orders.model.ErrorWrapper;
+import org.folio.edge.orders.model.ResponseWrapper;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+
+/**
+ * An error response whose message never changes, serialized once per content type when the class is loaded.
+ * <p>
+ * The buffers are shared by all requests, writing them to a response does not consume them.
+ */
+public final class ErrorResponse {
+
+  static final CharSequence APPLICATION_JSON_TYPE = HttpHeaders.createOptimized(APPLICATION_JSON);
+  static final CharSequence APPLICATION_XML_TYPE = HttpHeaders.createOptimized(APPLICATION_XML);
+
+  public static final ErrorResponse ACCESS_DENIED = new ErrorResponse(401, ErrorCodes.ACCESS_DENIED, MSG_ACCESS_DENIED);
+  public static final ErrorResponse REQUEST_TIMEOUT = new ErrorResponse(408, ErrorCodes.REQUEST_TIMEOUT, MSG_REQUEST_TIMEOUT);
+  /**
+   * Sent when an API key exceeds its rate limit, together with a {@code Retry-After} header.
+   */
+  public static final ErrorResponse RATE_LIMITED = new ErrorResponse(429, ErrorCodes.TOO_MANY_REQUESTS,
+    "Rate limit exceeded, please retry later");
+  /**
+   * Sent when a request is shed because too many requests of its tenant and route are in flight to Okapi.
+   */
+  public static final ErrorResponse CONCURRENCY_LIMIT_EXCEEDED = new ErrorResponse(503, ErrorCodes.SERVICE_UNAVAILABLE,
+    "Too many requests in flight, please retry later");
+  /**
+   * Sent when a request is rejected on arrival because the instance is overloaded.
+   */
+  public static final ErrorResponse OVERLOADED = new ErrorResponse(503, ErrorCodes.SERVICE_UNAVAILABLE,
+    "The service is overloaded, please retry later");
+  /**
+   * Sent when the circuit breaker of the upstream path is open.
+   */
+  public static final ErrorResponse CIRCUIT_OPEN = new ErrorResponse(503, ErrorCodes.SERVICE_UNAVAILABLE,
+    "The upstream service is unavailable, please retry later");
+  /**
+   * Sent when serializing an error response with a dynamic message fails, so that failure can not fail again.
+   */
+  public static final ErrorResponse SERIALIZATION_FAILED = new ErrorResponse(500, ErrorCodes.INTERNAL_SERVER_ERROR,
+    "Failed to serialize the error response");
+
+  // Retry-After values of up to a minute, the ones a rate limit normally asks for
+  private static final CharSequence[] RETRY_AFTER_SECONDS = new CharSequence[61];
+
+  static {
+    for (int i = 1; i < RETRY_AFTER_SECONDS.length; i++) {
+      RETRY_AFTER_SECONDS[i] = HttpHeaders.createOptimized(Integer.toString(i));
+    }
+  }
+
+  private final int status;
+  private final Buffer json;
+  private final Buffer xml;
+
+  private ErrorResponse(int status, ErrorCodes code, String message) {
+    this.status = status;
+    ResponseWrapper response = new ResponseWrapper(new ErrorWrapper(code.name(), message));
+    try {
+      this.json = response.toJsonBuffer();
+      this.xml = response.toXmlBuffer();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * @return the {@code Retry-After} value for a wait, in whole seconds rounded up and at least one
+   */
+  static CharSequence retryAfter(long waitNanos) {
+    long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+    return seconds < RETRY_AFTER_SECONDS.length ? RETRY_AFTER_SECONDS[(int) seconds] : Long.toString(seconds);
+  }
+
+  public int getStatus() {
+    return status;
+  }
+
+  /**
+   * @param json {@code true} for the JSON body, {@code false} for the XML body
+   */
+  public Buffer getBody(boolean json) {
+    return json ? this.json : this.xml;
+  }
+}
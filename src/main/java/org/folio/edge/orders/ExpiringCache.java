@@ -0,0 +1,193 @@
+package org.folio.edge.orders;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Bounded in-memory cache with a fixed time to live and least recently used eviction.
+ * <p>
+ * With a stale window, an expired entry is still returned by {@link #lookup} for up to {@code maxStaleMs} so the
+ * caller can answer right away and refresh it in the background. The time to live of such entries is shortened by
+ * up to {@value #REFRESH_JITTER_PERCENT}% at random so that entries written together are not refreshed together.
+ * <p>
+ * Every cache belongs to one verticle instance, through its {@code ApiConfigurationManager} or its handler, and is
+ * mostly used from that instance's event loop. Access is synchronized anyway, so a callback that completes on another
+ * thread can not corrupt it; every operation is a hash lookup, which keeps the lock uncontended and short.
+ */
+public class ExpiringCache<K, V> {
+
+  static final int REFRESH_JITTER_PERCENT = 10;
+
+  private final int maxSize;
+  private final long ttlNanos;
+  private final long maxStaleNanos;
+  private final LongSupplier clock;
+  private final DoubleSupplier random;
+  private final LinkedHashMap<K, Entry<V>> entries;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder staleHits = new LongAdder();
+
+  public ExpiringCache(int maxSize, long ttlMs) {
+    this(maxSize, ttlMs, 0);
+  }
+
+  /**
+   * @param maxStaleMs how long after expiry an entry is still served while it is refreshed, 0 disables it
+   */
+  public ExpiringCache(int maxSize, long ttlMs, long maxStaleMs) {
+    this(maxSize, ttlMs, maxStaleMs, System::nanoTime, () -> ThreadLocalRandom.current().nextDouble());
+  }
+
+  ExpiringCache(int maxSize, long ttlMs, LongSupplier clock) {
+    this(maxSize, ttlMs, 0, clock, () -> 0);
+  }
+
+  ExpiringCache(int maxSize, long ttlMs, long maxStaleMs, LongSupplier clock, DoubleSupplier random) {
+    this.maxSize = maxSize;
+    this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+    this.maxStaleNanos = TimeUnit.MILLISECONDS.toNanos(maxStaleMs);
+    this.clock = clock;
+    this.random = random;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+        if (size() > ExpiringCache.this.maxSize) {
+          evictions.increment();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * @return the cached value or {@code null} if there is none or it expired
+   */
+  public synchronized V get(K key) {
+    Entry<V> entry = entries.get(key);
+    long now = clock.getAsLong();
+    if (entry == null || entry.expiresAt - now <= 0) {
+      if (entry != null && entry.staleUntil - now <= 0) {
+        entries.remove(key);
+      }
+      misses.increment();
+      return null;
+    }
+    hits.increment();
+    return entry.value;
+  }
+
+  /**
+   * Like {@link #get}, but also returns an expired entry within the stale window. Only the first caller that gets a
+   * stale entry is asked to refresh it, the others get it without the refresh flag until the entry is replaced by
+   * {@link #put} or {@link #refreshFailed} is called.
+   *
+   * @return the cached value or {@code null} if there is none or it is older than the stale window
+   */
+  public synchronized Lookup<V> lookup(K key) {
+    Entry<V> entry = entries.get(key);
+    long now = clock.getAsLong();
+    if (entry == null || entry.staleUntil - now <= 0) {
+      if (entry != null) {
+        entries.remove(key);
+      }
+      misses.increment();
+      return null;
+    }
+    if (entry.expiresAt - now > 0) {
+      hits.increment();
+      return new Lookup<>(entry.value, false, false);
+    }
+    staleHits.increment();
+    boolean refresh = !entry.refreshing;
+    entry.refreshing = true;
+    return new Lookup<>(entry.value, true, refresh);
+  }
+
+  /**
+   * Lets the next {@link #lookup} of a stale entry try to refresh it again.
+   */
+  public synchronized void refreshFailed(K key) {
+    Entry<V> entry = entries.get(key);
+    if (entry != null) {
+      entry.refreshing = false;
+    }
+  }
+
+  public synchronized void put(K key, V value) {
+    long now = clock.getAsLong();
+    long ttl = ttlNanos;
+    if (maxStaleNanos > 0) {
+      ttl -= (long) (ttlNanos * REFRESH_JITTER_PERCENT / 100 * random.getAsDouble());
+    }
+    entries.put(key, new Entry<>(value, now + ttl, now + ttlNanos + maxStaleNanos));
+  }
+
+  public synchronized void invalidate(K key) {
+    entries.remove(key);
+  }
+
+  /**
+   * @return the number of entries removed
+   */
+  public synchronized int invalidateIf(BiPredicate<K, V> predicate) {
+    int size = entries.size();
+    entries.entrySet().removeIf(e -> predicate.test(e.getKey(), e.getValue().value));
+    return size - entries.size();
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * @return size and hit/miss/eviction counters for the admin endpoint
+   */
+  public JsonObject getStatistics() {
+    return new JsonObject()
+      .put("size", size())
+      .put("maxSize", maxSize)
+      .put("ttlMs", TimeUnit.NANOSECONDS.toMillis(ttlNanos))
+      .put("maxStaleMs", TimeUnit.NANOSECONDS.toMillis(maxStaleNanos))
+      .put("hits", hits.sum())
+      .put("staleHits", staleHits.sum())
+      .put("misses", misses.sum())
+      .put("evictions", evictions.sum());
+  }
+
+  /**
+   * @param stale whether the value outlived its time to live
+   * @param refresh whether the caller should refresh the stale value
+   */
+  public record Lookup<V>(V value, boolean stale, boolean refresh) {
+  }
+
+  private static final class Entry<V> {
+
+    private final V value;
+    private final long expiresAt;
+    private final long staleUntil;
+    private boolean refreshing;
+
+    private Entry(V value, long expiresAt, long staleUntil) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+      this.staleUntil = staleUntil;
+    }
+  }
+}
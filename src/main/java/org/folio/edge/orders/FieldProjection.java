@@ -0,0 +1,132 @@
+package org.folio.edge.orders;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * The fields a client asked for with the {@code fields} parameter, e.g. {@code id,name,addresses.city}.
+ * <p>
+ * The projection applies to the records of a collection response, the elements of its top-level arrays, or to the
+ * elements of a response that is an array itself. Other top-level fields such as {@code totalRecords} are kept.
+ * A dotted path keeps a field of a nested object, or of every object in a nested array. The response is filtered in
+ * one pass over its tokens.
+ */
+public final class FieldProjection implements ResponseTransformer {
+
+  static final int MAX_FIELDS = 100;
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private final Node root;
+
+  private FieldProjection(Node root) {
+    this.root = root;
+  }
+
+  /**
+   * @param fields comma separated field names or dotted paths
+   * @throws IllegalArgumentException if no field is given, a path has an empty segment or there are too many fields
+   */
+  public static FieldProjection parse(String fields) {
+    Node root = new Node();
+    int count = 0;
+    for (String field : fields.split(",")) {
+      String path = field.trim();
+      if (path.isEmpty()) {
+        continue;
+      }
+      if (++count > MAX_FIELDS) {
+        throw new IllegalArgumentException("At most " + MAX_FIELDS + " fields can be requested");
+      }
+      Node node = root;
+      for (String segment : path.split("\\.", -1)) {
+        if (segment.isEmpty()) {
+          throw new IllegalArgumentException("Invalid field: " + path);
+        }
+        node = node.child(segment);
+      }
+      node.all = true;
+    }
+    if (count == 0) {
+      throw new IllegalArgumentException("No fields requested");
+    }
+    return new FieldProjection(root);
+  }
+
+  @Override
+  public Buffer transform(Buffer body) throws IOException {
+    Buffer projected = Buffer.buffer(Math.min(body.length(), 64 * 1024));
+    try (JsonParser parser = JSON_FACTORY.createParser(new BufferInputStream(body));
+         JsonGenerator generator = JSON_FACTORY.createGenerator(new BufferOutputStream(projected))) {
+      JsonToken token = parser.nextToken();
+      if (token == JsonToken.START_OBJECT) {
+        generator.writeStartObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          generator.writeFieldName(parser.currentName());
+          if (parser.nextToken() == JsonToken.START_ARRAY) {
+            project(parser, generator, root);
+          } else {
+            generator.copyCurrentStructure(parser);
+          }
+        }
+        generator.writeEndObject();
+      } else if (token == JsonToken.START_ARRAY) {
+        project(parser, generator, root);
+      } else if (token == null) {
+        throw new JsonParseException(parser, "Empty response");
+      } else {
+        generator.copyCurrentStructure(parser);
+      }
+    }
+    return projected;
+  }
+
+  private static void project(JsonParser parser, JsonGenerator generator, Node node) throws IOException {
+    JsonToken token = parser.currentToken();
+    if (node.all) {
+      generator.copyCurrentStructure(parser);
+    } else if (token == JsonToken.START_OBJECT) {
+      generator.writeStartObject();
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        Node child = node.children.get(parser.currentName());
+        if (child == null) {
+          parser.nextToken();
+          parser.skipChildren();
+        } else {
+          generator.writeFieldName(parser.currentName());
+          parser.nextToken();
+          project(parser, generator, child);
+        }
+      }
+      generator.writeEndObject();
+    } else if (token == JsonToken.START_ARRAY) {
+      generator.writeStartArray();
+      while (parser.nextToken() != JsonToken.END_ARRAY) {
+        project(parser, generator, node);
+      }
+      generator.writeEndArray();
+    } else {
+      // a nested path into a value that is not an object keeps the value
+      generator.copyCurrentStructure(parser);
+    }
+  }
+
+  private static final class Node {
+
+    private final Map<String, Node> children = new HashMap<>();
+    private boolean all;
+
+    private Node child(String name) {
+      return children.computeIfAbsent(name, k -> new Node());
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package org.folio.edge.orders;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A fixed number of permits per key, e.g. per tenant. Callers that find no permit wait in arrival order and are
+ * called back on their own Vert.x context when one is released.
+ */
+public class KeyedSemaphore {
+
+  private final int permits;
+  private final Map<String, State> states = new HashMap<>();
+
+  public KeyedSemaphore(int permits) {
+    if (permits < 1) {
+      throw new IllegalArgumentException("permits must be positive: " + permits);
+    }
+    this.permits = permits;
+  }
+
+  public int getPermits() {
+    return permits;
+  }
+
+  /**
+   * @return completes when the caller holds a permit of the key, which it must {@link #release} exactly once
+   */
+  public Future<Void> acquire(String key) {
+    synchronized (states) {
+      State state = states.computeIfAbsent(key, k -> new State());
+      if (state.inUse < permits) {
+        state.inUse++;
+        return Future.succeededFuture();
+      }
+      Waiter waiter = new Waiter(Vertx.currentContext(), Promise.promise());
+      state.waiters.add(waiter);
+      return waiter.promise.future();
+    }
+  }
+
+  public void release(String key) {
+    Waiter next;
+    synchronized (states) {
+      State state = states.get(key);
+      if (state == null) {
+        throw new IllegalStateException("No permit of " + key + " is held");
+      }
+      next = state.waiters.poll();
+      if (next == null) {
+        // the permit is free again, the state of an idle key is dropped
+        if (--state.inUse == 0) {
+          states.remove(key);
+        }
+        return;
+      }
+    }
+    // the permit passes to the next waiter without being counted as free
+    if (next.context == null) {
+      next.promise.complete();
+    } else {
+      next.context.runOnContext(v -> next.promise.complete());
+    }
+  }
+
+  /**
+   * @return per key the permits in use and the callers waiting for one
+   */
+  public JsonObject getStatistics() {
+    JsonObject statistics = new JsonObject();
+    synchronized (states) {
+      states.forEach((key, state) -> statistics.put(key, new JsonObject()
+        .put("inUse", state.inUse)
+        .put("waiting", state.waiters.size())));
+    }
+    return new JsonObject().put("permits", permits).put("keys", statistics);
+  }
+
+  private static final class State {
+
+    private int inUse;
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+  }
+
+  private record Waiter(Context context, Promise<Void> promise) {
+  }
+}
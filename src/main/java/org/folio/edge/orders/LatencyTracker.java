@@ -0,0 +1,54 @@
+package org.folio.edge.orders;
+
+import java.util.Arrays;
+
+/**
+ * A percentile of the recent latencies of a route. The last {@link #SAMPLES} latencies are kept in a ring and the
+ * percentile is computed again every {@link #RECOMPUTE_INTERVAL} samples, so reading it costs no sorting.
+ */
+public final class LatencyTracker {
+
+  static final int SAMPLES = 128;
+  static final int MIN_SAMPLES = 20;
+  static final int RECOMPUTE_INTERVAL = 16;
+
+  private final double percentile;
+  private final long[] samples = new long[SAMPLES];
+  private int count;
+  private int next;
+  private int sinceRecompute;
+  private long percentileNanos = -1;
+
+  /**
+   * @param percentile e.g. 95 for the latency 95% of the calls stay below
+   */
+  public LatencyTracker(double percentile) {
+    if (!(percentile > 0 && percentile < 100)) {
+      throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+    }
+    this.percentile = percentile;
+  }
+
+  public synchronized void record(long latencyNanos) {
+    samples[next] = latencyNanos;
+    next = (next + 1) % SAMPLES;
+    count = Math.min(count + 1, SAMPLES);
+    if (count >= MIN_SAMPLES && (++sinceRecompute >= RECOMPUTE_INTERVAL || percentileNanos < 0)) {
+      long[] sorted = Arrays.copyOf(samples, count);
+      Arrays.sort(sorted);
+      percentileNanos = sorted[Math.max(0, (int) Math.ceil(percentile / 100 * count) - 1)];
+      sinceRecompute = 0;
+    }
+  }
+
+  /**
+   * @return the percentile in nanoseconds, -1 until {@link #MIN_SAMPLES} latencies were recorded
+   */
+  public synchronized long getPercentileNanos() {
+    return percentileNanos;
+  }
+
+  public double getPercentile() {
+    return percentile;
+  }
+}
@@ -1,35 +1,84 @@
 package org.folio.edge.orders;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.Router;
-import io.vertx.ext.web.handler.BodyHandler;
+import io.vertx.ext.web.RoutingContext;
+import org.apache.commons.lang3.StringUtils;
 import org.folio.edge.core.EdgeVerticleHttp;
+import org.folio.edge.core.security.SecureStore.NotFoundException;
+import org.folio.edge.core.utils.ApiKeyUtils.ClientInfo;
+import org.folio.edge.core.utils.ApiKeyUtils.MalformedApiKeyException;
 import org.folio.edge.core.utils.OkapiClientFactory;
 import org.folio.edge.core.utils.OkapiClientFactoryInitializer;
-import org.folio.rest.mappings.model.ApiConfiguration;
-import org.folio.rest.mappings.model.Routing;
+import org.folio.edge.orders.RoutingTable.RouteSlice;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.net.URL;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashSet;
 import java.util.Set;
-import java.util.regex.Pattern;
 
-import static java.util.stream.Collectors.groupingBy;
-import static java.util.stream.Collectors.toSet;
-import static org.folio.edge.orders.Constants.API_CONFIGURATION_DEFAULT;
+import static org.folio.edge.core.Constants.APPLICATION_JSON;
+import static org.folio.edge.orders.Constants.ADMIN_TOKEN_PROPERTY_NAME;
+import static org.folio.edge.orders.Constants.ADMISSION_MAX_EVENT_LOOP_LAG_DEFAULT_MS;
+import static org.folio.edge.orders.Constants.ADMISSION_MAX_EVENT_LOOP_LAG_PROPERTY_NAME;
+import static org.folio.edge.orders.Constants.ADMISSION_MAX_PENDING_DEFAULT;
+import static org.folio.edge.orders.Constants.ADMISSION_MAX_PENDING_PROPERTY_NAME;
+import static org.folio.edge.orders.Constants.AGGREGATE_CONCURRENCY_DEFAULT;
+import static org.folio.edge.orders.Constants.AGGREGATE_CONCURRENCY_PROPERTY_NAME;
 import static org.folio.edge.orders.Constants.API_CONFIGURATION_PROPERTY_NAME;
+import static org.folio.edge.orders.Constants.API_CONFIGURATION_RELOAD_INTERVAL_PROPERTY_NAME;
+import static org.folio.edge.orders.Constants.CIRCUIT_BREAKER_FAILURE_RATE_DEFAULT;
+import static org.folio.edge.orders.Constants.CIRCUIT_BREAKER_FAILURE_RATE_PROPERTY_NAME;
+import static org.folio.edge.orders.Constants.CIRCUIT_BREAKER_HALF_OPEN_CALLS_DEFAULT;
+import static org.folio.edge.orders.Constants.CIRCUIT_BREAKER_HALF_OPEN_CALLS_PROPERTY_NAME;
+import static org.folio.edge.orders.Constants.CIRCUIT_BREAKER_OPEN_DURATION_DEFAULT_MS;
+import static org.folio.edge.orders.Constants.CIRCUIT_BREAKER_OPEN_DURATION_PROPERTY_NAME;
+import static org.folio.edge.orders.Constants.CIRCUIT_BREAKER_SLOW_CALL_DEFAULT_MS;
+import static org.folio.edge.orders.Constants.CIRCUIT_BREAKER_SLOW_CALL_PROPERTY_NAME;
+import static org.folio.edge.orders.Constants.CIRCUIT_BREAKER_SLOW_CALL_RATE_DEFAULT;
+import static org.folio.edge.orders.Constants.CIRCUIT_BREAKER_SLOW_CALL_RATE_PROPERTY_NAME;
+import static org.folio.edge.orders.Constants.CIRCUIT_BREAKER_WINDOW_SIZE_DEFAULT;
+import static org.folio.edge.orders.Constants.CIRCUIT_BREAKER_WINDOW_SIZE_PROPERTY_NAME;
+import static org.folio.edge.orders.Constants.CONCURRENCY_LIMIT_INITIAL_DEFAULT;
+import static org.folio.edge.orders.Constants.CONCURRENCY_LIMIT_INITIAL_PROPERTY_NAME;
+import static org.folio.edge.orders.Constants.CONCURRENCY_LIMIT_MAX_DEFAULT;
+import static org.folio.edge.orders.Constants.CONCURRENCY_LIMIT_MAX_PROPERTY_NAME;
+import static org.folio.edge.orders.Constants.CONCURRENCY_LIMIT_QUEUE_SIZE_DEFAULT;
+import static org.folio.edge.orders.Constants.CONCURRENCY_LIMIT_QUEUE_SIZE_PROPERTY_NAME;
+import static org.folio.edge.orders.Constants.CONCURRENCY_LIMIT_QUEUE_TIMEOUT_DEFAULT_MS;
+import static org.folio.edge.orders.Constants.CONCURRENCY_LIMIT_QUEUE_TIMEOUT_PROPERTY_NAME;
+import static org.folio.edge.orders.Constants.CREDENTIAL_CACHE_MAX_SIZE_DEFAULT;
+import static org.folio.edge.orders.Constants.CREDENTIAL_CACHE_MAX_SIZE_PROPERTY_NAME;
+import static org.folio.edge.orders.Constants.CREDENTIAL_CACHE_NEGATIVE_TTL_DEFAULT_MS;
+import static org.folio.edge.orders.Constants.CREDENTIAL_CACHE_NEGATIVE_TTL_PROPERTY_NAME;
+import static org.folio.edge.orders.Constants.CREDENTIAL_CACHE_TTL_DEFAULT_MS;
+import static org.folio.edge.orders.Constants.CREDENTIAL_CACHE_TTL_PROPERTY_NAME;
+import static org.folio.edge.orders.Constants.MODULE_ID_CACHE_TTL_DEFAULT_MS;
+import static org.folio.edge.orders.Constants.MODULE_ID_CACHE_TTL_PROPERTY_NAME;
+import static org.folio.edge.orders.Constants.RATE_LIMIT_BURST_DEFAULT;
+import static org.folio.edge.orders.Constants.RATE_LIMIT_BURST_PROPERTY_NAME;
+import static org.folio.edge.orders.Constants.RATE_LIMIT_PER_SECOND_DEFAULT;
+import static org.folio.edge.orders.Constants.RATE_LIMIT_PER_SECOND_PROPERTY_NAME;
+import static org.folio.edge.orders.Constants.READINESS_REQUIRE_TENANT_LOGIN_PROPERTY_NAME;
+import static org.folio.edge.orders.Constants.RETRY_BUDGET_MAX_TOKENS_DEFAULT;
+import static org.folio.edge.orders.Constants.RETRY_BUDGET_MAX_TOKENS_PROPERTY_NAME;
+import static org.folio.edge.orders.Constants.RETRY_BUDGET_RATIO_DEFAULT;
+import static org.folio.edge.orders.Constants.RETRY_BUDGET_RATIO_PROPERTY_NAME;
+import static org.folio.edge.orders.Constants.TOKEN_CACHE_TTL_DEFAULT_MS;
+import static org.folio.edge.orders.Constants.TOKEN_CACHE_TTL_PROPERTY_NAME;
+import static org.folio.edge.orders.Constants.WARMUP_API_KEY_PROPERTY_NAME;
 
 public class MainVerticle extends EdgeVerticleHttp {
 
   private static final Logger logger = LogManager.getLogger(MainVerticle.class);
+  private static final long INIT_RETRY_DELAY_MS = 5_000;
+  // no client, tenant or user has this name, so a reachable store answers "not found"
+  private static final String SECURE_STORE_PROBE = "readiness-probe";
+  private static final String BEARER = "Bearer ";
 
   public MainVerticle() {
     super();
@@ -39,30 +88,114 @@ public class MainVerticle extends EdgeVerticleHttp {
   public Router defineRoutes() {
     logger.debug("defineRoutes:: Trying to define routes");
     OkapiClientFactory ocf = OkapiClientFactoryInitializer.createInstance(vertx, config());
-    ConfigResponseConverter configResponseConverter = new ConfigResponseConverter();
-    OrdersHandler ordersHandler = new OrdersHandler(secureStore, ocf, configResponseConverter);
+    CredentialCache credentials = new CredentialCache(secureStore,
+      Integer.getInteger(CREDENTIAL_CACHE_MAX_SIZE_PROPERTY_NAME, CREDENTIAL_CACHE_MAX_SIZE_DEFAULT),
+      Long.getLong(CREDENTIAL_CACHE_TTL_PROPERTY_NAME, CREDENTIAL_CACHE_TTL_DEFAULT_MS),
+      Long.getLong(CREDENTIAL_CACHE_NEGATIVE_TTL_PROPERTY_NAME, CREDENTIAL_CACHE_NEGATIVE_TTL_DEFAULT_MS),
+      Long.getLong(TOKEN_CACHE_TTL_PROPERTY_NAME, TOKEN_CACHE_TTL_DEFAULT_MS));
+    ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(
+      Integer.getInteger(CONCURRENCY_LIMIT_INITIAL_PROPERTY_NAME, CONCURRENCY_LIMIT_INITIAL_DEFAULT),
+      Integer.getInteger(CONCURRENCY_LIMIT_MAX_PROPERTY_NAME, CONCURRENCY_LIMIT_MAX_DEFAULT),
+      Integer.getInteger(CONCURRENCY_LIMIT_QUEUE_SIZE_PROPERTY_NAME, CONCURRENCY_LIMIT_QUEUE_SIZE_DEFAULT),
+      Long.getLong(CONCURRENCY_LIMIT_QUEUE_TIMEOUT_PROPERTY_NAME, CONCURRENCY_LIMIT_QUEUE_TIMEOUT_DEFAULT_MS));
+    // every verticle instance measures the lag of its own event loop and counts the upstream calls of its limiter
+    AdmissionController admission = new AdmissionController(
+      Long.getLong(ADMISSION_MAX_EVENT_LOOP_LAG_PROPERTY_NAME, ADMISSION_MAX_EVENT_LOOP_LAG_DEFAULT_MS),
+      Integer.getInteger(ADMISSION_MAX_PENDING_PROPERTY_NAME, ADMISSION_MAX_PENDING_DEFAULT),
+      concurrencyLimiter::getPending);
+    admission.start(vertx);
+    OrdersHandler ordersHandler = new OrdersHandler(secureStore, ocf, credentials,
+      Long.getLong(MODULE_ID_CACHE_TTL_PROPERTY_NAME, MODULE_ID_CACHE_TTL_DEFAULT_MS),
+      Integer.getInteger(AGGREGATE_CONCURRENCY_PROPERTY_NAME, AGGREGATE_CONCURRENCY_DEFAULT),
+      concurrencyLimiter,
+      new CircuitBreakers(
+        Integer.getInteger(CIRCUIT_BREAKER_FAILURE_RATE_PROPERTY_NAME, CIRCUIT_BREAKER_FAILURE_RATE_DEFAULT),
+        Integer.getInteger(CIRCUIT_BREAKER_SLOW_CALL_RATE_PROPERTY_NAME, CIRCUIT_BREAKER_SLOW_CALL_RATE_DEFAULT),
+        Long.getLong(CIRCUIT_BREAKER_SLOW_CALL_PROPERTY_NAME, CIRCUIT_BREAKER_SLOW_CALL_DEFAULT_MS),
+        Integer.getInteger(CIRCUIT_BREAKER_WINDOW_SIZE_PROPERTY_NAME, CIRCUIT_BREAKER_WINDOW_SIZE_DEFAULT),
+        Long.getLong(CIRCUIT_BREAKER_OPEN_DURATION_PROPERTY_NAME, CIRCUIT_BREAKER_OPEN_DURATION_DEFAULT_MS),
+        Integer.getInteger(CIRCUIT_BREAKER_HALF_OPEN_CALLS_PROPERTY_NAME, CIRCUIT_BREAKER_HALF_OPEN_CALLS_DEFAULT)),
+      new RetryBudget(
+        Integer.getInteger(RETRY_BUDGET_RATIO_PROPERTY_NAME, RETRY_BUDGET_RATIO_DEFAULT),
+        Integer.getInteger(RETRY_BUDGET_MAX_TOKENS_PROPERTY_NAME, RETRY_BUDGET_MAX_TOKENS_DEFAULT)),
+      new RateLimiter(
+        Double.parseDouble(System.getProperty(RATE_LIMIT_PER_SECOND_PROPERTY_NAME,
+          String.valueOf(RATE_LIMIT_PER_SECOND_DEFAULT))),
+        Integer.getInteger(RATE_LIMIT_BURST_PROPERTY_NAME, RATE_LIMIT_BURST_DEFAULT)),
+      admission);
+    ApiConfigurationManager apiConfiguration = new ApiConfigurationManager(vertx,
+      System.getProperty(API_CONFIGURATION_PROPERTY_NAME));
+
+    Readiness readiness = new Readiness()
+      .require(Readiness.API_CONFIGURATION)
+      .require(Readiness.SECURE_STORE);
+    // the login is only checked with a warm-up key, deployments without one become ready without it
+    String warmupApiKey = System.getProperty(WARMUP_API_KEY_PROPERTY_NAME);
+    if (StringUtils.isNotEmpty(warmupApiKey) && Boolean.parseBoolean(
+      System.getProperty(READINESS_REQUIRE_TENANT_LOGIN_PROPERTY_NAME, Boolean.TRUE.toString()))) {
+      readiness.require(Readiness.TENANT_LOGIN);
+    }
 
     Router router = Router.router(vertx);
-    router.route().handler(BodyHandler.create());
     router.route(HttpMethod.GET, "/admin/health").handler(this::handleHealthCheck);
-
-    try {
-      final List<Routing> routingConfiguration = initApiConfiguration(System.getProperty(API_CONFIGURATION_PROPERTY_NAME));
-
-      Map<String, List<Routing>> groupedRouting = routingConfiguration.stream()
-        .collect(groupingBy(Routing::getPathPattern));
-
-      groupedRouting.forEach((path, routing) -> {
-        Set<String> routingMethods = routing.stream().map(Routing::getMethod).collect(toSet());
-        routingMethods.forEach(method -> router.route(HttpMethod.valueOf(method), path)
-          .handler(ctx -> ordersHandler.handle(ctx, routingConfiguration)));
+    router.route(HttpMethod.GET, "/admin/ready").handler(readiness::handle);
+    String adminToken = System.getProperty(ADMIN_TOKEN_PROPERTY_NAME);
+    if (StringUtils.isEmpty(adminToken)) {
+      logger.info("defineRoutes:: {} is not set, only /admin/health and /admin/ready are served", ADMIN_TOKEN_PROPERTY_NAME);
+    } else {
+      byte[] adminAuthorization = (BEARER + adminToken).getBytes(StandardCharsets.UTF_8);
+      router.route("/admin/*").handler(ctx -> authorizeAdmin(ctx, adminAuthorization));
+      router.route(HttpMethod.GET, "/admin/api-configuration").handler(ctx -> ctx.response()
+        .putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON)
+        .end(apiConfiguration.getStatus().encode()));
+      router.route(HttpMethod.GET, "/admin/response-cache").handler(ctx -> ctx.response()
+        .putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON)
+        .end(apiConfiguration.getRoutingTable().getResponseCacheStatistics().encode()));
+      router.route(HttpMethod.GET, "/admin/request-coalescing").handler(ctx -> ctx.response()
+        .putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON)
+        .end(apiConfiguration.getRoutingTable().getRequestCoalescingStatistics().encode()));
+      router.route(HttpMethod.GET, "/admin/credential-cache").handler(ctx -> ctx.response()
+        .putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON)
+        .end(ordersHandler.getCredentialCacheStatistics().encode()));
+      router.route(HttpMethod.DELETE, "/admin/credential-cache").handler(ctx -> {
+        int removed = ordersHandler.invalidateCredentials(ctx.request().getParam("tenant"));
+        ctx.response()
+          .putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON)
+          .end(new JsonObject().put("removed", removed).encode());
       });
+      router.route(HttpMethod.GET, "/admin/module-id-cache").handler(ctx -> ctx.response()
+        .putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON)
+        .end(ordersHandler.getModuleIdCacheStatistics().encode()));
+      router.route(HttpMethod.GET, "/admin/aggregate").handler(ctx -> ctx.response()
+        .putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON)
+        .end(ordersHandler.getAggregateStatistics().encode()));
+      router.route(HttpMethod.GET, "/admin/concurrency-limit").handler(ctx -> ctx.response()
+        .putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON)
+        .end(ordersHandler.getConcurrencyLimitStatistics().encode()));
+      router.route(HttpMethod.GET, "/admin/circuit-breakers").handler(ctx -> ctx.response()
+        .putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON)
+        .end(ordersHandler.getCircuitBreakerStatistics().encode()));
+      router.route(HttpMethod.GET, "/admin/retry-budget").handler(ctx -> ctx.response()
+        .putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON)
+        .end(ordersHandler.getRetryBudgetStatistics().encode()));
+      router.route(HttpMethod.GET, "/admin/rate-limit").handler(ctx -> ctx.response()
+        .putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON)
+        .end(ordersHandler.getRateLimitStatistics().encode()));
+      router.route(HttpMethod.GET, "/admin/admission").handler(ctx -> ctx.response()
+        .putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON)
+        .end(ordersHandler.getAdmissionStatistics().encode()));
+    }
+
+    Set<String> registeredRoutes = new HashSet<>();
+    apiConfiguration.onSwap(table -> registerRoutes(router, ordersHandler, apiConfiguration, registeredRoutes));
+    initApiConfiguration(apiConfiguration, readiness);
 
-    } catch (Exception e) {
-      logger.error("Failed to load api configuration", e);
+    probeSecureStore(readiness);
+    if (StringUtils.isNotEmpty(warmupApiKey)) {
+      warmUpLogin(ocf, credentials, warmupApiKey, readiness);
     }
 
-    router.route().handler(ctx -> {
+    router.route().last().handler(ctx -> {
       String path = ctx.normalizedPath();
       logger.warn("Current path '{}' is missing from API configuration", path);
       ctx.next();
@@ -71,32 +204,107 @@ public class MainVerticle extends EdgeVerticleHttp {
     return router;
   }
 
-  private List<Routing> initApiConfiguration(String apiConfigurationPropFile) throws IOException {
-    logger.debug("initApiConfiguration:: Initializing API configuration: {}", apiConfigurationPropFile);
-    ApiConfiguration apiConfiguration = null;
-    final Pattern isURL = Pattern.compile("(?i)^http[s]?://.*");
-    ObjectMapper mapper = new ObjectMapper();
-
-    if (apiConfigurationPropFile != null) {
-      URL url = null;
-      try {
-        if (isURL.matcher(apiConfigurationPropFile).matches()) {
-          url = new URL(apiConfigurationPropFile);
+  /**
+   * Lets a request to the admin endpoints through if it carries the admin token as a bearer token, compared in
+   * constant time, and answers 401 otherwise.
+   */
+  private static void authorizeAdmin(RoutingContext ctx, byte[] adminAuthorization) {
+    String authorization = ctx.request().getHeader(HttpHeaders.AUTHORIZATION);
+    if (authorization != null
+      && MessageDigest.isEqual(authorization.getBytes(StandardCharsets.UTF_8), adminAuthorization)) {
+      ctx.next();
+      return;
+    }
+    logger.warn("authorizeAdmin:: Rejecting unauthorized request to {}", ctx.normalizedPath());
+    ctx.response().setStatusCode(401).putHeader("WWW-Authenticate", "Bearer").end();
+  }
+
+  /**
+   * Loads the API configuration off the event loop. Until it succeeds no order routes exist and the
+   * instance reports not ready, so a failed load is retried rather than leaving it without routes.
+   */
+  private void initApiConfiguration(ApiConfigurationManager apiConfiguration, Readiness readiness) {
+    apiConfiguration.init()
+      .onSuccess(table -> {
+        readiness.up(Readiness.API_CONFIGURATION);
+        long reloadIntervalMs = Long.getLong(API_CONFIGURATION_RELOAD_INTERVAL_PROPERTY_NAME, 0L);
+        if (reloadIntervalMs > 0) {
+          apiConfiguration.startReloading(reloadIntervalMs);
         }
+      })
+      .onFailure(t -> {
+        logger.warn("initApiConfiguration:: Retrying in {} ms", INIT_RETRY_DELAY_MS);
+        vertx.setTimer(INIT_RETRY_DELAY_MS, id -> initApiConfiguration(apiConfiguration, readiness));
+      });
+  }
 
-        try (InputStream in = url == null ? new FileInputStream(apiConfigurationPropFile) : url.openStream()) {
-          apiConfiguration = mapper.readValue(in, ApiConfiguration.class);
-          logger.info("initApiConfiguration:: ApiConfiguration has been loaded from file {}", apiConfigurationPropFile);
+  /**
+   * Looks up a credential that does not exist off the event loop: "not found" shows that the secure store answers,
+   * any other failure, e.g. an unreachable Vault or AWS endpoint, is retried.
+   */
+  private void probeSecureStore(Readiness readiness) {
+    if (secureStore == null) {
+      logger.error("probeSecureStore:: No secure store is configured, the instance will not become ready");
+      return;
+    }
+    vertx.executeBlocking(() -> {
+        try {
+          secureStore.get(SECURE_STORE_PROBE, SECURE_STORE_PROBE, SECURE_STORE_PROBE);
+        } catch (NotFoundException e) {
+          // the store was reached
         }
-      } catch (Exception e) {
-        logger.warn("Failed to load ApiConfiguration from '{}'", apiConfigurationPropFile, e);
-      }
-    } else {
-      logger.warn("No api configuration file specified. Using default '{}'", API_CONFIGURATION_DEFAULT);
-      apiConfiguration = mapper
-        .readValue(ClassLoader.getSystemClassLoader().getResource(API_CONFIGURATION_DEFAULT), ApiConfiguration.class);
+        return null;
+      }, false)
+      .onSuccess(v -> readiness.up(Readiness.SECURE_STORE))
+      .onFailure(t -> {
+        logger.warn("probeSecureStore:: Secure store is not reachable, retrying in {} ms", INIT_RETRY_DELAY_MS, t);
+        vertx.setTimer(INIT_RETRY_DELAY_MS, id -> probeSecureStore(readiness));
+      });
+  }
+
+  /**
+   * Logs in once with the credentials of the warm-up API key so the first vendor request does not
+   * pay for the secure store lookup and the Okapi login.
+   */
+  private void warmUpLogin(OkapiClientFactory ocf, CredentialCache credentials, String apiKey, Readiness readiness) {
+    ClientInfo clientInfo;
+    try {
+      clientInfo = credentials.decode(apiKey);
+    } catch (MalformedApiKeyException e) {
+      logger.error("warmUpLogin:: Invalid warm-up API key, the instance will not become ready", e);
+      return;
     }
+    credentials.getToken(vertx, ocf, clientInfo)
+      .onSuccess(token -> {
+        logger.info("warmUpLogin:: Logged in to tenant {}", clientInfo.tenantId);
+        readiness.up(Readiness.TENANT_LOGIN);
+      })
+      .onFailure(t -> {
+        logger.warn("warmUpLogin:: Login to tenant {} failed, retrying in {} ms", clientInfo.tenantId, INIT_RETRY_DELAY_MS, t);
+        vertx.setTimer(INIT_RETRY_DELAY_MS, id -> warmUpLogin(ocf, credentials, apiKey, readiness));
+      });
+  }
 
-    return Objects.requireNonNull(apiConfiguration).getRouting();
+  /**
+   * Adds a Vert.x route for every path pattern and method of the current routing table that is not
+   * routed yet. Each request resolves its slice from the table in use when it arrives, so routes
+   * dropped by a reload fall through to "not found".
+   */
+  private void registerRoutes(Router router, OrdersHandler ordersHandler, ApiConfigurationManager apiConfiguration,
+                              Set<String> registeredRoutes) {
+    for (RouteSlice slice : apiConfiguration.getRoutingTable().slices()) {
+      String pathPattern = slice.getPathPattern();
+      String method = slice.getMethod();
+      if (registeredRoutes.add(method + ' ' + pathPattern)) {
+        router.route(HttpMethod.valueOf(method), pathPattern).handler(ctx -> {
+          RouteSlice current = apiConfiguration.getRoutingTable().slice(pathPattern, method);
+          if (current == null) {
+            ctx.next();
+            return;
+          }
+          ordersHandler.handle(ctx, current);
+        });
+      }
+    }
   }
 }
@@ -4,31 +4,66 @@ import static org.folio.edge.core.Constants.APPLICATION_JSON;
 import static org.folio.edge.core.Constants.APPLICATION_XML;
 import static org.folio.edge.core.Constants.MSG_ACCESS_DENIED;
 import static org.folio.edge.core.Constants.MSG_INVALID_API_KEY;
-import static org.folio.edge.core.Constants.MSG_REQUEST_TIMEOUT;
-import static org.folio.edge.orders.Constants.BILLING_AND_SHIPPING_PATH;
+import static org.folio.edge.orders.Constants.ADMISSION_MAX_EVENT_LOOP_LAG_DEFAULT_MS;
+import static org.folio.edge.orders.Constants.ADMISSION_MAX_PENDING_DEFAULT;
+import static org.folio.edge.orders.Constants.AGGREGATE_CONCURRENCY_DEFAULT;
+import static org.folio.edge.orders.Constants.AGGREGATE_PARAM;
+import static org.folio.edge.orders.Constants.APPLICATION_NDJSON;
+import static org.folio.edge.orders.Constants.CIRCUIT_BREAKER_FAILURE_RATE_DEFAULT;
+import static org.folio.edge.orders.Constants.CIRCUIT_BREAKER_HALF_OPEN_CALLS_DEFAULT;
+import static org.folio.edge.orders.Constants.CIRCUIT_BREAKER_OPEN_DURATION_DEFAULT_MS;
+import static org.folio.edge.orders.Constants.CIRCUIT_BREAKER_SLOW_CALL_DEFAULT_MS;
+import static org.folio.edge.orders.Constants.CIRCUIT_BREAKER_SLOW_CALL_RATE_DEFAULT;
+import static org.folio.edge.orders.Constants.CIRCUIT_BREAKER_WINDOW_SIZE_DEFAULT;
+import static org.folio.edge.orders.Constants.CONCURRENCY_LIMIT_INITIAL_DEFAULT;
+import static org.folio.edge.orders.Constants.CONCURRENCY_LIMIT_MAX_DEFAULT;
+import static org.folio.edge.orders.Constants.CONCURRENCY_LIMIT_QUEUE_SIZE_DEFAULT;
+import static org.folio.edge.orders.Constants.CONCURRENCY_LIMIT_QUEUE_TIMEOUT_DEFAULT_MS;
 import static org.folio.edge.orders.Constants.CUSTOM_FIELDS_INTERFACE_NAME;
+import static org.folio.edge.orders.Constants.CREDENTIAL_CACHE_MAX_SIZE_DEFAULT;
+import static org.folio.edge.orders.Constants.CREDENTIAL_CACHE_NEGATIVE_TTL_DEFAULT_MS;
+import static org.folio.edge.orders.Constants.CREDENTIAL_CACHE_TTL_DEFAULT_MS;
 import static org.folio.edge.orders.Constants.CUSTOM_FIELDS_MODULE_NAME;
+import static org.folio.edge.orders.Constants.FIELDS_PARAM;
+import static org.folio.edge.orders.Constants.MODULE_ID_CACHE_TTL_DEFAULT_MS;
+import static org.folio.edge.orders.Constants.RATE_LIMIT_BURST_DEFAULT;
+import static org.folio.edge.orders.Constants.RATE_LIMIT_PER_SECOND_DEFAULT;
+import static org.folio.edge.orders.Constants.RETRY_BUDGET_MAX_TOKENS_DEFAULT;
+import static org.folio.edge.orders.Constants.RETRY_BUDGET_RATIO_DEFAULT;
+import static org.folio.edge.orders.Constants.TOKEN_CACHE_TTL_DEFAULT_MS;
 
-import java.util.List;
+import java.io.IOException;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.commons.lang3.StringUtils;
 import org.folio.edge.core.Handler;
 import org.folio.edge.core.security.SecureStore;
+import org.folio.edge.core.utils.ApiKeyUtils.ClientInfo;
+import org.folio.edge.core.utils.ApiKeyUtils.MalformedApiKeyException;
 import org.folio.edge.core.utils.OkapiClient;
 import org.folio.edge.core.utils.OkapiClientFactory;
+import org.folio.edge.orders.CollectionRecords.Format;
 import org.folio.edge.orders.Constants.ErrorCodes;
+import org.folio.edge.orders.RoutingTable.RouteSlice;
 import org.folio.edge.orders.model.ErrorWrapper;
 import org.folio.edge.orders.model.ResponseWrapper;
 import org.folio.edge.orders.client.AcquisitionsOkapiClient;
+import org.folio.edge.orders.client.RequestScopedClient;
 import org.folio.okapi.common.XOkapiHeaders;
-import org.folio.rest.mappings.model.Routing;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
+import io.vertx.core.Future;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.client.HttpResponse;
@@ -37,20 +72,82 @@ public class OrdersHandler extends Handler {
 
   private static final Logger logger = LogManager.getLogger(OrdersHandler.class);
 
-  private final ConfigResponseConverter configResponseConverter;
+  private static final String RESPONSE_ENCODING = "responseEncoding";
+  private static final String CLIENT_INFO = "clientInfo";
+  private static final String ROUTE_SLICE = "routeSlice";
+  private static final String FIELD_PROJECTION = "fieldProjection";
+  private static final String NDJSON_OUTPUT = "ndjsonOutput";
+  private static final int NDJSON_SLICE_SIZE = 64 * 1024;
+  private static final CharSequence UPSTREAM_ACCEPT_ENCODING = HttpHeaders.createOptimized(Compression.GZIP + ", " + Compression.DEFLATE);
+  private static final int MODULE_ID_CACHE_MAX_SIZE = 1000;
+  private static final int ACQUISITIONS_CLIENT_CACHE_MAX_SIZE = 1000;
+  private static final long ACQUISITIONS_CLIENT_CACHE_TTL_MS = TimeUnit.HOURS.toMillis(1);
 
-  public OrdersHandler(SecureStore secureStore, OkapiClientFactory ocf, ConfigResponseConverter configResponseConverter) {
+  private final CredentialCache credentials;
+  private final ExpiringCache<String, String> moduleIds;
+  private final SingleFlight<String, String> moduleIdLookups = new SingleFlight<>();
+  private final ExpiringCache<String, AcquisitionsOkapiClient> acquisitionsClients =
+    new ExpiringCache<>(ACQUISITIONS_CLIENT_CACHE_MAX_SIZE, ACQUISITIONS_CLIENT_CACHE_TTL_MS);
+  private final ConcurrencyLimiter concurrencyLimiter;
+  private final CircuitBreakers circuitBreakers;
+  private final RetryBudget retryBudget;
+  private final RateLimiter rateLimiter;
+  private final AdmissionController admission;
+  private final KeyedSemaphore aggregatePermits;
+  private final PageAggregator.Statistics aggregateStatistics = new PageAggregator.Statistics();
+
+  public OrdersHandler(SecureStore secureStore, OkapiClientFactory ocf) {
+    this(secureStore, ocf, new ConcurrencyLimiter(CONCURRENCY_LIMIT_INITIAL_DEFAULT, CONCURRENCY_LIMIT_MAX_DEFAULT,
+      CONCURRENCY_LIMIT_QUEUE_SIZE_DEFAULT, CONCURRENCY_LIMIT_QUEUE_TIMEOUT_DEFAULT_MS));
+  }
+
+  private OrdersHandler(SecureStore secureStore, OkapiClientFactory ocf, ConcurrencyLimiter concurrencyLimiter) {
+    this(secureStore, ocf,
+      new CredentialCache(secureStore, CREDENTIAL_CACHE_MAX_SIZE_DEFAULT, CREDENTIAL_CACHE_TTL_DEFAULT_MS,
+        CREDENTIAL_CACHE_NEGATIVE_TTL_DEFAULT_MS, TOKEN_CACHE_TTL_DEFAULT_MS),
+      MODULE_ID_CACHE_TTL_DEFAULT_MS, AGGREGATE_CONCURRENCY_DEFAULT, concurrencyLimiter,
+      new CircuitBreakers(CIRCUIT_BREAKER_FAILURE_RATE_DEFAULT, CIRCUIT_BREAKER_SLOW_CALL_RATE_DEFAULT,
+        CIRCUIT_BREAKER_SLOW_CALL_DEFAULT_MS, CIRCUIT_BREAKER_WINDOW_SIZE_DEFAULT, CIRCUIT_BREAKER_OPEN_DURATION_DEFAULT_MS,
+        CIRCUIT_BREAKER_HALF_OPEN_CALLS_DEFAULT),
+      new RetryBudget(RETRY_BUDGET_RATIO_DEFAULT, RETRY_BUDGET_MAX_TOKENS_DEFAULT),
+      new RateLimiter(RATE_LIMIT_PER_SECOND_DEFAULT, RATE_LIMIT_BURST_DEFAULT),
+      new AdmissionController(ADMISSION_MAX_EVENT_LOOP_LAG_DEFAULT_MS, ADMISSION_MAX_PENDING_DEFAULT,
+        concurrencyLimiter::getPending));
+  }
+
+  /**
+   * @param credentials cache of decoded API keys, secure store passwords and tokens
+   * @param moduleIdCacheTtlMs how long the resolved custom-fields module id of a tenant is reused
+   * @param aggregateConcurrency how many pages of aggregated requests are fetched at once per tenant
+   * @param concurrencyLimiter bounds the calls in flight to Okapi per tenant and route
+   * @param circuitBreakers fail calls to an upstream path of a tenant that keeps failing at once
+   * @param retryBudget bounds the hedged and retried calls to Okapi
+   * @param rateLimiter bounds the requests per API key, checked before the login
+   * @param admission rejects requests on arrival while the instance is overloaded
+   */
+  public OrdersHandler(SecureStore secureStore, OkapiClientFactory ocf, CredentialCache credentials, long moduleIdCacheTtlMs,
+                       int aggregateConcurrency, ConcurrencyLimiter concurrencyLimiter, CircuitBreakers circuitBreakers,
+                       RetryBudget retryBudget, RateLimiter rateLimiter, AdmissionController admission) {
     super(secureStore, ocf);
-    this.configResponseConverter = configResponseConverter;
+    this.admission = admission;
+    this.rateLimiter = rateLimiter;
+    this.concurrencyLimiter = concurrencyLimiter;
+    this.circuitBreakers = circuitBreakers;
+    this.retryBudget = retryBudget;
+    this.aggregatePermits = new KeyedSemaphore(aggregateConcurrency);
+    this.credentials = credentials;
+    this.moduleIds = new ExpiringCache<>(MODULE_ID_CACHE_MAX_SIZE, moduleIdCacheTtlMs);
   }
 
   @Override
   protected void handleCommon(RoutingContext ctx, String[] requiredParams, String[] optionalParams,
       TwoParamVoidFunction<OkapiClient, Map<String, String>> action) {
     logger.debug("handleCommon:: Trying to handle request with required params: {}, optional params: {}", requiredParams, optionalParams);
-    // the responses are short, we can safely drop the encoding header if passed
-    if (null != ctx.request().getHeader(HttpHeaders.ACCEPT_ENCODING)) {
+    // the response encoding is negotiated here, Okapi is asked for compressed responses once the route is known
+    String acceptEncoding = ctx.request().getHeader(HttpHeaders.ACCEPT_ENCODING);
+    if (acceptEncoding != null) {
       ctx.request().headers().remove(HttpHeaders.ACCEPT_ENCODING);
+      ctx.put(RESPONSE_ENCODING, Compression.negotiate(acceptEncoding));
     }
 
     String type = ctx.request().getParam(Param.TYPE.getName());
@@ -60,36 +157,157 @@ public class OrdersHandler extends Handler {
       return;
     }
 
-    super.handleCommon(ctx, requiredParams, optionalParams, (client, params) -> {
-      final AcquisitionsOkapiClient ordersClient = new AcquisitionsOkapiClient(client);
+    String key = keyHelper.getApiKey(ctx);
+    if (key == null || key.isEmpty()) {
+      accessDenied(ctx, MSG_ACCESS_DENIED);
+      return;
+    }
+    Map<String, String> params = new HashMap<>();
+    for (String param : requiredParams) {
+      String value = ctx.request().getParam(param);
+      if (value == null || value.isEmpty()) {
+        badRequest(ctx, "Missing required parameter: " + param);
+        return;
+      }
+      params.put(param, value);
+    }
+    for (String param : optionalParams) {
+      params.put(param, ctx.request().getParam(param));
+    }
+    params.put(Param.TYPE.getName(), type);
 
-      params.put(Param.TYPE.getName(), type);
-      action.apply(ordersClient, params);
-    });
+    // replaces the lookup of the base handler, which decodes the key and asks the secure store on every request
+    ClientInfo clientInfo;
+    try {
+      clientInfo = credentials.decode(key);
+    } catch (MalformedApiKeyException e) {
+      invalidApiKey(ctx, key);
+      return;
+    }
+    RouteSlice routeSlice = ctx.get(ROUTE_SLICE);
+    long waitNanos = rateLimiter.tryAcquire(clientInfo.tenantId, clientInfo.salt,
+      routeSlice == null ? null : routeSlice.resolve(type));
+    if (waitNanos > 0) {
+      rateLimited(ctx, clientInfo, waitNanos);
+      return;
+    }
+    ctx.put(CLIENT_INFO, clientInfo);
+    OkapiClient client = ocf.getOkapiClient(clientInfo.tenantId);
+    credentials.getToken(ctx.vertx(), ocf, clientInfo)
+      .onSuccess(token -> {
+        client.setToken(token);
+        action.apply(client, params);
+      })
+      .onFailure(t -> {
+        if (t instanceof TimeoutException) {
+          requestTimeout(ctx, t.getMessage());
+        } else {
+          logger.warn("handleCommon:: No token for user {} of tenant {}: {}", clientInfo.username, clientInfo.tenantId, t.getMessage());
+          accessDenied(ctx, t.getMessage());
+        }
+      });
   }
 
-  protected void handle(RoutingContext ctx, List<Routing> routingMapping) {
+  /**
+   * @return counters of the credential cache for the admin endpoint
+   */
+  public JsonObject getCredentialCacheStatistics() {
+    return credentials.getStatistics();
+  }
+
+  /**
+   * Drops cached credentials, e.g. after a password was rotated in the secure store.
+   *
+   * @param tenant the tenant to drop, {@code null} for all
+   * @return the number of entries removed
+   */
+  public int invalidateCredentials(String tenant) {
+    return credentials.invalidate(tenant);
+  }
+
+  /**
+   * Admits the request before its body is read or its credentials are looked up, with the priority of its route.
+   *
+   * @return {@code false} if the request was rejected
+   */
+  private boolean admit(RoutingContext ctx, RouteSlice routeSlice) {
+    String type = ctx.request().getParam(Param.TYPE.getName());
+    CompiledRouting routing = type == null || type.isEmpty() ? null : routeSlice.resolve(type);
+    AdmissionController.Priority priority = routing == null ? AdmissionController.Priority.NORMAL : routing.getAdmissionPriority();
+    if (!admission.tryAdmit(priority)) {
+      logger.warn("admit:: Overloaded, rejecting {} priority request to {} {}", priority, routeSlice.getMethod(),
+        routeSlice.getPathPattern());
+      // a lagging event loop needs about its lag to catch up, pending calls alone get the shortest Retry-After
+      ctx.response().putHeader(HttpHeaders.RETRY_AFTER, ErrorResponse.retryAfter(admission.getLagNanos()));
+      handleErrorResponse(ctx, ErrorResponse.OVERLOADED);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Views the tenant's shared client with the token of the request. Shared clients are kept per tenant, Okapi URL and
+   * request timeout, so a client made with another configuration gets a shared client of its own, and are dropped
+   * after an hour or when there are too many of them. The user of the already decoded API key is passed along
+   * because responses are only cached if it is known.
+   */
+  private RequestScopedClient acquisitionsClient(RoutingContext ctx, OkapiClient client) {
+    ClientInfo clientInfo = ctx.get(CLIENT_INFO);
+    String key = clientInfo.tenantId + '\n' + client.okapiURL + '\n' + ocf.reqTimeoutMs;
+    AcquisitionsOkapiClient acquisitionsClient = acquisitionsClients.get(key);
+    if (acquisitionsClient == null) {
+      acquisitionsClient = new AcquisitionsOkapiClient(client, concurrencyLimiter, circuitBreakers, retryBudget);
+      acquisitionsClients.put(key, acquisitionsClient);
+    }
+    return acquisitionsClient.forRequest(client.getToken(), clientInfo.username);
+  }
+
+  protected void handle(RoutingContext ctx, RouteSlice routeSlice) {
+    if (!admit(ctx, routeSlice)) {
+      return;
+    }
+    // hold the body back until the routing decides whether to stream or to buffer it
+    if (!ctx.request().isEnded()) {
+      ctx.request().pause();
+    }
+    // lets the rate limit of the route be checked before the login
+    ctx.put(ROUTE_SLICE, routeSlice);
     handleCommon(ctx, new String[]{}, new String[]{}, (client, params) -> {
       String type = params.get(Param.TYPE.getName());
 
-      Routing routing;
-      String currentPath = ctx.currentRoute().getPath();
-      String requestMethod = ctx.request().method().name();
-      try {
-        routing = routingMapping.stream()
-          .filter(r -> r.getType().equalsIgnoreCase(type)
-            && r.getMethod().equals(requestMethod)
-            && r.getPathPattern().equals(currentPath))
-          .findFirst()
-          .orElseThrow(Exception::new);
-      } catch (Exception e) {
-        logger.error("API configuration doesn't exist for type: {}", type, e);
+      CompiledRouting routing = routeSlice.resolve(type);
+      if (routing == null) {
+        logger.error("API configuration doesn't exist for type: {}, route: {}", type, routeSlice);
         badRequest(ctx, "Unknown Purchasing System Specified: " + type);
         return;
       }
 
-      AcquisitionsOkapiClient acquisitionsClient = (AcquisitionsOkapiClient) client;
-      if (StringUtils.contains(routing.getPathPattern(), CUSTOM_FIELDS_INTERFACE_NAME)) {
+      String fields = ctx.request().getParam(FIELDS_PARAM);
+      if (fields != null && routing.isFieldProjectionAllowed()) {
+        try {
+          ctx.put(FIELD_PROJECTION, FieldProjection.parse(fields));
+        } catch (IllegalArgumentException e) {
+          badRequest(ctx, "Invalid " + FIELDS_PARAM + " parameter: " + e.getMessage());
+          return;
+        }
+      }
+
+      if (routing.isCollection() && acceptsNdjson(ctx)) {
+        ctx.put(NDJSON_OUTPUT, Boolean.TRUE);
+        // modules answer collections as JSON, the records are written one per line on the way out
+        ctx.request().headers().set(HttpHeaders.ACCEPT, APPLICATION_JSON);
+      }
+
+      boolean aggregated = routing.isAggregateAllowed() && Boolean.parseBoolean(ctx.request().getParam(AGGREGATE_PARAM));
+      CharSequence upstreamAcceptEncoding = upstreamAcceptEncoding(ctx, routing, aggregated);
+      if (upstreamAcceptEncoding != null) {
+        ctx.request().headers().set(HttpHeaders.ACCEPT_ENCODING, upstreamAcceptEncoding);
+      }
+
+      RequestScopedClient acquisitionsClient = acquisitionsClient(ctx, client);
+      if (aggregated) {
+        aggregate(acquisitionsClient, routing, ctx);
+      } else if (StringUtils.contains(routing.getRouting().getPathPattern(), CUSTOM_FIELDS_INTERFACE_NAME)) {
         sendForCustomFieldsRequest(acquisitionsClient, routing, ctx, type);
       } else {
         send(acquisitionsClient, routing, ctx, type);
@@ -97,8 +315,83 @@ public class OrdersHandler extends Handler {
     });
   }
 
-  private void sendForCustomFieldsRequest(AcquisitionsOkapiClient client, Routing routing, RoutingContext ctx, String type) {
-    client.getModuleIdForMultipleInterface(CUSTOM_FIELDS_INTERFACE_NAME, CUSTOM_FIELDS_MODULE_NAME, ctx.request().headers())
+  /**
+   * Okapi is asked for a compressed response only if the body is decoded anyway, to be transformed, projected, written
+   * as NDJSON or aggregated, or if the client accepts an encoding the route responds with, so that Okapi's body can
+   * be forwarded as is. Otherwise the edge would spend CPU on decoding it for nothing.
+   *
+   * @return the {@code Accept-Encoding} for Okapi, {@code null} for an uncompressed response
+   */
+  private static CharSequence upstreamAcceptEncoding(RoutingContext ctx, CompiledRouting routing, boolean aggregated) {
+    if (aggregated || isTransformed(ctx, routing)) {
+      return UPSTREAM_ACCEPT_ENCODING;
+    }
+    String responseEncoding = ctx.get(RESPONSE_ENCODING);
+    return routing.compressionEnabled() ? responseEncoding : null;
+  }
+
+  private void aggregate(RequestScopedClient client, CompiledRouting routing, RoutingContext ctx) {
+    String offset = ctx.request().getParam(Param.OFFSET.getName());
+    int start;
+    try {
+      start = StringUtils.isEmpty(offset) ? 0 : Integer.parseInt(offset);
+    } catch (NumberFormatException e) {
+      start = -1;
+    }
+    if (start < 0) {
+      badRequest(ctx, "Invalid " + Param.OFFSET.getName() + " parameter: " + offset);
+      return;
+    }
+    Format format = isNdjsonOutput(ctx) ? Format.NDJSON : Format.JSON_ARRAY;
+    new PageAggregator(ctx, client, routing, aggregatePermits, ctx.get(FIELD_PROJECTION), format, aggregateStatistics)
+      .run(start, resp -> resolveResponseHandler(routing, ctx, resp), t -> handleProxyException(ctx, t));
+  }
+
+  /**
+   * @return counters of aggregated requests and the page permits in use per tenant
+   */
+  public JsonObject getAggregateStatistics() {
+    return aggregateStatistics.toJson().put("concurrency", aggregatePermits.getStatistics());
+  }
+
+  /**
+   * @return the concurrency limit, calls in flight and waiting, waits and rejections per tenant and route
+   */
+  public JsonObject getConcurrencyLimitStatistics() {
+    return concurrencyLimiter.getStatistics();
+  }
+
+  /**
+   * @return state, failure and slow call rates and state changes of the circuit breaker per tenant and upstream path
+   */
+  public JsonObject getCircuitBreakerStatistics() {
+    return circuitBreakers.getStatistics();
+  }
+
+  /**
+   * @return tokens left in the retry budget, and the retries, hedged calls and denied attempts
+   */
+  public JsonObject getRetryBudgetStatistics() {
+    return retryBudget.getStatistics();
+  }
+
+  /**
+   * @return the admission thresholds, the event loop lag, the pending upstream calls and the rejections per priority
+   */
+  public JsonObject getAdmissionStatistics() {
+    return admission.getStatistics();
+  }
+
+  /**
+   * @return the limit per API key, the number of token buckets, and the requests allowed and rejected
+   */
+  public JsonObject getRateLimitStatistics() {
+    return rateLimiter.getStatistics();
+  }
+
+  private void sendForCustomFieldsRequest(RequestScopedClient client, CompiledRouting routing, RoutingContext ctx, String type) {
+    String tenant = client.getTenant();
+    customFieldsModuleId(client, ctx.request().headers())
       .onComplete(res -> {
         if (res.failed()) {
           internalServerError(ctx, "Failed to get module id for custom fields interface: " + res.cause().getMessage());
@@ -110,60 +403,194 @@ public class OrdersHandler extends Handler {
           return;
         }
         ctx.request().headers().add(XOkapiHeaders.MODULE_ID, res.result());
-        send(client, routing, ctx, type);
+        send(client, routing, ctx, type,
+          resp -> {
+            if (isModuleChangeStatus(resp.statusCode())) {
+              logger.info("sendForCustomFieldsRequest:: Status {} for module {}, resolving it again next time", resp.statusCode(), moduleId);
+              moduleIds.invalidate(tenant);
+            }
+            resolveResponseHandler(routing, ctx, resp);
+          },
+          t -> {
+            moduleIds.invalidate(tenant);
+            handleProxyException(ctx, t);
+          });
       });
   }
 
-  private void send(AcquisitionsOkapiClient client, Routing routing, RoutingContext ctx, String type) {
+  /**
+   * @return hit/miss counters of the custom-fields module id cache and how many lookups were shared
+   */
+  public JsonObject getModuleIdCacheStatistics() {
+    return moduleIds.getStatistics().put("lookups", moduleIdLookups.getStatistics());
+  }
+
+  /**
+   * Resolves the custom-fields module of the tenant once per TTL, concurrent lookups share one Okapi call.
+   */
+  private Future<String> customFieldsModuleId(RequestScopedClient client, MultiMap headers) {
+    String tenant = client.getTenant();
+    String moduleId = moduleIds.get(tenant);
+    if (moduleId != null) {
+      return Future.succeededFuture(moduleId);
+    }
+    return moduleIdLookups.execute(tenant,
+      () -> client.getModuleIdForMultipleInterface(CUSTOM_FIELDS_INTERFACE_NAME, CUSTOM_FIELDS_MODULE_NAME, headers)
+        .onSuccess(id -> {
+          if (StringUtils.isNotBlank(id)) {
+            moduleIds.put(tenant, id);
+          }
+        }));
+  }
+
+  /**
+   * Okapi answers 400 or 404 for a module id that is no longer enabled for the tenant, and 5xx while it is replaced.
+   */
+  private static boolean isModuleChangeStatus(int status) {
+    return status == 400 || status == 404 || status >= 500;
+  }
+
+  private void send(RequestScopedClient client, CompiledRouting routing, RoutingContext ctx, String type) {
+    send(client, routing, ctx, type, resp -> resolveResponseHandler(routing, ctx, resp), t -> handleProxyException(ctx, t));
+  }
+
+  private void send(RequestScopedClient client, CompiledRouting routing, RoutingContext ctx, String type,
+                    io.vertx.core.Handler<HttpResponse<Buffer>> responseHandler, io.vertx.core.Handler<Throwable> exceptionHandler) {
     logger.info("handle:: Request is from purchasing system: {}", type);
-    client.send(routing, ctx.body().asString(), ctx.request().params(), ctx.request().headers(),
-      resp -> resolveResponseHandler(routing, ctx, resp),
-      t -> handleProxyException(ctx, t));
+    HttpServerRequest request = ctx.request();
+    String requestEncoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+    if (Compression.isIdentity(requestEncoding)) {
+      if (routing.isStreamRequestBody()) {
+        client.sendStream(routing, request, request.params(), request.headers(), responseHandler, exceptionHandler);
+        return;
+      }
+      readBody(request)
+        .onSuccess(body -> sendBuffered(client, routing, ctx, body, responseHandler, exceptionHandler))
+        .onFailure(exceptionHandler::handle);
+      return;
+    }
+    if (!Compression.isSupported(requestEncoding)) {
+      badRequest(ctx, "Unsupported Content-Encoding: " + requestEncoding);
+      return;
+    }
+    // Okapi modules expect plain bodies, a compressed order is decoded before it is proxied
+    readBody(request)
+      .compose(body -> ctx.vertx().executeBlocking(
+        () -> Compression.decode(body, requestEncoding, Compression.MAX_DECODED_LENGTH), false))
+      .onSuccess(body -> {
+        request.headers().remove(HttpHeaders.CONTENT_ENCODING).remove(HttpHeaders.CONTENT_LENGTH);
+        sendBuffered(client, routing, ctx, body, responseHandler, exceptionHandler);
+      })
+      .onFailure(t -> badRequest(ctx, "Failed to decode " + requestEncoding + " request body: " + t.getMessage()));
   }
 
-  private void resolveResponseHandler(Routing routing, RoutingContext ctx, HttpResponse<Buffer> resp) {
-    if (BILLING_AND_SHIPPING_PATH.equals(routing.getPathPattern())) {
-      handleConfigConvertedResponse(ctx, resp);
-    } else {
-      handleResponse(ctx, resp);
+  private void sendBuffered(RequestScopedClient client, CompiledRouting routing, RoutingContext ctx, Buffer body,
+                            io.vertx.core.Handler<HttpResponse<Buffer>> responseHandler, io.vertx.core.Handler<Throwable> exceptionHandler) {
+    HttpServerRequest request = ctx.request();
+    client.send(routing, body.toString(), request.params(), request.headers(), responseHandler, exceptionHandler);
+  }
+
+  private static Future<Buffer> readBody(HttpServerRequest request) {
+    if (request.isEnded()) {
+      return Future.succeededFuture(Buffer.buffer());
     }
+    Future<Buffer> body = request.body();
+    request.resume();
+    return body;
   }
 
-  private void handleConfigConvertedResponse(RoutingContext ctx, HttpResponse<Buffer> resp) {
-    if (!isSuccessStatus(resp.statusCode()) || resp.body() == null) {
-      handleResponse(ctx, resp);
+  private void resolveResponseHandler(CompiledRouting routing, RoutingContext ctx, HttpResponse<Buffer> resp) {
+    String upstreamEncoding = resp.getHeader(HttpHeaders.CONTENT_ENCODING);
+    if (Compression.isIdentity(upstreamEncoding) || resp.body() == null) {
+      dispatchResponse(routing, ctx, resp, resp.body());
       return;
     }
-    try {
-      JsonObject converted = configResponseConverter.fromTenantAddresses(resp.bodyAsJsonObject());
-      handleResponseWithBody(ctx, resp, converted.encode());
-    } catch (Exception e) {
-      logger.error("Failed to convert response to config format", e);
-      handleResponse(ctx, resp);
+    if (isSuccessStatus(resp.statusCode()) && routing.compressionEnabled() && !isTransformed(ctx, routing)
+      && upstreamEncoding.equalsIgnoreCase(ctx.get(RESPONSE_ENCODING))) {
+      // the client accepts the encoding Okapi used, the body is forwarded without decoding it
+      ctx.response().putHeader(HttpHeaders.CONTENT_ENCODING, upstreamEncoding);
+      handleResponse(ctx, routing, resp, resp.body());
+      return;
     }
+    ctx.vertx().executeBlocking(() -> Compression.decode(resp.body(), upstreamEncoding, Compression.MAX_DECODED_LENGTH), false)
+      .onSuccess(body -> dispatchResponse(routing, ctx, resp, body))
+      .onFailure(t -> internalServerError(ctx, "Failed to decode " + upstreamEncoding + " response: " + t.getMessage()));
   }
 
-  protected void handleResponse(RoutingContext ctx, HttpResponse<Buffer> resp) {
+  private void dispatchResponse(CompiledRouting routing, RoutingContext ctx, HttpResponse<Buffer> resp, Buffer body) {
+    if (isTransformed(ctx, routing)) {
+      handleTransformedResponse(ctx, routing, resp, body);
+    } else {
+      handleResponse(ctx, routing, resp, body);
+    }
+  }
+
+  private static boolean isTransformed(RoutingContext ctx, CompiledRouting routing) {
+    return routing.getResponseTransformer() != null || ctx.get(FIELD_PROJECTION) != null || isNdjsonOutput(ctx);
+  }
+
+  private static boolean isNdjsonOutput(RoutingContext ctx) {
+    return ctx.get(NDJSON_OUTPUT) != null;
+  }
+
+  /**
+   * Applies the route's transform and then the projection the client asked for. Both parse and write the whole body,
+   * they run together on a worker like the decoding and encoding.
+   */
+  private void handleTransformedResponse(RoutingContext ctx, CompiledRouting routing, HttpResponse<Buffer> resp, Buffer body) {
+    ResponseTransformer transformer = routing.getResponseTransformer();
+    FieldProjection projection = ctx.get(FIELD_PROJECTION);
+    if (!isSuccessStatus(resp.statusCode()) || body == null || transformer == null && projection == null) {
+      handleResponse(ctx, routing, resp, body);
+      return;
+    }
+    ctx.vertx().executeBlocking(() -> {
+        Buffer transformed = transformer == null ? body : transformer.transform(body);
+        return projection == null ? transformed : projection.transform(transformed);
+      }, false)
+      .onSuccess(transformed -> handleResponseWithBody(ctx, routing, resp, transformed))
+      .onFailure(t -> {
+        logger.error("handleTransformedResponse:: Failed to transform response of {}", routing.getRouting().getPathPattern(), t);
+        handleResponse(ctx, routing, resp, body);
+      });
+  }
+
+  protected void handleResponse(RoutingContext ctx, CompiledRouting routing, HttpResponse<Buffer> resp, Buffer body) {
     logger.debug("handleResponse:: Trying to handle response");
-    final StringBuilder body = new StringBuilder();
-    var buf = resp.body();
     if (logger.isTraceEnabled()) {
-      logger.trace("read bytes: {}", buf);
-    }
-    if (buf != null) {
-      body.append(buf);
+      logger.trace("read bytes: {}", body);
     }
 
     ctx.response().setStatusCode(resp.statusCode());
-    if (!body.isEmpty()) {
-      String respBody = body.toString();
-      handleResponseWithBody(ctx, resp, respBody);
+    if (body != null && body.length() > 0) {
+      handleResponseWithBody(ctx, routing, resp, body);
       logger.debug("handleResponse:: Response status: {}", resp.statusCode());
     } else {
       ctx.response().end();
     }
   }
 
+  @Override
+  protected void handleProxyException(RoutingContext ctx, Throwable t) {
+    if (t instanceof ConcurrencyLimiter.LimitExceededException) {
+      logger.warn("handleProxyException:: {}", t.getMessage());
+      handleErrorResponse(ctx, ErrorResponse.CONCURRENCY_LIMIT_EXCEEDED);
+      return;
+    }
+    if (t instanceof CircuitBreakers.CircuitOpenException) {
+      logger.warn("handleProxyException:: {}", t.getMessage());
+      handleErrorResponse(ctx, ErrorResponse.CIRCUIT_OPEN);
+      return;
+    }
+    super.handleProxyException(ctx, t);
+  }
+
+  private void rateLimited(RoutingContext ctx, ClientInfo clientInfo, long waitNanos) {
+    logger.warn("rateLimited:: Rate limit of tenant {} and user {} exceeded", clientInfo.tenantId, clientInfo.username);
+    ctx.response().putHeader(HttpHeaders.RETRY_AFTER, ErrorResponse.retryAfter(waitNanos));
+    handleErrorResponse(ctx, ErrorResponse.RATE_LIMITED);
+  }
+
   @Override
   protected void invalidApiKey(RoutingContext ctx, String key) {
     ResponseWrapper resp = new ResponseWrapper(
@@ -173,8 +600,8 @@ public class OrdersHandler extends Handler {
 
   @Override
   protected void accessDenied(RoutingContext ctx, String msg) {
-    ResponseWrapper resp = new ResponseWrapper(new ErrorWrapper(ErrorCodes.ACCESS_DENIED.name(), MSG_ACCESS_DENIED));
-    handleErrorResponse(ctx, 401, resp);
+    logger.warn("accessDenied:: {}", msg);
+    handleErrorResponse(ctx, ErrorResponse.ACCESS_DENIED);
   }
 
   @Override
@@ -185,36 +612,119 @@ public class OrdersHandler extends Handler {
 
   @Override
   protected void requestTimeout(RoutingContext ctx, String msg) {
-    ResponseWrapper resp = new ResponseWrapper(
-        new ErrorWrapper(ErrorCodes.REQUEST_TIMEOUT.name(), MSG_REQUEST_TIMEOUT));
-    handleErrorResponse(ctx, 408, resp);
+    logger.warn("requestTimeout:: {}", msg);
+    handleErrorResponse(ctx, ErrorResponse.REQUEST_TIMEOUT);
   }
 
   @Override
   protected void internalServerError(RoutingContext ctx, String msg) {
-    Thread.dumpStack();
+    logger.error("internalServerError:: {}", msg);
     if (!ctx.response().ended()) {
       ResponseWrapper resp = new ResponseWrapper(new ErrorWrapper(ErrorCodes.INTERNAL_SERVER_ERROR.name(), msg));
       handleErrorResponse(ctx, 500, resp);
     }
   }
 
-  private void handleResponseWithBody(RoutingContext ctx, HttpResponse<Buffer> response, String respBody) {
+  /**
+   * Forwards a successful upstream body as is, only an error body that gets wrapped is decoded to a String.
+   */
+  private void handleResponseWithBody(RoutingContext ctx, CompiledRouting routing, HttpResponse<Buffer> response, Buffer respBody) {
     logger.debug("handleResponseWithBody:: Trying to handle response");
     String contentType = response.headers().get(HttpHeaders.CONTENT_TYPE);
     int status = response.statusCode();
-    if (isSuccessStatus(status)) {
-      ctx.response()
-        .putHeader(HttpHeaders.CONTENT_TYPE, contentType)
-        .setStatusCode(status)
-        .end(respBody);
+    if (status == 200 && isNdjsonOutput(ctx)) {
+      streamRecords(ctx, routing, contentType, respBody);
+    } else if (isSuccessStatus(status)) {
+      endSuccessResponse(ctx, routing, contentType, status, respBody);
     } else {
       logger.error("handleResponseWithBody:: Response status: {}", status);
       processErrorResponse(ctx, respBody, contentType, status);
     }
   }
 
-  private void processErrorResponse(RoutingContext ctx, String respBody, String contentType, int status) {
+  /**
+   * Encodes the body on a worker thread if the client accepts gzip or deflate and the body reaches the
+   * route's threshold. A body that is already encoded, or too small to gain from it, is written as is.
+   */
+  private void endSuccessResponse(RoutingContext ctx, CompiledRouting routing, String contentType, int status, Buffer body) {
+    HttpServerResponse response = ctx.response()
+      .putHeader(HttpHeaders.CONTENT_TYPE, contentType)
+      .setStatusCode(status);
+    if (routing.compressionEnabled()) {
+      response.putHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    }
+    String encoding = ctx.get(RESPONSE_ENCODING);
+    if (encoding == null || response.headers().contains(HttpHeaders.CONTENT_ENCODING) || !routing.isCompressible(body.length())) {
+      response.end(body);
+      return;
+    }
+    ctx.vertx().executeBlocking(() -> Compression.encode(body, encoding, routing.getCompressionLevel()), false)
+      .onComplete(ar -> {
+        if (ar.succeeded()) {
+          response.putHeader(HttpHeaders.CONTENT_ENCODING, encoding).end(ar.result());
+        } else {
+          logger.warn("endSuccessResponse:: Failed to compress response, sending it as is", ar.cause());
+          response.end(body);
+        }
+      });
+  }
+
+  /**
+   * Writes the records of a collection one per line in chunks of about {@link #NDJSON_SLICE_SIZE} bytes, cutting the
+   * next chunk on a worker thread only when the client took the previous ones. This chunks the output, the upstream
+   * body is already held in full. A body that is no collection is sent as it is.
+   */
+  private void streamRecords(RoutingContext ctx, CompiledRouting routing, String contentType, Buffer body) {
+    CollectionRecords.Reader reader;
+    try {
+      reader = CollectionRecords.reader(body, Format.NDJSON);
+    } catch (IOException e) {
+      logger.warn("streamRecords:: Response of {} is no collection, sending it as is", routing.getRouting().getPathPattern(), e);
+      endSuccessResponse(ctx, routing, contentType, 200, body);
+      return;
+    }
+    HttpServerResponse response = ctx.response()
+      .setStatusCode(200)
+      .setChunked(true)
+      .putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_NDJSON);
+    writeRecords(ctx.vertx(), response, reader);
+  }
+
+  private static void writeRecords(Vertx vertx, HttpServerResponse response, CollectionRecords.Reader reader) {
+    if (response.closed()) {
+      reader.close();
+      return;
+    }
+    // one slice at a time, the reader is never used by two threads at once
+    vertx.executeBlocking(() -> reader.next(NDJSON_SLICE_SIZE), false)
+      .onComplete(ar -> {
+        if (ar.failed()) {
+          // the status is sent already, a truncated body must not look complete
+          logger.error("writeRecords:: Failed to read records after {} were sent, resetting the response", reader.getCount(), ar.cause());
+          reader.close();
+          response.reset();
+          return;
+        }
+        Buffer slice = ar.result();
+        if (slice == null) {
+          reader.close();
+          if (!response.closed()) {
+            response.end();
+          }
+          return;
+        }
+        if (slice.length() > 0 && !response.closed()) {
+          response.write(slice);
+        }
+        if (response.writeQueueFull()) {
+          response.drainHandler(v -> writeRecords(vertx, response, reader));
+        } else {
+          writeRecords(vertx, response, reader);
+        }
+      });
+  }
+
+  private void processErrorResponse(RoutingContext ctx, Buffer respBody, String contentType, int status) {
     String acceptHeader = ctx.request().getHeader(HttpHeaders.ACCEPT);
     if (contentType.equals(acceptHeader)) {
       ctx.response()
@@ -223,33 +733,61 @@ public class OrdersHandler extends Handler {
         .end(respBody);
     } else {
       ErrorCodes errorCode = Optional.ofNullable(ErrorCodes.fromValue(status)).orElse(ErrorCodes.INTERNAL_SERVER_ERROR);
-      ResponseWrapper resp = new ResponseWrapper(new ErrorWrapper(errorCode.name(), respBody));
+      ResponseWrapper resp = new ResponseWrapper(new ErrorWrapper(errorCode.name(), respBody.toString()));
       handleErrorResponse(ctx, status, resp);
     }
   }
 
+  /**
+   * Sends an error with a dynamic message, serialized straight into the response buffer.
+   */
   private void handleErrorResponse(RoutingContext ctx, int status, ResponseWrapper responseWrapper) {
     logger.warn("handleErrorResponse:: Trying to handle error response with status: {}, responseWrapper: {}", status, responseWrapper);
-    String acceptHeaders = Optional.ofNullable(ctx.request().getHeader(HttpHeaders.ACCEPT)).orElse(APPLICATION_XML);
-    ctx.response().setStatusCode(status);
+    boolean json = acceptsJson(ctx);
+    Buffer body;
     try {
-      if (acceptHeaders.contains(APPLICATION_JSON)) {
-        ctx.response()
-          .putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON)
-          .end(responseWrapper.toJson());
-      } else if (acceptHeaders.contains(APPLICATION_XML)){
-        ctx.response()
-          .putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_XML)
-          .end(responseWrapper.toXml());
-      } else {
-        ctx.response()
-          .putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_XML)
-          .end(responseWrapper.toXml());
-      }
+      body = json ? responseWrapper.toJsonBuffer() : responseWrapper.toXmlBuffer();
     } catch (Exception e) {
-      logger.error("Exception marshalling", e);
-      internalServerError(ctx, "Failed to convert FOLIO response to " + acceptHeaders);
+      logger.error("handleErrorResponse:: Failed to convert FOLIO response to {}", json ? APPLICATION_JSON : APPLICATION_XML, e);
+      handleErrorResponse(ctx, ErrorResponse.SERIALIZATION_FAILED);
+      return;
+    }
+    endErrorResponse(ctx, status, json, body);
+  }
+
+  /**
+   * Sends an error with a fixed message, its body is serialized once.
+   */
+  private void handleErrorResponse(RoutingContext ctx, ErrorResponse errorResponse) {
+    boolean json = acceptsJson(ctx);
+    endErrorResponse(ctx, errorResponse.getStatus(), json, errorResponse.getBody(json));
+  }
+
+  private void endErrorResponse(RoutingContext ctx, int status, boolean json, Buffer body) {
+    if (ctx.response().ended()) {
+      return;
+    }
+    // drain a body that was held back for streaming so the connection can be reused
+    if (!ctx.request().isEnded()) {
+      ctx.request().resume();
     }
+    ctx.response()
+      .setStatusCode(status)
+      .putHeader(HttpHeaders.CONTENT_TYPE, json ? ErrorResponse.APPLICATION_JSON_TYPE : ErrorResponse.APPLICATION_XML_TYPE)
+      .end(body);
+  }
+
+  private static boolean acceptsNdjson(RoutingContext ctx) {
+    String acceptHeaders = ctx.request().getHeader(HttpHeaders.ACCEPT);
+    return acceptHeaders != null && acceptHeaders.contains(APPLICATION_NDJSON);
+  }
+
+  /**
+   * @return whether the client accepts JSON, errors are sent as XML otherwise, also if there is no Accept header
+   */
+  private static boolean acceptsJson(RoutingContext ctx) {
+    String acceptHeaders = ctx.request().getHeader(HttpHeaders.ACCEPT);
+    return acceptHeaders != null && acceptHeaders.contains(APPLICATION_JSON);
   }
 
   private boolean isSuccessStatus(int statusCode) {
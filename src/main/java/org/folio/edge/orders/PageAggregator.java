@@ -0,0 +1,261 @@
+package org.folio.edge.orders;
+
+import static org.folio.edge.core.Constants.APPLICATION_JSON;
+import static org.folio.edge.orders.Constants.APPLICATION_NDJSON;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.folio.edge.orders.CollectionRecords.Format;
+import org.folio.edge.orders.client.RequestScopedClient;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.client.HttpResponse;
+
+/**
+ * Fetches all pages of a paginated GET route and streams their records to the client as one JSON array or as NDJSON.
+ * <p>
+ * The first page tells the total. The remaining pages are then fetched in parallel, at most as many per tenant as
+ * the {@link KeyedSemaphore} allows, and written in order as soon as the pages before them are written; at most
+ * that many pages are held per request. Without a total the pages are fetched one after another until one is short.
+ * No more than the route's maximum number of records are fetched.
+ * <p>
+ * A failure of the first page is answered like a failure of a single request. Once records were sent the status
+ * can not change any more, so a later failure resets the response and the client sees a truncated body.
+ * All state is touched on the event loop of the request only.
+ */
+final class PageAggregator {
+
+  private static final Logger logger = LogManager.getLogger(PageAggregator.class);
+
+  private static final Buffer ARRAY_START = Buffer.buffer("[");
+  private static final Buffer ARRAY_END = Buffer.buffer("]");
+  private static final Buffer SEPARATOR = Buffer.buffer(",");
+
+  private final RoutingContext ctx;
+  private final RequestScopedClient client;
+  private final CompiledRouting routing;
+  private final KeyedSemaphore permits;
+  private final FieldProjection projection;
+  private final Statistics statistics;
+  private final Format format;
+  private final MultiMap params;
+  private final MultiMap headers;
+  private final int pageSize;
+  private final Map<Integer, CollectionRecords> fetched = new HashMap<>();
+
+  private int end;
+  private int nextOffset;
+  private int writeOffset;
+  private int inFlight;
+  private int window;
+  private boolean totalKnown;
+  private long recordsWritten;
+  private boolean done;
+
+  PageAggregator(RoutingContext ctx, RequestScopedClient client, CompiledRouting routing, KeyedSemaphore permits,
+                 FieldProjection projection, Format format, Statistics statistics) {
+    this.ctx = ctx;
+    this.client = client;
+    this.routing = routing;
+    this.permits = permits;
+    this.projection = projection;
+    this.statistics = statistics;
+    this.format = format;
+    this.params = MultiMap.caseInsensitiveMultiMap().addAll(ctx.request().params());
+    // the pages are always read as JSON, whatever format the client asked for
+    this.headers = HttpHeaders.headers().addAll(ctx.request().headers()).set(HttpHeaders.ACCEPT, APPLICATION_JSON);
+    this.pageSize = routing.getAggregatePageSize();
+  }
+
+  /**
+   * @param start offset of the first record
+   * @param upstreamErrorHandler answers a first page that is not a 200
+   * @param exceptionHandler answers a first page that failed otherwise
+   */
+  void run(int start, Handler<HttpResponse<Buffer>> upstreamErrorHandler, Handler<Throwable> exceptionHandler) {
+    statistics.requests.increment();
+    int maxRecords = routing.getAggregateMaxRecords();
+    end = start + Math.min(pageSize, maxRecords);
+    fetch(start).onComplete(ar -> {
+      if (ar.failed()) {
+        statistics.failures.increment();
+        if (ar.cause() instanceof UpstreamStatusException e) {
+          upstreamErrorHandler.handle(e.response);
+        } else {
+          exceptionHandler.handle(ar.cause());
+        }
+        return;
+      }
+      CollectionRecords first = ar.result();
+      Integer total = first.getTotalRecords();
+      totalKnown = total != null;
+      window = totalKnown ? permits.getPermits() : 1;
+      end = totalKnown ? (int) Math.max(start, Math.min(total, (long) start + maxRecords)) : start + maxRecords;
+      if (totalKnown && total > (long) start + maxRecords) {
+        statistics.capped.increment();
+      }
+      HttpServerResponse response = ctx.response()
+        .setStatusCode(200)
+        .setChunked(true)
+        .putHeader(HttpHeaders.CONTENT_TYPE, format == Format.NDJSON ? APPLICATION_NDJSON : APPLICATION_JSON);
+      response.closeHandler(v -> done = true);
+      if (format == Format.JSON_ARRAY) {
+        response.write(ARRAY_START);
+      }
+      fetched.put(start, first);
+      nextOffset = start + pageSize;
+      writeOffset = start;
+      flush();
+      schedule();
+    });
+  }
+
+  private void schedule() {
+    if (done) {
+      return;
+    }
+    HttpServerResponse response = ctx.response();
+    while (inFlight < window && nextOffset < end && !response.writeQueueFull()) {
+      int offset = nextOffset;
+      nextOffset += pageSize;
+      inFlight++;
+      fetch(offset).onComplete(ar -> {
+        inFlight--;
+        if (ar.failed()) {
+          fail(ar.cause());
+          return;
+        }
+        fetched.put(offset, ar.result());
+        flush();
+        schedule();
+      });
+    }
+    if (inFlight == 0 && writeOffset >= end) {
+      finish();
+    } else if (response.writeQueueFull()) {
+      response.drainHandler(v -> schedule());
+    }
+  }
+
+  private void flush() {
+    CollectionRecords page;
+    while (!done && (page = fetched.remove(writeOffset)) != null) {
+      if (page.getCount() > 0) {
+        if (format == Format.JSON_ARRAY && recordsWritten > 0) {
+          ctx.response().write(SEPARATOR);
+        }
+        ctx.response().write(page.getRecords());
+        recordsWritten += page.getCount();
+        statistics.records.add(page.getCount());
+      }
+      if (!totalKnown && page.getCount() < limit(writeOffset)) {
+        // a short page is the last one
+        end = writeOffset + page.getCount();
+      }
+      writeOffset += pageSize;
+    }
+  }
+
+  private void finish() {
+    done = true;
+    if (format == Format.JSON_ARRAY) {
+      ctx.response().write(ARRAY_END);
+    }
+    ctx.response().end();
+    logger.info("finish:: Sent {} records of {} in one response", recordsWritten, routing.getRouting().getPathPattern());
+  }
+
+  private void fail(Throwable t) {
+    if (done) {
+      return;
+    }
+    done = true;
+    statistics.failures.increment();
+    logger.error("fail:: Fetching a page of {} failed after {} records were sent, resetting the response",
+      routing.getRouting().getPathPattern(), recordsWritten, t);
+    ctx.response().reset();
+  }
+
+  private int limit(int offset) {
+    return Math.min(pageSize, end - offset);
+  }
+
+  private Future<CollectionRecords> fetch(int offset) {
+    MultiMap pageParams = MultiMap.caseInsensitiveMultiMap().addAll(params)
+      .set(Param.OFFSET.getName(), Integer.toString(offset))
+      .set(Param.LIMIT.getName(), Integer.toString(limit(offset)));
+    String tenant = client.getTenant();
+    return permits.acquire(tenant)
+      .compose(v -> {
+        Promise<HttpResponse<Buffer>> promise = Promise.promise();
+        try {
+          client.send(routing, null, pageParams, headers, promise::complete, promise::fail);
+        } catch (RuntimeException e) {
+          promise.tryFail(e);
+        }
+        return promise.future().onComplete(ar -> permits.release(tenant));
+      })
+      .compose(resp -> {
+        statistics.pages.increment();
+        if (resp.statusCode() != 200) {
+          return Future.failedFuture(new UpstreamStatusException(resp));
+        }
+        return ctx.vertx().executeBlocking(() -> read(resp), false);
+      });
+  }
+
+  private CollectionRecords read(HttpResponse<Buffer> resp) throws Exception {
+    Buffer body = resp.body() == null ? Buffer.buffer() : resp.body();
+    String encoding = resp.getHeader(HttpHeaders.CONTENT_ENCODING);
+    if (!Compression.isIdentity(encoding)) {
+      body = Compression.decode(body, encoding, Compression.MAX_DECODED_LENGTH);
+    }
+    if (projection != null) {
+      body = projection.transform(body);
+    }
+    return CollectionRecords.read(body, format);
+  }
+
+  /**
+   * Counters of all aggregated requests.
+   */
+  static final class Statistics {
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder pages = new LongAdder();
+    private final LongAdder records = new LongAdder();
+    private final LongAdder capped = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    JsonObject toJson() {
+      return new JsonObject()
+        .put("requests", requests.sum())
+        .put("pages", pages.sum())
+        .put("records", records.sum())
+        .put("capped", capped.sum())
+        .put("failures", failures.sum());
+    }
+  }
+
+  private static final class UpstreamStatusException extends RuntimeException {
+
+    private final transient HttpResponse<Buffer> response;
+
+    private UpstreamStatusException(HttpResponse<Buffer> response) {
+      super("Upstream status " + response.statusCode(), null, false, false);
+      this.response = response;
+    }
+  }
+}
@@ -0,0 +1,249 @@
+package org.folio.edge.orders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.vertx.core.MultiMap;
+
+/**
+ * Proxy path parsed once into literal segments, placeholders and optional query parts.
+ * <p>
+ * The template follows the {@link org.folio.rest.mappings.model.Routing#getProxyPath() proxyPath} syntax, for example
+ * {@code /finance/funds/:id/expense-classes?offset=:offset&limit=:limit&query=:query}, and
+ * is expanded in a single pass with the same rules {@link QueryUtil} applies:
+ * <ul>
+ *   <li>an empty {@link Param} with a default value, like {@code offset} or {@code limit}, gets its default;</li>
+ *   <li>a query part whose whole value is an empty {@link Param} without a default, like
+ *   {@code query=:query}, is left out;</li>
+ *   <li>a placeholder without a matching parameter is kept as is.</li>
+ * </ul>
+ * Unlike {@link QueryUtil}, parameter values are percent-encoded for the part of the URI they end up in.
+ */
+public final class ProxyPathTemplate {
+
+  private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+  private final String proxyPath;
+  private final Part[] pathParts;
+  private final QueryPart[] queryParts;
+  private final int estimatedLength;
+
+  private ProxyPathTemplate(String proxyPath, Part[] pathParts, QueryPart[] queryParts) {
+    this.proxyPath = proxyPath;
+    this.pathParts = pathParts;
+    this.queryParts = queryParts;
+    this.estimatedLength = proxyPath.length() + 32;
+  }
+
+  /**
+   * Parses the proxy path into a template.
+   *
+   * @param proxyPath proxy path from the routing configuration
+   * @return the compiled template
+   */
+  public static ProxyPathTemplate compile(String proxyPath) {
+    int queryStart = proxyPath.indexOf('?');
+    String path = queryStart < 0 ? proxyPath : proxyPath.substring(0, queryStart);
+    Part[] pathParts = parseParts(path, false);
+
+    List<QueryPart> queryParts = new ArrayList<>();
+    if (queryStart >= 0) {
+      for (String queryPart : proxyPath.substring(queryStart + 1).split("&")) {
+        if (!queryPart.isEmpty()) {
+          queryParts.add(parseQueryPart(queryPart));
+        }
+      }
+    }
+    return new ProxyPathTemplate(proxyPath, pathParts, queryParts.toArray(new QueryPart[0]));
+  }
+
+  /**
+   * Builds the proxy path for the request parameters.
+   *
+   * @param params request parameters, or {@code null} to get the proxy path unchanged
+   * @return the proxy path with all placeholders resolved
+   */
+  public String expand(MultiMap params) {
+    if (params == null) {
+      return proxyPath;
+    }
+    StringBuilder sb = new StringBuilder(estimatedLength);
+    for (Part part : pathParts) {
+      part.appendTo(sb, params);
+    }
+    char separator = '?';
+    for (QueryPart queryPart : queryParts) {
+      if (queryPart.isSkipped(params)) {
+        continue;
+      }
+      sb.append(separator);
+      separator = '&';
+      for (Part part : queryPart.parts) {
+        part.appendTo(sb, params);
+      }
+    }
+    return sb.toString();
+  }
+
+  @Override
+  public String toString() {
+    return proxyPath;
+  }
+
+  private static QueryPart parseQueryPart(String queryPart) {
+    Part[] parts = parseParts(queryPart, true);
+    // "name=:placeholder" is optional when the placeholder is a parameter without a default value
+    boolean optional = parts.length == 2
+      && parts[0] instanceof Literal literal && literal.text.indexOf('=') == literal.text.length() - 1
+      && parts[1] instanceof Placeholder placeholder && placeholder.param != null && !placeholder.param.isDefaultNonBlankValue();
+    return new QueryPart(parts, optional ? (Placeholder) parts[1] : null);
+  }
+
+  private static Part[] parseParts(String template, boolean query) {
+    List<Part> parts = new ArrayList<>();
+    int literalStart = 0;
+    int i = 0;
+    while (i < template.length()) {
+      int nameEnd = template.charAt(i) == ':' ? placeholderNameEnd(template, i + 1) : -1;
+      if (nameEnd < 0) {
+        i++;
+        continue;
+      }
+      if (literalStart < i) {
+        parts.add(new Literal(template.substring(literalStart, i)));
+      }
+      parts.add(new Placeholder(template.substring(i + 1, nameEnd), query));
+      i = nameEnd;
+      literalStart = nameEnd;
+    }
+    if (literalStart < template.length()) {
+      parts.add(new Literal(template.substring(literalStart)));
+    }
+    return parts.toArray(new Part[0]);
+  }
+
+  private static int placeholderNameEnd(String template, int nameStart) {
+    if (nameStart >= template.length() || !isAsciiLetter(template.charAt(nameStart))) {
+      return -1;
+    }
+    int i = nameStart + 1;
+    while (i < template.length() && (isAsciiLetter(template.charAt(i)) || isAsciiDigit(template.charAt(i)) || template.charAt(i) == '_')) {
+      i++;
+    }
+    return i;
+  }
+
+  private static Param findParam(String name) {
+    for (Param param : Param.values()) {
+      if (param.getName().equals(name)) {
+        return param;
+      }
+    }
+    return null;
+  }
+
+  private static boolean isAsciiLetter(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+  }
+
+  private static boolean isAsciiDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isUnreserved(char c) {
+    return isAsciiLetter(c) || isAsciiDigit(c) || c == '-' || c == '.' || c == '_' || c == '~';
+  }
+
+  private static boolean isPathSafe(char c) {
+    return isUnreserved(c) || "!$&'()*+,;=:@".indexOf(c) >= 0;
+  }
+
+  static void appendEncoded(StringBuilder sb, String value, boolean query) {
+    int length = value.length();
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (query ? isUnreserved(c) : isPathSafe(c)) {
+        sb.append(c);
+      } else if (query && c == ' ') {
+        sb.append('+');
+      } else if (c < 0x80) {
+        appendPercentEncoded(sb, (byte) c);
+      } else {
+        int end = i + 1;
+        while (end < length && value.charAt(end) >= 0x80) {
+          end++;
+        }
+        for (byte b : value.substring(i, end).getBytes(StandardCharsets.UTF_8)) {
+          appendPercentEncoded(sb, b);
+        }
+        i = end - 1;
+      }
+    }
+  }
+
+  private static void appendPercentEncoded(StringBuilder sb, byte b) {
+    sb.append('%').append(HEX[(b >> 4) & 0x0F]).append(HEX[b & 0x0F]);
+  }
+
+  private interface Part {
+    void appendTo(StringBuilder sb, MultiMap params);
+  }
+
+  private record Literal(String text) implements Part {
+    @Override
+    public void appendTo(StringBuilder sb, MultiMap params) {
+      sb.append(text);
+    }
+  }
+
+  private static final class Placeholder implements Part {
+
+    private final String name;
+    private final Param param;
+    private final boolean query;
+
+    private Placeholder(String name, boolean query) {
+      this.name = name;
+      this.param = findParam(name);
+      this.query = query;
+    }
+
+    private String value(MultiMap params) {
+      String value = params.get(name);
+      if ((value == null || value.isEmpty()) && param != null && param.isDefaultNonBlankValue()) {
+        return param.getDefaultValue();
+      }
+      return value;
+    }
+
+    @Override
+    public void appendTo(StringBuilder sb, MultiMap params) {
+      String value = value(params);
+      if (value == null) {
+        sb.append(':').append(name);
+      } else {
+        appendEncoded(sb, value, query);
+      }
+    }
+  }
+
+  private static final class QueryPart {
+
+    private final Part[] parts;
+    private final Placeholder optionalPlaceholder;
+
+    private QueryPart(Part[] parts, Placeholder optionalPlaceholder) {
+      this.parts = parts;
+      this.optionalPlaceholder = optionalPlaceholder;
+    }
+
+    private boolean isSkipped(MultiMap params) {
+      if (optionalPlaceholder == null) {
+        return false;
+      }
+      String value = optionalPlaceholder.value(params);
+      return value == null || value.isEmpty();
+    }
+  }
+}
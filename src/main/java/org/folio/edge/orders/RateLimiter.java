@@ -0,0 +1,177 @@
+package org.folio.edge.orders;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Token buckets per API key, i.e. per tenant and client id, and per API key and route, checked before a request
+ * costs a login or an upstream call.
+ * <p>
+ * A bucket is a single {@link AtomicLong} holding the time at which it is full again (GCRA): a request is allowed
+ * while that time is at most a burst's worth of intervals ahead and moves it on by one interval. The update is a
+ * compare-and-set, no lock is taken. A bucket whose time has passed is full, it is the same as a new one, so idle
+ * buckets can be dropped whenever there are too many of them.
+ * <p>
+ * Tenants and client ids are checked before the login, so both maps are bounded: when the buckets of new API keys
+ * would exceed {@link #MAX_BUCKETS}, the buckets closest to full are dropped, and until then the new API keys share
+ * one bucket per route. Rejections are counted per tenant for {@link #MAX_REJECTED_TENANTS} tenants, then together.
+ */
+public class RateLimiter {
+
+  static final int MAX_BUCKETS = 10_000;
+  static final int MAX_REJECTED_TENANTS = 1_000;
+  private static final String OVERFLOW_KEY = "\n";
+  private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final Limit keyLimit;
+  private final LongSupplier clock;
+  private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+  private final AtomicLong lastSweep = new AtomicLong();
+  private final Map<String, LongAdder> rejectedByTenant = new ConcurrentHashMap<>();
+  private final LongAdder rejectedOtherTenants = new LongAdder();
+  private final LongAdder allowed = new LongAdder();
+
+  /**
+   * @param perSecond requests per second of an API key over all routes, 0 for no limit per API key
+   * @param burst requests an idle API key may send at once
+   */
+  public RateLimiter(double perSecond, int burst) {
+    this(perSecond, burst, System::nanoTime);
+  }
+
+  RateLimiter(double perSecond, int burst, LongSupplier clock) {
+    this.keyLimit = perSecond == 0 ? null : new Limit(perSecond, burst);
+    this.clock = clock;
+  }
+
+  /**
+   * Takes a token of the API key and, if the route has a limit of its own, one of the API key on the route.
+   * A request rejected by the route's bucket has still used a token of the API key.
+   *
+   * @param routing the route of the request, {@code null} if it is not known yet
+   * @return 0 if the request may go on, otherwise the nanoseconds until the API key may send the next one
+   */
+  public long tryAcquire(String tenant, String clientId, CompiledRouting routing) {
+    Limit routeLimit = routing == null ? null : routing.getRateLimit();
+    if (keyLimit == null && routeLimit == null) {
+      return 0;
+    }
+    long now = clock.getAsLong();
+    String key = tenant + '\n' + clientId;
+    long waitNanos = keyLimit == null ? 0 : acquire(key, OVERFLOW_KEY, keyLimit, now);
+    if (waitNanos == 0 && routeLimit != null) {
+      String suffix = '\n' + routing.getRouteName();
+      waitNanos = acquire(key + suffix, OVERFLOW_KEY + suffix, routeLimit, now);
+    }
+    if (waitNanos == 0) {
+      allowed.increment();
+    } else {
+      rejected(tenant);
+    }
+    return waitNanos;
+  }
+
+  private void rejected(String tenant) {
+    LongAdder count = rejectedByTenant.get(tenant);
+    if (count == null && rejectedByTenant.size() < MAX_REJECTED_TENANTS) {
+      count = rejectedByTenant.computeIfAbsent(tenant, t -> new LongAdder());
+    }
+    (count == null ? rejectedOtherTenants : count).increment();
+  }
+
+  private long acquire(String key, String overflowKey, Limit limit, long now) {
+    AtomicLong bucket = buckets.get(key);
+    if (bucket == null) {
+      if (buckets.size() >= MAX_BUCKETS) {
+        sweep(now);
+      }
+      // the overflow buckets, one per route, may go over the limit
+      bucket = buckets.computeIfAbsent(buckets.size() < MAX_BUCKETS ? key : overflowKey, k -> new AtomicLong(now));
+    }
+    while (true) {
+      long fullAt = bucket.get();
+      long next = Math.max(fullAt, now) + limit.intervalNanos;
+      long waitNanos = next - now - limit.burstNanos;
+      if (waitNanos > 0) {
+        return waitNanos;
+      }
+      if (bucket.compareAndSet(fullAt, next)) {
+        return 0;
+      }
+    }
+  }
+
+  /**
+   * Drops the full buckets and, if that leaves more than three quarters of {@link #MAX_BUCKETS}, the ones closest to
+   * full, which lose the least by starting over. It runs at most once per second so that a flood of new keys does not
+   * sweep on every request.
+   */
+  private void sweep(long now) {
+    long last = lastSweep.get();
+    if (now - last < SWEEP_INTERVAL_NANOS && last != 0 || !lastSweep.compareAndSet(last, now)) {
+      return;
+    }
+    buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+    int excess = buckets.size() - MAX_BUCKETS / 4 * 3;
+    if (excess > 0) {
+      buckets.entrySet().stream()
+        .sorted(Comparator.comparingLong(entry -> entry.getValue().get()))
+        .limit(excess)
+        .map(Map.Entry::getKey)
+        .toList()
+        .forEach(buckets::remove);
+    }
+  }
+
+  /**
+   * @return the limit per API key, the number of buckets, and the requests allowed and rejected per tenant, with the
+   *         tenants past {@link #MAX_REJECTED_TENANTS} counted together
+   */
+  public JsonObject getStatistics() {
+    JsonObject rejected = new JsonObject();
+    rejectedByTenant.forEach((tenant, count) -> rejected.put(tenant, count.sum()));
+    return new JsonObject()
+      .put("perSecond", keyLimit == null ? 0 : keyLimit.perSecond)
+      .put("burst", keyLimit == null ? 0 : keyLimit.burst)
+      .put("buckets", buckets.size())
+      .put("allowed", allowed.sum())
+      .put("rejected", rejected)
+      .put("rejectedOtherTenants", rejectedOtherTenants.sum());
+  }
+
+  /**
+   * A rate and the number of requests that may be sent at once after a pause.
+   */
+  public static final class Limit {
+
+    private final double perSecond;
+    private final int burst;
+    private final long intervalNanos;
+    private final long burstNanos;
+
+    public Limit(double perSecond, int burst) {
+      if (!(perSecond > 0) || burst < 1) {
+        throw new IllegalArgumentException("Invalid rate limit: " + perSecond + " per second, burst " + burst);
+      }
+      this.perSecond = perSecond;
+      this.burst = burst;
+      this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / perSecond));
+      this.burstNanos = intervalNanos * burst;
+    }
+
+    public double getPerSecond() {
+      return perSecond;
+    }
+
+    public int getBurst() {
+      return burst;
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package org.folio.edge.orders;
+
+import static org.folio.edge.core.Constants.APPLICATION_JSON;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * Startup checks that must pass before the edge takes vendor traffic.
+ * <p>
+ * Unlike {@code /admin/health}, which only tells that the process is alive, the readiness
+ * endpoint answers 503 until every required check is up, so an orchestrator only routes
+ * requests to instances that have their routing, secure store and Okapi login in place.
+ */
+public class Readiness {
+
+  public static final String API_CONFIGURATION = "apiConfiguration";
+  public static final String SECURE_STORE = "secureStore";
+  public static final String TENANT_LOGIN = "tenantLogin";
+
+  private final Map<String, Boolean> checks = new ConcurrentHashMap<>();
+
+  /**
+   * Adds a check that has to be marked up before the instance is ready.
+   */
+  public Readiness require(String check) {
+    checks.putIfAbsent(check, false);
+    return this;
+  }
+
+  public void up(String check) {
+    checks.put(check, true);
+  }
+
+  public boolean isReady() {
+    return !checks.containsValue(false);
+  }
+
+  public void handle(RoutingContext ctx) {
+    JsonObject status = new JsonObject();
+    checks.forEach((check, up) -> status.put(check, up ? "UP" : "DOWN"));
+    ctx.response()
+      .setStatusCode(isReady() ? 200 : 503)
+      .putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON)
+      .end(new JsonObject().put("ready", isReady()).put("checks", status).encode());
+  }
+}
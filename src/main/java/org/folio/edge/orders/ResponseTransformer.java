@@ -0,0 +1,48 @@
+package org.folio.edge.orders;
+
+import java.io.IOException;
+import java.util.Map;
+
+import io.vertx.core.buffer.Buffer;
+import org.folio.rest.mappings.model.ResponseTransform;
+
+/**
+ * Reshapes a successful JSON response body of a route before it is sent to the client.
+ * <p>
+ * Transformers are compiled once per {@link CompiledRouting} and shared by all requests, so they must be stateless.
+ */
+@FunctionalInterface
+public interface ResponseTransformer {
+
+  String TENANT_ADDRESSES_TO_CONFIGS = "tenantAddressesToConfigs";
+
+  /**
+   * Built-in transforms by the name a {@code responseTransform} refers to with {@code builtIn}.
+   */
+  Map<String, ResponseTransformer> BUILT_IN = Map.of(TENANT_ADDRESSES_TO_CONFIGS, new ConfigResponseConverter());
+
+  /**
+   * @return the transformed body
+   * @throws IOException if the body is not valid JSON or does not have the shape the transform expects
+   */
+  Buffer transform(Buffer body) throws IOException;
+
+  /**
+   * @return the built-in transform named by {@code builtIn} or a {@link DeclarativeResponseTransformer}
+   * @throws IllegalArgumentException if the built-in transform is unknown or combined with other properties
+   */
+  static ResponseTransformer compile(ResponseTransform transform) {
+    if (transform.getBuiltIn() == null) {
+      return DeclarativeResponseTransformer.compile(transform);
+    }
+    ResponseTransformer builtIn = BUILT_IN.get(transform.getBuiltIn().value());
+    if (builtIn == null) {
+      throw new IllegalArgumentException("Unknown built-in response transform: " + transform.getBuiltIn());
+    }
+    if (DeclarativeResponseTransformer.isDeclared(transform)) {
+      throw new IllegalArgumentException("Built-in response transform " + transform.getBuiltIn()
+        + " can not be combined with other properties");
+    }
+    return builtIn;
+  }
+}
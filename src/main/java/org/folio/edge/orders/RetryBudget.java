@@ -0,0 +1,92 @@
+package org.folio.edge.orders;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Bounds the retries and hedged requests of all routes to a share of the calls, so that they can not multiply the
+ * load on a module that is failing.
+ * <p>
+ * Every call deposits {@code ratioPercent} hundredths of a token, up to {@code maxTokens}, and every extra attempt
+ * withdraws a whole token; an attempt without a token is not made. The balance starts full.
+ */
+public class RetryBudget {
+
+  // tokens are counted in hundredths so that the balance is a plain long
+  private static final int SCALE = 100;
+
+  private final int ratioPercent;
+  private final long maxBalance;
+  private final AtomicLong balance;
+  private final LongAdder retries = new LongAdder();
+  private final LongAdder hedges = new LongAdder();
+  private final LongAdder denied = new LongAdder();
+
+  /**
+   * @param ratioPercent extra attempts allowed per 100 calls
+   * @param maxTokens extra attempts that can be saved up for a burst
+   */
+  public RetryBudget(int ratioPercent, int maxTokens) {
+    if (ratioPercent < 0 || ratioPercent > 100 || maxTokens < 0) {
+      throw new IllegalArgumentException("Invalid retry budget: " + ratioPercent + "%, " + maxTokens + " tokens");
+    }
+    this.ratioPercent = ratioPercent;
+    this.maxBalance = (long) maxTokens * SCALE;
+    this.balance = new AtomicLong(maxBalance);
+  }
+
+  /**
+   * Records a call that may earn an extra attempt later.
+   */
+  public void deposit() {
+    long current;
+    do {
+      current = balance.get();
+      if (current >= maxBalance) {
+        return;
+      }
+    } while (!balance.compareAndSet(current, Math.min(maxBalance, current + ratioPercent)));
+  }
+
+  /**
+   * @return {@code true} if a call that failed may be made again
+   */
+  public boolean tryRetry() {
+    return tryWithdraw(retries);
+  }
+
+  /**
+   * @return {@code true} if a slow call may be sent a second time
+   */
+  public boolean tryHedge() {
+    return tryWithdraw(hedges);
+  }
+
+  private boolean tryWithdraw(LongAdder granted) {
+    long current;
+    do {
+      current = balance.get();
+      if (current < SCALE) {
+        denied.increment();
+        return false;
+      }
+    } while (!balance.compareAndSet(current, current - SCALE));
+    granted.increment();
+    return true;
+  }
+
+  /**
+   * @return the tokens left, the retries and hedged requests made, and the extra attempts the budget denied
+   */
+  public JsonObject getStatistics() {
+    return new JsonObject()
+      .put("ratioPercent", ratioPercent)
+      .put("maxTokens", maxBalance / SCALE)
+      .put("tokens", balance.get() / SCALE)
+      .put("retries", retries.sum())
+      .put("hedges", hedges.sum())
+      .put("denied", denied.sum());
+  }
+}
@@ -0,0 +1,159 @@
+package org.folio.edge.orders;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import io.vertx.core.json.JsonObject;
+import org.folio.rest.mappings.model.Routing;
+
+/**
+ * Immutable index of the API configuration, compiled once from the routing list.
+ * <p>
+ * Every routing is compiled into a {@link CompiledRouting}, and routings are grouped into
+ * {@link RouteSlice}s by path pattern and method, so that every Vert.x route gets its own slice
+ * and resolves the purchasing system type with a single hash lookup instead of scanning the
+ * whole configuration.
+ */
+public final class RoutingTable {
+
+  private final List<RouteSlice> slices;
+  private final Map<String, Map<String, RouteSlice>> slicesByPathPattern;
+
+  private RoutingTable(List<RouteSlice> slices) {
+    this.slices = slices;
+    Map<String, Map<String, RouteSlice>> byPathPattern = new HashMap<>();
+    for (RouteSlice slice : slices) {
+      byPathPattern.computeIfAbsent(slice.getPathPattern(), k -> new HashMap<>()).put(slice.getMethod(), slice);
+    }
+    this.slicesByPathPattern = byPathPattern;
+  }
+
+  /**
+   * Compiles the routing configuration into an index. When several entries share the same
+   * path pattern, method and type, the first one wins, as it did with the linear lookup.
+   *
+   * @param routingConfiguration routing entries in configuration order
+   * @return the compiled routing table
+   */
+  public static RoutingTable compile(List<Routing> routingConfiguration) {
+    Map<RouteKey, Map<String, CompiledRouting>> grouped = new LinkedHashMap<>();
+    for (Routing routing : routingConfiguration) {
+      Map<String, CompiledRouting> byType = grouped
+        .computeIfAbsent(new RouteKey(routing.getPathPattern(), routing.getMethod()), k -> new HashMap<>());
+      String type = normalizeType(routing.getType());
+      if (!byType.containsKey(type)) {
+        byType.put(type, CompiledRouting.compile(routing));
+      }
+    }
+
+    List<RouteSlice> slices = new ArrayList<>(grouped.size());
+    grouped.forEach((key, byType) -> slices.add(new RouteSlice(key.pathPattern(), key.method(), Map.copyOf(byType))));
+    return new RoutingTable(Collections.unmodifiableList(slices));
+  }
+
+  /**
+   * @return all slices in configuration order
+   */
+  public List<RouteSlice> slices() {
+    return slices;
+  }
+
+  /**
+   * @return the slice for the path pattern and method, or {@code null} if none is configured
+   */
+  public RouteSlice slice(String pathPattern, String method) {
+    Map<String, RouteSlice> byMethod = slicesByPathPattern.get(pathPattern);
+    return byMethod == null ? null : byMethod.get(method);
+  }
+
+  /**
+   * @return statistics of every cached route, keyed by method, path pattern and type
+   */
+  public JsonObject getResponseCacheStatistics() {
+    JsonObject statistics = new JsonObject();
+    for (RouteSlice slice : slices) {
+      slice.routingByType.forEach((type, routing) -> {
+        if (routing.getResponseCache() != null) {
+          statistics.put(slice.method + ' ' + slice.pathPattern + ' ' + type, routing.getResponseCache().getStatistics());
+        }
+      });
+    }
+    return statistics;
+  }
+
+  /**
+   * @return coalescing counters of every GET route, keyed by method, path pattern and type
+   */
+  public JsonObject getRequestCoalescingStatistics() {
+    JsonObject statistics = new JsonObject();
+    for (RouteSlice slice : slices) {
+      slice.routingByType.forEach((type, routing) -> {
+        if (routing.getInFlightRequests() != null) {
+          statistics.put(slice.method + ' ' + slice.pathPattern + ' ' + type, routing.getInFlightRequests().getStatistics());
+        }
+      });
+    }
+    return statistics;
+  }
+
+  static String normalizeType(String type) {
+    return type.toUpperCase(Locale.ROOT);
+  }
+
+  private record RouteKey(String pathPattern, String method) {
+  }
+
+  /**
+   * Routings sharing one path pattern and method, indexed by normalized purchasing system type.
+   */
+  public static final class RouteSlice {
+
+    private final String pathPattern;
+    private final String method;
+    private final Map<String, CompiledRouting> routingByType;
+    private final Map<String, CompiledRouting> routingByLowerCaseType;
+
+    private RouteSlice(String pathPattern, String method, Map<String, CompiledRouting> routingByType) {
+      this.pathPattern = pathPattern;
+      this.method = method;
+      this.routingByType = routingByType;
+      Map<String, CompiledRouting> lowerCase = new HashMap<>();
+      routingByType.forEach((type, routing) -> lowerCase.putIfAbsent(type.toLowerCase(Locale.ROOT), routing));
+      this.routingByLowerCaseType = Map.copyOf(lowerCase);
+    }
+
+    public String getPathPattern() {
+      return pathPattern;
+    }
+
+    public String getMethod() {
+      return method;
+    }
+
+    /**
+     * The common upper case type is found with a single hash lookup, any other case with a second one of the type
+     * lower-cased, which only allocates if the type is not lower case already.
+     *
+     * @param type purchasing system type, matched case-insensitively
+     * @return the routing for the type, or {@code null} if the type is unknown for this route
+     */
+    public CompiledRouting resolve(String type) {
+      CompiledRouting routing = routingByType.get(type);
+      return routing != null ? routing : routingByLowerCaseType.get(type.toLowerCase(Locale.ROOT));
+    }
+
+    @Override
+    public String toString() {
+      return "RouteSlice{" +
+        "pathPattern='" + pathPattern + '\'' +
+        ", method='" + method + '\'' +
+        ", types=" + routingByType.keySet() +
+        '}';
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package org.folio.edge.orders;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Coalesces concurrent calls with the same key: the first caller runs the call, callers arriving
+ * while it is in flight get the same result instead of starting their own.
+ * <p>
+ * The result is shared, callers must not modify it. Callers that joined from another Vert.x context
+ * are called back on their own context.
+ */
+public class SingleFlight<K, V> {
+
+  private final Map<K, Future<V>> inFlight = new ConcurrentHashMap<>();
+  private final LongAdder calls = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+
+  public Future<V> execute(K key, Supplier<Future<V>> call) {
+    Future<V> pending = inFlight.get(key);
+    if (pending != null) {
+      return join(pending);
+    }
+    Promise<V> promise = Promise.promise();
+    pending = inFlight.putIfAbsent(key, promise.future());
+    if (pending != null) {
+      return join(pending);
+    }
+    calls.increment();
+    Future<V> result;
+    try {
+      result = call.get();
+    } catch (RuntimeException e) {
+      result = Future.failedFuture(e);
+    }
+    result.onComplete(ar -> {
+      // callers arriving after completion start a new call
+      inFlight.remove(key, promise.future());
+      promise.handle(ar);
+    });
+    return promise.future();
+  }
+
+  private Future<V> join(Future<V> pending) {
+    coalesced.increment();
+    Context context = Vertx.currentContext();
+    if (context == null || pending.isComplete()) {
+      return pending;
+    }
+    // the leader completes the future on its own event loop
+    return Future.fromCompletionStage(pending.toCompletionStage(), context);
+  }
+
+  /**
+   * @return number of calls run and of callers that joined one, and the calls currently in flight
+   */
+  public JsonObject getStatistics() {
+    long callCount = calls.sum();
+    long coalescedCount = coalesced.sum();
+    return new JsonObject()
+      .put("calls", callCount)
+      .put("coalesced", coalescedCount)
+      .put("coalesceRatio", callCount + coalescedCount == 0 ? 0d : (double) coalescedCount / (callCount + coalescedCount))
+      .put("inFlight", inFlight.size());
+  }
+}
@@ -0,0 +1,230 @@
+package org.folio.edge.orders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.jsonwebtoken.io.Decoders;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Keeps the Okapi tokens of the institutional users and logs in again before they expire.
+ * <p>
+ * The expiry is read from the {@code exp} claim of the token and capped by the default time to live, which also
+ * applies to tokens without the claim.
+ * A token is refreshed in the background after {@value #REFRESH_AFTER_PERCENT}% of its lifetime if it was used
+ * since it was issued, so vendor requests only wait for a login when a tenant was idle or the refresh kept failing.
+ * A failed refresh is retried until the token expires. Concurrent logins of the same user share one call.
+ */
+public class TokenManager {
+
+  private static final Logger logger = LogManager.getLogger(TokenManager.class);
+
+  static final int REFRESH_AFTER_PERCENT = 80;
+  static final long MIN_RETRY_DELAY_MS = 1_000;
+
+  private final int maxSize;
+  private final long defaultTtlMs;
+  private final LongSupplier clock;
+  private final Map<String, Token> tokens = new ConcurrentHashMap<>();
+  // only tenants that logged in once get counters of their own, the tenant of a failed login comes from any API key
+  private final Map<String, TenantCounters> counters = new ConcurrentHashMap<>();
+  private final LongAdder otherLoginFailures = new LongAdder();
+  private final SingleFlight<String, String> logins = new SingleFlight<>();
+
+  /**
+   * @param defaultTtlMs longest lifetime of a token, also used for tokens without an {@code exp} claim
+   */
+  public TokenManager(int maxSize, long defaultTtlMs) {
+    this(maxSize, defaultTtlMs, System::currentTimeMillis);
+  }
+
+  TokenManager(int maxSize, long defaultTtlMs, LongSupplier clock) {
+    this.maxSize = maxSize;
+    this.defaultTtlMs = defaultTtlMs;
+    this.clock = clock;
+  }
+
+  /**
+   * @param key identifies the user, tokens are refreshed per key
+   * @param login logs the user in and returns the new token, it is kept for background refreshes and must therefore
+   *              not capture anything of the request that asked first, e.g. its client
+   */
+  public Future<String> getToken(Vertx vertx, String key, String tenant, Supplier<Future<String>> login) {
+    Token token = tokens.get(key);
+    long now = clock.getAsLong();
+    if (token != null && token.expiresAt > now) {
+      token.used = true;
+      return Future.succeededFuture(token.value);
+    }
+    return logins.execute(key, () -> login.get()
+      .onSuccess(value -> store(vertx, key, tenant, login, value))
+      .onFailure(t -> loginFailed(tenant)));
+  }
+
+  private void loginFailed(String tenant) {
+    TenantCounters tenantCounters = counters.get(tenant);
+    if (tenantCounters == null) {
+      otherLoginFailures.increment();
+    } else {
+      tenantCounters.loginFailures.increment();
+    }
+  }
+
+  private void store(Vertx vertx, String key, String tenant, Supplier<Future<String>> login, String value) {
+    long now = clock.getAsLong();
+    long expiresAt = expiresAt(value, now);
+    if (!tokens.containsKey(key) && tokens.size() >= maxSize) {
+      logger.warn("store:: {} tokens are kept already, the token of tenant {} is not cached", maxSize, tenant);
+      return;
+    }
+    counters(tenant);
+    Token token = new Token(vertx, value, tenant, login, now, expiresAt);
+    Token previous = tokens.put(key, token);
+    if (previous != null) {
+      vertx.cancelTimer(previous.timerId);
+    }
+    long lifetime = expiresAt - now;
+    scheduleRefresh(vertx, key, token, Math.max(lifetime * REFRESH_AFTER_PERCENT / 100, MIN_RETRY_DELAY_MS));
+  }
+
+  private void scheduleRefresh(Vertx vertx, String key, Token token, long delayMs) {
+    token.timerId = vertx.setTimer(delayMs, id -> refresh(vertx, key, token));
+  }
+
+  private void refresh(Vertx vertx, String key, Token token) {
+    if (tokens.get(key) != token) {
+      return;
+    }
+    if (!token.used) {
+      // nobody asked for the token since it was issued, the next request logs in again
+      tokens.remove(key, token);
+      return;
+    }
+    logins.execute(key, token.login)
+      .onSuccess(value -> {
+        counters(token.tenant).refreshes.increment();
+        store(vertx, key, token.tenant, token.login, value);
+      })
+      .onFailure(t -> {
+        counters(token.tenant).refreshFailures.increment();
+        long remaining = token.expiresAt - clock.getAsLong();
+        if (remaining <= MIN_RETRY_DELAY_MS) {
+          logger.warn("refresh:: Refreshing a token of tenant {} failed, it expires now: {}", token.tenant, t.getMessage());
+          tokens.remove(key, token);
+          return;
+        }
+        logger.warn("refresh:: Refreshing a token of tenant {} failed, retrying: {}", token.tenant, t.getMessage());
+        scheduleRefresh(vertx, key, token, Math.max(remaining / 2, MIN_RETRY_DELAY_MS));
+      });
+  }
+
+  /**
+   * @return the expiry from the {@code exp} claim in epoch milliseconds, at most {@code now} plus the default
+   * time to live, which also applies if the token has no claim or is not a JWT
+   */
+  long expiresAt(String token, long now) {
+    return Math.min(claimedExpiry(token), now + defaultTtlMs);
+  }
+
+  private static long claimedExpiry(String token) {
+    String[] parts = token.split("\\.");
+    if (parts.length >= 2) {
+      try {
+        JsonObject claims = new JsonObject(new String(Decoders.BASE64URL.decode(parts[1]), StandardCharsets.UTF_8));
+        Long exp = claims.getLong("exp");
+        if (exp != null) {
+          return exp * 1000;
+        }
+      } catch (RuntimeException e) {
+        logger.debug("claimedExpiry:: Token claims are not readable: {}", e.getMessage());
+      }
+    }
+    return Long.MAX_VALUE;
+  }
+
+  /**
+   * Drops the tokens whose key matches, the next request of such a user logs in again.
+   *
+   * @return the number of tokens removed
+   */
+  public int invalidateIf(Predicate<String> key) {
+    int removed = 0;
+    for (var entry : tokens.entrySet()) {
+      if (key.test(entry.getKey()) && tokens.remove(entry.getKey(), entry.getValue())) {
+        entry.getValue().vertx.cancelTimer(entry.getValue().timerId);
+        removed++;
+      }
+    }
+    return removed;
+  }
+
+  /**
+   * @return per tenant the number of tokens, the age of the oldest one, and the refresh and login failure counters,
+   * and the login failures of tenants that never logged in
+   */
+  public JsonObject getStatistics() {
+    long now = clock.getAsLong();
+    JsonObject tenants = new JsonObject();
+    counters.forEach((tenant, tenantCounters) -> tenants.put(tenant, new JsonObject()
+      .put("tokens", 0)
+      .put("maxTokenAgeMs", 0L)
+      .put("refreshes", tenantCounters.refreshes.sum())
+      .put("refreshFailures", tenantCounters.refreshFailures.sum())
+      .put("loginFailures", tenantCounters.loginFailures.sum())));
+    tokens.values().forEach(token -> {
+      JsonObject tenant = tenants.getJsonObject(token.tenant);
+      if (tenant != null) {
+        tenant.put("tokens", tenant.getInteger("tokens") + 1);
+        tenant.put("maxTokenAgeMs", Math.max(tenant.getLong("maxTokenAgeMs"), now - token.issuedAt));
+      }
+    });
+    return new JsonObject()
+      .put("size", tokens.size())
+      .put("maxSize", maxSize)
+      .put("tenants", tenants)
+      .put("otherLoginFailures", otherLoginFailures.sum())
+      .put("logins", logins.getStatistics());
+  }
+
+  private TenantCounters counters(String tenant) {
+    return counters.computeIfAbsent(tenant, t -> new TenantCounters());
+  }
+
+  private static final class Token {
+
+    private final Vertx vertx;
+    private final String value;
+    private final String tenant;
+    private final Supplier<Future<String>> login;
+    private final long issuedAt;
+    private final long expiresAt;
+    private volatile boolean used;
+    private volatile long timerId;
+
+    private Token(Vertx vertx, String value, String tenant, Supplier<Future<String>> login, long issuedAt, long expiresAt) {
+      this.vertx = vertx;
+      this.value = value;
+      this.tenant = tenant;
+      this.login = login;
+      this.issuedAt = issuedAt;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  private static final class TenantCounters {
+
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+    private final LongAdder loginFailures = new LongAdder();
+  }
+}
@@ -6,79 +6,377 @@ import static org.folio.edge.core.Constants.TEXT_PLAIN;
 import static org.folio.edge.orders.Constants.HTTP_METHOD_GET;
 import static org.folio.edge.orders.Constants.HTTP_METHOD_POST;
 import static org.folio.edge.orders.Constants.HTTP_METHOD_PUT;
+import static org.folio.edge.orders.Constants.IDEMPOTENCY_KEY_HEADER;
 
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.stream.IntStream;
 
+import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
+import io.vertx.core.Promise;
 import io.vertx.core.json.JsonArray;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.folio.edge.core.utils.OkapiClient;
+import org.folio.edge.orders.CircuitBreakers;
+import org.folio.edge.orders.CompiledRouting;
+import org.folio.edge.orders.ConcurrencyLimiter;
+import org.folio.edge.orders.ExpiringCache;
+import org.folio.edge.orders.LatencyTracker;
 import org.folio.edge.orders.QueryUtil;
+import org.folio.edge.orders.RetryBudget;
+import org.folio.edge.orders.SingleFlight;
 import org.folio.okapi.common.ChattyHttpResponseExpectation;
 import org.folio.okapi.common.ModuleId;
-import org.folio.rest.mappings.model.Routing;
+import org.folio.okapi.common.XOkapiHeaders;
 
 import io.vertx.core.Handler;
 import io.vertx.core.MultiMap;
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClosedException;
 import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.ext.web.client.HttpRequest;
 import io.vertx.ext.web.client.HttpResponse;
 
+/**
+ * Okapi client of a tenant. {@code OrdersHandler} keeps one per tenant and Okapi configuration and sends each
+ * request through a {@link RequestScopedClient} that carries the token of the API key, so the per-request work is
+ * limited to one header map per upstream call.
+ * <p>
+ * The default headers are immutable and pre-encoded. The methods without a token use the token of this client,
+ * which is the one set by {@link #login} or {@link #setToken}.
+ */
 public class AcquisitionsOkapiClient extends OkapiClient {
 
   private static final Logger logger = LogManager.getLogger(AcquisitionsOkapiClient.class);
+  private static final CharSequence ACCEPT = HttpHeaders.createOptimized(APPLICATION_JSON + ", " + APPLICATION_XML + ", " + TEXT_PLAIN);
+  private static final CharSequence OKAPI_TENANT = HttpHeaders.createOptimized(XOkapiHeaders.TENANT);
+  private static final CharSequence OKAPI_TOKEN = HttpHeaders.createOptimized(XOkapiHeaders.TOKEN);
+  private static final CharSequence IDEMPOTENCY_KEY = HttpHeaders.createOptimized(IDEMPOTENCY_KEY_HEADER);
+  private static final int MAX_RETRIES = 2;
+
+  private final Map<CharSequence, CharSequence> sharedHeaders;
+  private final ConcurrencyLimiter limiter;
+  private final CircuitBreakers breakers;
+  private final RetryBudget retryBudget;
 
   public AcquisitionsOkapiClient(OkapiClient client) {
+    this(client, null, null, null);
+  }
+
+  /**
+   * @param limiter bounds the proxied calls in flight per route, {@code null} for no bound
+   * @param breakers fail proxied calls to an upstream path that keeps failing at once, {@code null} for no breakers
+   * @param retryBudget bounds hedged and retried calls, {@code null} for neither
+   */
+  public AcquisitionsOkapiClient(OkapiClient client, ConcurrencyLimiter limiter, CircuitBreakers breakers,
+                                 RetryBudget retryBudget) {
     super(client);
+    this.limiter = limiter;
+    this.breakers = breakers;
+    this.retryBudget = retryBudget;
+    Map<CharSequence, CharSequence> headers = new LinkedHashMap<>();
+    headers.put(HttpHeaders.ACCEPT, ACCEPT);
+    headers.put(HttpHeaders.CONTENT_TYPE, HttpHeaders.createOptimized(APPLICATION_JSON));
+    headers.put(OKAPI_TENANT, HttpHeaders.createOptimized(tenant));
+    this.sharedHeaders = Collections.unmodifiableMap(headers);
+  }
+
+  /**
+   * @param token the Okapi token of the API key the request was made with
+   * @param username the user the token belongs to, responses are only cached if it is known
+   */
+  public RequestScopedClient forRequest(String token, String username) {
+    return new RequestScopedClient(this, token, username);
+  }
+
+  public String getTenant() {
+    return tenant;
   }
 
   @Override
   protected void initDefaultHeaders() {
     super.initDefaultHeaders();
-    defaultHeaders.set(HttpHeaders.ACCEPT, String.format("%s, %s, %s",APPLICATION_JSON, APPLICATION_XML, TEXT_PLAIN));
+    defaultHeaders.set(HttpHeaders.ACCEPT, ACCEPT);
+  }
+
+  public void send(CompiledRouting routing, String payload, MultiMap params, MultiMap headers,
+                   Handler<HttpResponse<Buffer>> responseHandler, Handler<Throwable> exceptionHandler) {
+    send(getToken(), null, routing, payload, params, headers, responseHandler, exceptionHandler);
   }
 
-  public void send(Routing routing, String payload, MultiMap params, MultiMap headers, Handler<HttpResponse<Buffer>> responseHandler,
-                   Handler<Throwable> exceptionHandler) {
+  void send(String token, String username, CompiledRouting routing, String payload, MultiMap params, MultiMap headers,
+            Handler<HttpResponse<Buffer>> responseHandler, Handler<Throwable> exceptionHandler) {
     logger.debug("send:: Trying to send request to Okapi with routing: {}", routing);
-    QueryUtil.addOrUpsertExtraQueryString(routing.getExtraQuery(), params);
-    String requestMethod = QueryUtil.getRequestMethod(routing);
-    String proxyPath = QueryUtil.getProxyPath(routing.getProxyPath(), params);
-    String resultPath = QueryUtil.getResultPath(params, proxyPath);
+    String requestMethod = routing.getRequestMethod();
+    String resultPath = resultPath(routing, params);
+    Buffer body = StringUtils.isEmpty(payload) ? null : Buffer.buffer(payload);
     switch (requestMethod) {
       case HTTP_METHOD_POST:
-        post(
-          okapiURL + resultPath,
-          tenant,
-          StringUtils.isEmpty(payload) ? null : payload,
-          combineHeadersWithDefaults(headers),
-          responseHandler,
-          exceptionHandler);
+        proxied(routing, hasIdempotencyKey(headers),
+          () -> send(client.postAbs(okapiURL + resultPath), requestHeaders(headers, token), body))
+          .onSuccess(responseHandler)
+          .onFailure(exceptionHandler);
         break;
       case HTTP_METHOD_GET:
-        get(
-          okapiURL + resultPath,
-          tenant,
-          combineHeadersWithDefaults(headers),
-          responseHandler,
-          exceptionHandler);
+        getCached(token, username, routing, resultPath, headers, responseHandler, exceptionHandler);
+        break;
+      case HTTP_METHOD_PUT:
+        if (body == null) {
+          logger.info("send:: Payload is empty");
+        }
+        proxied(routing, hasIdempotencyKey(headers),
+          () -> send(client.putAbs(okapiURL + resultPath), requestHeaders(null, token), body))
+          .onSuccess(responseHandler)
+          .onFailure(exceptionHandler);
+        break;
+      default:
+        throw new UnsupportedOperationException(String.format("Unsupported requestMethod %s", requestMethod));
+    }
+  }
+
+  private Future<HttpResponse<Buffer>> send(HttpRequest<Buffer> request, MultiMap headers, Buffer body) {
+    request.headers().setAll(headers);
+    request.timeout(reqTimeout);
+    return body == null ? request.send() : request.sendBuffer(body);
+  }
+
+  /**
+   * Serves a GET from the route's response cache if it has one, under the same key that coalesces it, see
+   * {@link #responseKey}. Only 200 responses are cached.
+   * <p>
+   * A response within the route's stale window is served right away, and the first request that sees it refreshes
+   * it in the background with its own headers.
+   */
+  private void getCached(String token, String username, CompiledRouting routing, String resultPath, MultiMap headers,
+                         Handler<HttpResponse<Buffer>> responseHandler, Handler<Throwable> exceptionHandler) {
+    ExpiringCache<String, HttpResponse<Buffer>> cache = routing.getResponseCache();
+    MultiMap requestHeaders = requestHeaders(headers, token);
+    String key = responseKey(resultPath, requestHeaders);
+    if (cache == null || username == null) {
+      getCoalesced(routing, resultPath, requestHeaders, key)
+        .map(ResponseView::of)
+        .onSuccess(responseHandler)
+        .onFailure(exceptionHandler);
+      return;
+    }
+    ExpiringCache.Lookup<HttpResponse<Buffer>> cached = cache.lookup(key);
+    if (cached != null) {
+      logger.debug("getCached:: Serving {} from the response cache, stale: {}", resultPath, cached.stale());
+      if (cached.refresh()) {
+        refresh(routing, cache, key, resultPath, requestHeaders);
+      }
+      responseHandler.handle(ResponseView.of(cached.value()));
+      return;
+    }
+    getCoalesced(routing, resultPath, requestHeaders, key)
+      .onSuccess(resp -> {
+        if (resp.statusCode() == 200) {
+          cache.put(key, resp);
+        }
+        responseHandler.handle(ResponseView.of(resp));
+      })
+      .onFailure(exceptionHandler);
+  }
+
+  private void refresh(CompiledRouting routing, ExpiringCache<String, HttpResponse<Buffer>> cache, String key,
+                       String resultPath, MultiMap requestHeaders) {
+    getCoalesced(routing, resultPath, requestHeaders, key)
+      .onSuccess(resp -> {
+        if (resp.statusCode() == 200) {
+          cache.put(key, resp);
+        } else {
+          logger.warn("refresh:: Refreshing {} returned status {}, the stale response is kept", resultPath, resp.statusCode());
+          cache.refreshFailed(key);
+        }
+      })
+      .onFailure(t -> {
+        logger.warn("refresh:: Refreshing {} failed, the stale response is kept: {}", resultPath, t.getMessage());
+        cache.refreshFailed(key);
+      });
+  }
+
+  /**
+   * Attaches to an identical GET that is already in flight instead of sending another one, identical meaning the
+   * same {@link #responseKey}. The response is shared by all callers, each one is handed a {@link ResponseView}.
+   */
+  private Future<HttpResponse<Buffer>> getCoalesced(CompiledRouting routing, String resultPath, MultiMap requestHeaders,
+                                                    String key) {
+    String url = okapiURL + resultPath;
+    SingleFlight<String, HttpResponse<Buffer>> inFlightRequests = routing.getInFlightRequests();
+    if (inFlightRequests == null) {
+      return proxied(routing, true, () -> send(client.getAbs(url), requestHeaders, null));
+    }
+    return inFlightRequests.execute(key, () -> proxied(routing, true, () -> send(client.getAbs(url), requestHeaders, null)));
+  }
+
+  /**
+   * Makes a proxied call, hedged if the route asks for it, and retried after a connection reset if it is safe to
+   * repeat. Hedges and retries are only made while the retry budget has tokens.
+   *
+   * @param retryable whether the call may be repeated, a GET or a call with an idempotency key
+   */
+  private Future<HttpResponse<Buffer>> proxied(CompiledRouting routing, boolean retryable,
+                                               Supplier<Future<HttpResponse<Buffer>>> call) {
+    Supplier<Future<HttpResponse<Buffer>>> attempt = () -> guarded(routing, call);
+    if (retryBudget == null) {
+      return attempt.get();
+    }
+    retryBudget.deposit();
+    Supplier<Future<HttpResponse<Buffer>>> hedgedAttempt = routing.getLatencies() == null
+      ? attempt
+      : () -> hedged(routing.getLatencies(), attempt);
+    return retryable ? retried(hedgedAttempt, MAX_RETRIES) : hedgedAttempt.get();
+  }
+
+  private Future<HttpResponse<Buffer>> retried(Supplier<Future<HttpResponse<Buffer>>> attempt, int retries) {
+    return attempt.get().recover(t -> {
+      if (retries > 0 && isConnectionReset(t) && retryBudget.tryRetry()) {
+        logger.info("retried:: Retrying a call to Okapi after {}", t.getMessage());
+        return retried(attempt, retries - 1);
+      }
+      return Future.failedFuture(t);
+    });
+  }
+
+  /**
+   * Sends the call a second time if it takes longer than the route's latency percentile, and answers with whichever
+   * response comes first. The web client can not cancel a request, the later response is read and dropped.
+   */
+  private Future<HttpResponse<Buffer>> hedged(LatencyTracker latencies, Supplier<Future<HttpResponse<Buffer>>> attempt) {
+    long delayMs = TimeUnit.NANOSECONDS.toMillis(latencies.getPercentileNanos());
+    if (delayMs < 1) {
+      // too few latencies measured yet, or too fast to gain from a second call
+      return timed(latencies, attempt);
+    }
+    Promise<HttpResponse<Buffer>> result = Promise.promise();
+    AtomicInteger pending = new AtomicInteger(1);
+    Handler<AsyncResult<HttpResponse<Buffer>>> complete = ar -> {
+      if (ar.succeeded()) {
+        result.tryComplete(ar.result());
+      } else if (pending.decrementAndGet() == 0) {
+        result.tryFail(ar.cause());
+      }
+    };
+    long timerId = vertx.setTimer(delayMs, id -> {
+      if (!result.future().isComplete() && retryBudget.tryHedge()) {
+        pending.incrementAndGet();
+        timed(latencies, attempt).onComplete(complete);
+      }
+    });
+    timed(latencies, attempt).onComplete(ar -> {
+      vertx.cancelTimer(timerId);
+      complete.handle(ar);
+    });
+    return result.future();
+  }
+
+  private static Future<HttpResponse<Buffer>> timed(LatencyTracker latencies, Supplier<Future<HttpResponse<Buffer>>> attempt) {
+    long start = System.nanoTime();
+    return attempt.get().onSuccess(resp -> latencies.record(System.nanoTime() - start));
+  }
+
+  private static boolean hasIdempotencyKey(MultiMap headers) {
+    return headers != null && headers.contains(IDEMPOTENCY_KEY);
+  }
+
+  /**
+   * @return whether the connection to Okapi was closed under the call, which a new connection may not suffer from
+   */
+  static boolean isConnectionReset(Throwable t) {
+    for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+      if (cause instanceof HttpClosedException
+        || (cause instanceof IOException && StringUtils.containsIgnoreCase(cause.getMessage(), "connection reset"))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Makes a proxied call once the limiter has a permit for the tenant and route, unless the circuit breaker of its
+   * upstream path is open. The breaker is inside the limiter, so the time spent waiting for a permit is not counted
+   * as a slow call, and calls shed by the limiter are not recorded. A 5xx response counts as a failure for the
+   * breaker. Cached and coalesced GETs are answered before they get here and are neither limited nor recorded.
+   */
+  private Future<HttpResponse<Buffer>> guarded(CompiledRouting routing, Supplier<Future<HttpResponse<Buffer>>> call) {
+    Supplier<Future<HttpResponse<Buffer>>> breakerCall = breakers == null
+      ? call
+      : () -> breakers.execute(tenant, routing.getRouting().getProxyPath(), call, resp -> resp.statusCode() >= 500);
+    return limiter == null
+      ? breakerCall.get()
+      : limiter.execute(tenant, routing.getRouteName(), breakerCall);
+  }
+
+  /**
+   * Tells GETs apart that may get different responses, for both the response cache and the coalescing: the headers
+   * sent to Okapi that shape the response, tenant, token, whose user's permissions shaped it, module id and
+   * {@code Accept}, and the resolved path with its normalized query, offset and limit.
+   */
+  static String responseKey(String resultPath, MultiMap requestHeaders) {
+    return requestHeaders.get(XOkapiHeaders.TENANT) + '\n' + requestHeaders.get(XOkapiHeaders.TOKEN)
+      + '\n' + requestHeaders.get(XOkapiHeaders.MODULE_ID) + '\n' + requestHeaders.get(HttpHeaders.ACCEPT) + '\n' + resultPath;
+  }
+
+  /**
+   * Pipes the request body to Okapi as it arrives, with back-pressure, instead of reading it into memory first.
+   * The upstream request reuses the {@code Content-Length} of the inbound one and is chunked otherwise.
+   *
+   * @param body the paused request body, usually the inbound {@code HttpServerRequest}
+   */
+  public void sendStream(CompiledRouting routing, ReadStream<Buffer> body, MultiMap params, MultiMap headers,
+                         Handler<HttpResponse<Buffer>> responseHandler, Handler<Throwable> exceptionHandler) {
+    sendStream(getToken(), routing, body, params, headers, responseHandler, exceptionHandler);
+  }
+
+  void sendStream(String token, CompiledRouting routing, ReadStream<Buffer> body, MultiMap params, MultiMap headers,
+                  Handler<HttpResponse<Buffer>> responseHandler, Handler<Throwable> exceptionHandler) {
+    logger.debug("sendStream:: Trying to stream request to Okapi with routing: {}", routing);
+    String contentLength = headers.get(HttpHeaders.CONTENT_LENGTH);
+    boolean chunked = headers.contains(HttpHeaders.TRANSFER_ENCODING);
+    String requestMethod = routing.getRequestMethod();
+    String url = okapiURL + resultPath(routing, params);
+    HttpRequest<Buffer> request;
+    switch (requestMethod) {
+      case HTTP_METHOD_POST:
+        request = client.postAbs(url);
+        request.headers().setAll(requestHeaders(headers, token));
         break;
       case HTTP_METHOD_PUT:
-        put(
-          okapiURL + resultPath,
-          tenant,
-          StringUtils.isEmpty(payload) ? null : payload,
-          defaultHeaders,
-          responseHandler,
-          exceptionHandler);
+        request = client.putAbs(url);
+        request.headers().setAll(requestHeaders(null, token));
         break;
       default:
         throw new UnsupportedOperationException(String.format("Unsupported requestMethod %s", requestMethod));
     }
+    request.timeout(reqTimeout);
+
+    if (contentLength != null) {
+      request.putHeader(HttpHeaders.CONTENT_LENGTH.toString(), contentLength);
+    }
+    // the body stays paused while the call waits for a permit
+    if ("0".equals(contentLength) || (contentLength == null && !chunked)) {
+      proxied(routing, false, () -> {
+        body.resume();
+        return request.send();
+      })
+        .onSuccess(responseHandler)
+        .onFailure(exceptionHandler);
+    } else {
+      // a streamed body is consumed by the first attempt and can not be sent again
+      proxied(routing, false, () -> request.sendStream(body))
+        .onSuccess(responseHandler)
+        .onFailure(exceptionHandler);
+    }
   }
 
   public void put(String url, String tenant, String payload, MultiMap headers, Handler<HttpResponse<Buffer>> responseHandler,
@@ -105,6 +403,35 @@ public class AcquisitionsOkapiClient extends OkapiClient {
     }
   }
 
+  /**
+   * Merges the inbound headers with the default headers and the token in a single map. As with
+   * {@link #combineHeadersWithDefaults}, inbound headers win and {@code Content-Length} is left out.
+   */
+  private MultiMap requestHeaders(MultiMap headers, String token) {
+    MultiMap requestHeaders = HttpHeaders.headers();
+    if (headers != null) {
+      headers.forEach((name, value) -> {
+        if (!HttpHeaders.CONTENT_LENGTH.toString().equalsIgnoreCase(name)) {
+          requestHeaders.add(name, value);
+        }
+      });
+    }
+    sharedHeaders.forEach((name, value) -> {
+      if (!requestHeaders.contains(name)) {
+        requestHeaders.set(name, value);
+      }
+    });
+    if (token != null && !requestHeaders.contains(OKAPI_TOKEN)) {
+      requestHeaders.set(OKAPI_TOKEN, token);
+    }
+    return requestHeaders;
+  }
+
+  private static String resultPath(CompiledRouting routing, MultiMap params) {
+    QueryUtil.addOrUpsertExtraQueryString(routing.getRouting().getExtraQuery(), params);
+    return routing.getProxyPathTemplate().expand(params);
+  }
+
   /**
    * Get the module id header for the interface.
    *
@@ -117,9 +444,13 @@ public class AcquisitionsOkapiClient extends OkapiClient {
    * @return future with the module id
    */
   public Future<String> getModuleIdForMultipleInterface(String interfaceName, String moduleName, MultiMap headers) {
+    return getModuleIdForMultipleInterface(getToken(), interfaceName, moduleName, headers);
+  }
+
+  Future<String> getModuleIdForMultipleInterface(String token, String interfaceName, String moduleName, MultiMap headers) {
     String requestUri = "/_/proxy/tenants/%s/modules?provide=%s"
       .formatted(tenant, interfaceName);
-    return get(okapiURL + requestUri, tenant, combineHeadersWithDefaults(headers))
+    return send(client.getAbs(okapiURL + requestUri), requestHeaders(headers, token), null)
       .expecting(ChattyHttpResponseExpectation.SC_OK)
       .compose(res -> {
         var list = extractModuleIds(res.bodyAsJsonArray(), moduleName);
@@ -0,0 +1,45 @@
+package org.folio.edge.orders.client;
+
+import org.folio.edge.orders.CompiledRouting;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.ext.web.client.HttpResponse;
+
+/**
+ * The tenant's {@link AcquisitionsOkapiClient} as seen by one request: the calls go through the shared client
+ * with the token and user of the request's API key.
+ */
+public final class RequestScopedClient {
+
+  private final AcquisitionsOkapiClient client;
+  private final String token;
+  private final String username;
+
+  RequestScopedClient(AcquisitionsOkapiClient client, String token, String username) {
+    this.client = client;
+    this.token = token;
+    this.username = username;
+  }
+
+  public String getTenant() {
+    return client.getTenant();
+  }
+
+  public void send(CompiledRouting routing, String payload, MultiMap params, MultiMap headers,
+                   Handler<HttpResponse<Buffer>> responseHandler, Handler<Throwable> exceptionHandler) {
+    client.send(token, username, routing, payload, params, headers, responseHandler, exceptionHandler);
+  }
+
+  public void sendStream(CompiledRouting routing, ReadStream<Buffer> body, MultiMap params, MultiMap headers,
+                         Handler<HttpResponse<Buffer>> responseHandler, Handler<Throwable> exceptionHandler) {
+    client.sendStream(token, routing, body, params, headers, responseHandler, exceptionHandler);
+  }
+
+  public Future<String> getModuleIdForMultipleInterface(String interfaceName, String moduleName, MultiMap headers) {
+    return client.getModuleIdForMultipleInterface(token, interfaceName, moduleName, headers);
+  }
+}
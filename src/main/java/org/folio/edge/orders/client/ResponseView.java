@@ -0,0 +1,98 @@
+package org.folio.edge.orders.client;
+
+import java.util.Collections;
+import java.util.List;
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.json.JsonArray;
+import io.vertx.ext.web.client.HttpResponse;
+
+/**
+ * One caller's view of a response shared by coalesced calls or the response cache: its own copy of the headers and
+ * trailers, and a slice of the body, which can not grow into the shared buffer and does not copy its bytes.
+ */
+final class ResponseView implements HttpResponse<Buffer> {
+
+  private final HttpResponse<Buffer> response;
+  private final MultiMap headers;
+  private final MultiMap trailers;
+  private final Buffer body;
+
+  private ResponseView(HttpResponse<Buffer> response) {
+    this.response = response;
+    this.headers = MultiMap.caseInsensitiveMultiMap().addAll(response.headers());
+    this.trailers = MultiMap.caseInsensitiveMultiMap().addAll(response.trailers());
+    this.body = response.body() == null ? null : response.body().slice();
+  }
+
+  static HttpResponse<Buffer> of(HttpResponse<Buffer> response) {
+    return new ResponseView(response);
+  }
+
+  @Override
+  public HttpVersion version() {
+    return response.version();
+  }
+
+  @Override
+  public int statusCode() {
+    return response.statusCode();
+  }
+
+  @Override
+  public String statusMessage() {
+    return response.statusMessage();
+  }
+
+  @Override
+  public MultiMap headers() {
+    return headers;
+  }
+
+  @Override
+  public String getHeader(String headerName) {
+    return headers.get(headerName);
+  }
+
+  @Override
+  public String getHeader(CharSequence headerName) {
+    return headers.get(headerName);
+  }
+
+  @Override
+  public List<String> cookies() {
+    return Collections.unmodifiableList(response.cookies());
+  }
+
+  @Override
+  public MultiMap trailers() {
+    return trailers;
+  }
+
+  @Override
+  public String getTrailer(String trailerName) {
+    return trailers.get(trailerName);
+  }
+
+  @Override
+  public Buffer body() {
+    return body;
+  }
+
+  @Override
+  public Buffer bodyAsBuffer() {
+    return body;
+  }
+
+  @Override
+  public List<String> followedRedirects() {
+    return Collections.unmodifiableList(response.followedRedirects());
+  }
+
+  @Override
+  public JsonArray bodyAsJsonArray() {
+    return body == null ? null : new JsonArray(body);
+  }
+}
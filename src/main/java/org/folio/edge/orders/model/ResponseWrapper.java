@@ -1,8 +1,10 @@
 package org.folio.edge.orders.model;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 import org.folio.edge.core.utils.Mappers;
+import org.folio.edge.orders.BufferOutputStream;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
@@ -11,11 +13,15 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlRootElement;
 
+import io.vertx.core.buffer.Buffer;
+
 @JsonIgnoreProperties(ignoreUnknown = true)
 @JacksonXmlRootElement(localName = "Response")
 @JsonInclude(Include.NON_NULL)
 public final class ResponseWrapper {
 
+  private static final byte[] XML_PROLOG = Mappers.XML_PROLOG.getBytes(StandardCharsets.UTF_8);
+
   @JsonProperty("PoLineNumber")
   public final String poLineNumber;
 
@@ -90,6 +96,24 @@ public final class ResponseWrapper {
     return Mappers.jsonMapper.writeValueAsString(this);
   }
 
+  /**
+   * Serializes straight into a {@link Buffer}, without the intermediate String of {@link #toXml()}.
+   */
+  public Buffer toXmlBuffer() throws IOException {
+    Buffer buffer = Buffer.buffer(XML_PROLOG);
+    Mappers.xmlMapper.writeValue(new BufferOutputStream(buffer), this);
+    return buffer;
+  }
+
+  /**
+   * Serializes straight into a {@link Buffer}, without the intermediate String of {@link #toJson()}.
+   */
+  public Buffer toJsonBuffer() throws IOException {
+    Buffer buffer = Buffer.buffer();
+    Mappers.jsonMapper.writeValue(new BufferOutputStream(buffer), this);
+    return buffer;
+  }
+
   public static ResponseWrapper fromJson(String json) throws IOException {
     return Mappers.jsonMapper.readValue(json, ResponseWrapper.class);
   }
@@ -0,0 +1,119 @@
+package org.folio.edge.orders;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonObject;
+import org.folio.edge.orders.AdmissionController.Priority;
+import org.folio.rest.mappings.model.Routing;
+import org.junit.Test;
+
+public class AdmissionControllerTest {
+
+  private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final AtomicLong now = new AtomicLong();
+  private final AtomicInteger pending = new AtomicInteger();
+
+  @Test
+  public void testPendingCallsByPriority() {
+    AdmissionController admission = new AdmissionController(0, 4, pending::get, now::get);
+
+    pending.set(1);
+    assertTrue(admission.tryAdmit(Priority.LOW));
+    // low priority requests get half of the capacity
+    pending.set(2);
+    assertFalse(admission.tryAdmit(Priority.LOW));
+    assertTrue(admission.tryAdmit(Priority.NORMAL));
+    pending.set(4);
+    assertFalse(admission.tryAdmit(Priority.NORMAL));
+    // high priority requests may use twice of it
+    assertTrue(admission.tryAdmit(Priority.HIGH));
+    pending.set(8);
+    assertFalse(admission.tryAdmit(Priority.HIGH));
+
+    JsonObject statistics = admission.getStatistics();
+    assertEquals(3L, (long) statistics.getLong("admitted"));
+    assertEquals(8, (int) statistics.getInteger("pending"));
+    assertEquals(1L, (long) statistics.getJsonObject("rejected").getLong("LOW"));
+    assertEquals(1L, (long) statistics.getJsonObject("rejected").getLong("NORMAL"));
+    assertEquals(1L, (long) statistics.getJsonObject("rejected").getLong("HIGH"));
+  }
+
+  @Test
+  public void testLimiterCountsPendingCalls() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1, 1000);
+    AdmissionController admission = new AdmissionController(0, 2, limiter::getPending, now::get);
+    Promise<String> upstream = Promise.promise();
+
+    limiter.execute("diku", "GET /orders", upstream::future);
+    assertTrue(admission.tryAdmit(Priority.NORMAL));
+    // the second call waits for a permit, it still counts
+    limiter.execute("diku", "GET /orders", () -> Future.succeededFuture("ok"));
+    assertEquals(2, limiter.getPending());
+    assertFalse(admission.tryAdmit(Priority.NORMAL));
+
+    upstream.complete("ok");
+    assertEquals(0, limiter.getPending());
+    assertTrue(admission.tryAdmit(Priority.NORMAL));
+  }
+
+  @Test
+  public void testEventLoopLag() {
+    AdmissionController admission = new AdmissionController(200, 0, pending::get, now::get);
+    // no lag is known before the first probe
+    now.addAndGet(1_000 * MS);
+    assertTrue(admission.tryAdmit(Priority.LOW));
+    admission.probe();
+
+    // the next probe ran 150 ms late
+    now.addAndGet(250 * MS);
+    admission.probe();
+    assertFalse(admission.tryAdmit(Priority.LOW));
+    assertTrue(admission.tryAdmit(Priority.NORMAL));
+
+    // the one after is overdue while the event loop is blocked
+    now.addAndGet(400 * MS);
+    assertFalse(admission.tryAdmit(Priority.NORMAL));
+    assertTrue(admission.tryAdmit(Priority.HIGH));
+    assertEquals(300L, (long) admission.getStatistics().getLong("eventLoopLagMs"));
+    // a rejected client is asked to wait about as long as the event loop needs to catch up
+    assertEquals("1", ErrorResponse.retryAfter(admission.getLagNanos()).toString());
+    now.addAndGet(1_500 * MS);
+    assertEquals("2", ErrorResponse.retryAfter(admission.getLagNanos()).toString());
+  }
+
+  @Test
+  public void testRoutePriority() {
+    var orders = new Routing();
+    orders.setType("GOBI");
+    orders.setMethod("POST");
+    orders.setPathPattern("/orders");
+    orders.setProxyPath("/gobi/orders");
+    orders.setAdmissionPriority(Routing.AdmissionPriority.HIGH);
+    var funds = new Routing();
+    funds.setType("COMMON");
+    funds.setMethod("GET");
+    funds.setPathPattern("/finance/funds");
+    funds.setProxyPath("/finance/funds");
+    var table = RoutingTable.compile(List.of(orders, funds));
+
+    assertEquals(Priority.HIGH, table.slice("/orders", "POST").resolve("GOBI").getAdmissionPriority());
+    assertEquals(Priority.NORMAL, table.slice("/finance/funds", "GET").resolve("COMMON").getAdmissionPriority());
+  }
+
+  @Test
+  public void testInvalidThresholds() {
+    assertThrows(IllegalArgumentException.class, () -> new AdmissionController(-1, 10, () -> 0));
+    assertThrows(IllegalArgumentException.class, () -> new AdmissionController(100, -1, () -> 0));
+  }
+}
@@ -0,0 +1,166 @@
+package org.folio.edge.orders;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(VertxUnitRunner.class)
+public class ApiConfigurationManagerTest {
+
+  private static final String GOBI_CONFIGURATION = """
+    {"routing": [{"type": "GOBI", "method": "POST", "pathPattern": "/orders", "proxyPath": "/gobi/orders"}]}
+    """;
+  private static final String GOBI_AND_MOSAIC_CONFIGURATION = """
+    {"routing": [
+      {"type": "GOBI", "method": "POST", "pathPattern": "/orders", "proxyPath": "/gobi/orders"},
+      {"type": "MOSAIC", "method": "GET", "pathPattern": "/orders/validate", "proxyPath": "/mosaic/validate"}
+    ]}
+    """;
+  private static final String INVALID_CONFIGURATION = """
+    {"routing": [{"type": "GOBI", "method": "POST", "proxyPath": "/gobi/orders"}]}
+    """;
+
+  private Vertx vertx;
+  private Path configFile;
+
+  @Before
+  public void setUp() throws IOException {
+    vertx = Vertx.vertx();
+    configFile = Files.createTempFile("api_configuration", ".json");
+    write(GOBI_CONFIGURATION, 1_000);
+  }
+
+  @After
+  public void tearDown(TestContext context) throws IOException {
+    Files.deleteIfExists(configFile);
+    vertx.close().onComplete(context.asyncAssertSuccess());
+  }
+
+  @Test
+  public void testInitDefaultConfiguration(TestContext context) {
+    var manager = new ApiConfigurationManager(vertx, null);
+
+    manager.init().onComplete(context.asyncAssertSuccess(table -> {
+      context.assertNotNull(table.slice("/orders", "POST").resolve("GOBI"));
+      context.assertEquals(table, manager.getRoutingTable());
+      context.assertTrue(manager.isLoaded());
+    }));
+  }
+
+  @Test
+  public void testInitNotifiesListeners(TestContext context) {
+    var manager = new ApiConfigurationManager(vertx, configFile.toString());
+    var swaps = new AtomicInteger();
+    manager.onSwap(table -> swaps.incrementAndGet());
+
+    manager.init().onComplete(context.asyncAssertSuccess(table -> context.assertEquals(1, swaps.get())));
+  }
+
+  @Test
+  public void testInitFailsOnMissingFile(TestContext context) throws IOException {
+    Files.delete(configFile);
+    var manager = new ApiConfigurationManager(vertx, configFile.toString());
+
+    manager.init().onComplete(context.asyncAssertFailure(t -> {
+      context.assertFalse(manager.isLoaded());
+      context.assertEquals(0, manager.getRoutingTable().slices().size());
+      context.assertNotNull(manager.getStatus().getString("lastError"));
+      context.assertEquals(0L, manager.getStatus().getLong("reloadFailures"));
+    }));
+  }
+
+  @Test
+  public void testReloadBeforeInitIsNoop(TestContext context) {
+    var manager = new ApiConfigurationManager(vertx, configFile.toString());
+
+    manager.reload().onComplete(context.asyncAssertSuccess(context::assertFalse));
+  }
+
+  @Test
+  public void testParseRejectsConfigurationViolatingSchema() {
+    var manager = new ApiConfigurationManager(vertx, configFile.toString());
+    var e = assertThrows(IllegalArgumentException.class,
+      () -> manager.parse(Buffer.buffer(INVALID_CONFIGURATION)));
+    assertTrue(e.getMessage(), e.getMessage().contains("pathPattern"));
+  }
+
+  @Test
+  public void testReloadSwapsChangedFile(TestContext context) throws IOException {
+    var manager = new ApiConfigurationManager(vertx, configFile.toString());
+    init(manager);
+    var swaps = new AtomicInteger();
+    manager.onSwap(table -> swaps.incrementAndGet());
+    write(GOBI_AND_MOSAIC_CONFIGURATION, 2_000);
+
+    manager.reload().onComplete(context.asyncAssertSuccess(swapped -> {
+      context.assertTrue(swapped);
+      context.assertEquals(1, swaps.get());
+      context.assertNotNull(manager.getRoutingTable().slice("/orders/validate", "GET").resolve("MOSAIC"));
+      context.assertEquals(1L, manager.getStatus().getLong("reloadCount"));
+    }));
+  }
+
+  @Test
+  public void testReloadIgnoresUnchangedContent(TestContext context) throws IOException {
+    var manager = new ApiConfigurationManager(vertx, configFile.toString());
+    var initial = init(manager);
+    write(GOBI_CONFIGURATION, 2_000);
+
+    manager.reload().onComplete(context.asyncAssertSuccess(swapped -> {
+      context.assertFalse(swapped);
+      context.assertEquals(initial, manager.getRoutingTable());
+      context.assertEquals(0L, manager.getStatus().getLong("reloadCount"));
+    }));
+  }
+
+  @Test
+  public void testReloadKeepsCurrentTableOnInvalidFile(TestContext context) throws IOException {
+    var manager = new ApiConfigurationManager(vertx, configFile.toString());
+    var initial = init(manager);
+    write(INVALID_CONFIGURATION, 2_000);
+
+    manager.reload().onComplete(context.asyncAssertFailure(t -> {
+      context.assertEquals(initial, manager.getRoutingTable());
+      var status = manager.getStatus();
+      context.assertEquals(1L, status.getLong("reloadFailures"));
+      context.assertTrue(status.getString("lastError").contains("pathPattern"));
+    }));
+  }
+
+  @Test
+  public void testStatusBeforeReload() {
+    var manager = new ApiConfigurationManager(vertx, configFile.toString());
+    init(manager);
+    var status = manager.getStatus();
+
+    assertEquals(0L, status.getLong("reloadCount").longValue());
+    assertNull(status.getString("lastError"));
+    assertEquals(1, status.getInteger("routes").intValue());
+  }
+
+  private static RoutingTable init(ApiConfigurationManager manager) {
+    return manager.init().toCompletionStage().toCompletableFuture().join();
+  }
+
+  private void write(String content, long lastModifiedMs) throws IOException {
+    Files.writeString(configFile, content, StandardCharsets.UTF_8);
+    Files.setLastModifiedTime(configFile, FileTime.fromMillis(lastModifiedMs));
+  }
+}
@@ -0,0 +1,123 @@
+package org.folio.edge.orders;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonObject;
+import org.folio.edge.orders.CircuitBreakers.CircuitOpenException;
+import org.folio.edge.orders.CircuitBreakers.State;
+import org.junit.Test;
+
+public class CircuitBreakersTest {
+
+  private static final String PATH = "/gobi/orders";
+
+  private final AtomicLong now = new AtomicLong();
+  // 50% failures or 50% slow calls of 4 open the breaker for 1 s, 2 probes close it
+  private final CircuitBreakers breakers = new CircuitBreakers(50, 50, 100, 4, 1000, 2, now::get);
+
+  @Test
+  public void testOpensOnFailureRateAndFailsFast() {
+    call(200);
+    call(500);
+    call(200);
+    assertEquals(State.CLOSED, breakers.getState("diku", PATH));
+    call(503);
+
+    assertEquals(State.OPEN, breakers.getState("diku", PATH));
+    AtomicInteger calls = new AtomicInteger();
+    Future<Integer> rejected = breakers.execute("diku", PATH, () -> Future.succeededFuture(calls.incrementAndGet()), s -> false);
+    assertTrue(rejected.cause() instanceof CircuitOpenException);
+    assertEquals(0, calls.get());
+    assertEquals(State.CLOSED, breakers.getState("college", PATH));
+
+    JsonObject diku = breakers.getStatistics().getJsonObject("tenants").getJsonObject("diku").getJsonObject(PATH);
+    assertEquals("OPEN", diku.getString("state"));
+    assertEquals(1L, (long) diku.getLong("opened"));
+    assertEquals(1L, (long) diku.getLong("rejected"));
+  }
+
+  @Test
+  public void testOpensOnSlowCalls() {
+    for (int i = 0; i < 2; i++) {
+      call(200);
+      Promise<Integer> slow = Promise.promise();
+      breakers.execute("diku", PATH, slow::future, s -> s >= 500);
+      now.addAndGet(TimeUnit.MILLISECONDS.toNanos(150));
+      slow.complete(200);
+    }
+
+    assertEquals(State.OPEN, breakers.getState("diku", PATH));
+  }
+
+  @Test
+  public void testHalfOpenProbesCloseOrReopen() {
+    open();
+    now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+    call(200);
+    assertEquals(State.HALF_OPEN, breakers.getState("diku", PATH));
+    call(500);
+    assertEquals(State.OPEN, breakers.getState("diku", PATH));
+
+    now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    Promise<Integer> first = Promise.promise();
+    Promise<Integer> second = Promise.promise();
+    breakers.execute("diku", PATH, first::future, s -> s >= 500);
+    breakers.execute("diku", PATH, second::future, s -> s >= 500);
+    assertTrue(breakers.execute("diku", PATH, () -> Future.succeededFuture(200), s -> false).failed());
+    first.complete(200);
+    second.complete(200);
+
+    assertEquals(State.CLOSED, breakers.getState("diku", PATH));
+    JsonObject diku = breakers.getStatistics().getJsonObject("tenants").getJsonObject("diku").getJsonObject(PATH);
+    assertEquals(2L, (long) diku.getLong("opened"));
+    assertEquals(2L, (long) diku.getLong("halfOpened"));
+    assertEquals(1L, (long) diku.getLong("closed"));
+    assertEquals(0, (int) diku.getInteger("calls"));
+  }
+
+  @Test
+  public void testTimeWaitingForLimiterIsNotSlow() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 4, 1000);
+    Promise<Integer> first = Promise.promise();
+    limiter.execute("diku", PATH, () -> breakers.execute("diku", PATH, first::future, s -> s >= 500));
+    for (int i = 0; i < 3; i++) {
+      limiter.execute("diku", PATH, () -> breakers.execute("diku", PATH, () -> Future.succeededFuture(200), s -> s >= 500));
+    }
+
+    // only the first call is slow, the others waited for a permit before the breaker saw them
+    now.addAndGet(TimeUnit.MILLISECONDS.toNanos(150));
+    first.complete(200);
+
+    assertEquals(State.CLOSED, breakers.getState("diku", PATH));
+    JsonObject diku = breakers.getStatistics().getJsonObject("tenants").getJsonObject("diku").getJsonObject(PATH);
+    assertEquals(4, (int) diku.getInteger("calls"));
+    assertEquals(25, (int) diku.getInteger("slowCallRate"));
+  }
+
+  @Test
+  public void testInvalidSettings() {
+    assertThrows(IllegalArgumentException.class, () -> new CircuitBreakers(0, 50, 100, 4, 1000, 2));
+    assertThrows(IllegalArgumentException.class, () -> new CircuitBreakers(50, 101, 100, 4, 1000, 2));
+    assertThrows(IllegalArgumentException.class, () -> new CircuitBreakers(50, 50, 100, 0, 1000, 2));
+  }
+
+  private void open() {
+    for (int i = 0; i < 4; i++) {
+      call(500);
+    }
+    assertEquals(State.OPEN, breakers.getState("diku", PATH));
+  }
+
+  private void call(int status) {
+    breakers.execute("diku", PATH, () -> Future.succeededFuture(status), s -> s >= 500);
+  }
+}
@@ -0,0 +1,108 @@
+package org.folio.edge.orders;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.folio.edge.orders.CollectionRecords.Format;
+import org.junit.Test;
+
+public class CollectionRecordsTest {
+
+  private static final JsonObject FUNDS = new JsonObject()
+    .put("funds", new JsonArray()
+      .add(new JsonObject().put("id", "f1").put("code", "AFRICAHIST").put("tags", new JsonObject().put("tagList", new JsonArray())))
+      .add(new JsonObject().put("id", "f2").put("code", "ASIAHIST")))
+    .put("totalRecords", 12);
+
+  @Test
+  public void testJsonArrayRecords() throws IOException {
+    CollectionRecords records = CollectionRecords.read(FUNDS.toBuffer(), Format.JSON_ARRAY);
+
+    assertEquals(2, records.getCount());
+    assertEquals(12, (int) records.getTotalRecords());
+    assertEquals(FUNDS.getJsonArray("funds"), new JsonArray("[" + records.getRecords() + "]"));
+  }
+
+  @Test
+  public void testNdjsonRecords() throws IOException {
+    CollectionRecords records = CollectionRecords.read(FUNDS.toBuffer(), Format.NDJSON);
+
+    String[] lines = records.getRecords().toString().split("\n", -1);
+    assertEquals(3, lines.length);
+    assertEquals(FUNDS.getJsonArray("funds").getJsonObject(0), new JsonObject(lines[0]));
+    assertEquals(FUNDS.getJsonArray("funds").getJsonObject(1), new JsonObject(lines[1]));
+    assertEquals("", lines[2]);
+  }
+
+  @Test
+  public void testTotalRecordsOfResultInfo() throws IOException {
+    Buffer body = new JsonObject()
+      .put("resultInfo", new JsonObject().put("facets", new JsonArray()).put("totalRecords", 7))
+      .put("locations", new JsonArray().add(new JsonObject().put("id", "l1")))
+      .toBuffer();
+
+    CollectionRecords records = CollectionRecords.read(body, Format.JSON_ARRAY);
+
+    assertEquals(1, records.getCount());
+    assertEquals(7, (int) records.getTotalRecords());
+    assertEquals("{\"id\":\"l1\"}", records.getRecords().toString());
+  }
+
+  @Test
+  public void testWithoutTotalOrRecords() throws IOException {
+    CollectionRecords records = CollectionRecords.read(Buffer.buffer("{\"name\":\"none\"}"), Format.NDJSON);
+
+    assertEquals(0, records.getCount());
+    assertNull(records.getTotalRecords());
+    assertEquals(0, records.getRecords().length());
+  }
+
+  @Test
+  public void testReaderSlices() throws IOException {
+    JsonArray funds = new JsonArray();
+    for (int i = 0; i < 100; i++) {
+      funds.add(new JsonObject().put("id", "f" + i).put("name", "Fund " + i));
+    }
+    Buffer body = new JsonObject().put("funds", funds).put("totalRecords", 100).toBuffer();
+
+    Buffer all = Buffer.buffer();
+    int slices = 0;
+    try (CollectionRecords.Reader reader = CollectionRecords.reader(body, Format.JSON_ARRAY)) {
+      Buffer slice;
+      while ((slice = reader.next(256)) != null) {
+        assertTrue(slice.length() < 256 + 64);
+        all.appendBuffer(slice);
+        slices++;
+      }
+      assertEquals(100, reader.getCount());
+      assertEquals(100, (int) reader.getTotalRecords());
+    }
+
+    assertTrue(slices > 10);
+    assertEquals(funds, new JsonArray("[" + all + "]"));
+    assertEquals(CollectionRecords.read(body, Format.JSON_ARRAY).getRecords(), all);
+  }
+
+  @Test
+  public void testReaderFailsOnTruncatedBody() throws IOException {
+    Buffer body = Buffer.buffer("{\"funds\":[{\"id\":\"f1\"},{\"id\":");
+
+    try (CollectionRecords.Reader reader = CollectionRecords.reader(body, Format.NDJSON)) {
+      assertThrows(JsonParseException.class, () -> reader.next(Integer.MAX_VALUE));
+    }
+  }
+
+  @Test
+  public void testRejectsNonCollection() {
+    assertThrows(JsonParseException.class, () -> CollectionRecords.read(Buffer.buffer("[{\"id\":\"f1\"}]"), Format.JSON_ARRAY));
+    assertThrows(JsonParseException.class, () -> CollectionRecords.read(Buffer.buffer(""), Format.JSON_ARRAY));
+  }
+}
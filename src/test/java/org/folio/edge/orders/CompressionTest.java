@@ -0,0 +1,92 @@
+package org.folio.edge.orders;
+
+import static org.folio.edge.orders.Compression.DEFLATE;
+import static org.folio.edge.orders.Compression.GZIP;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import io.vertx.core.buffer.Buffer;
+import org.folio.rest.mappings.model.Routing;
+import org.junit.Test;
+
+public class CompressionTest {
+
+  private static final Buffer BODY = Buffer.buffer("{\"locations\":[" + "{\"name\":\"Main Library\"},".repeat(500) + "{}]}");
+
+  @Test
+  public void testNegotiate() {
+    assertNull(Compression.negotiate(null));
+    assertNull(Compression.negotiate("br"));
+    assertNull(Compression.negotiate("gzip;q=0, deflate;q=0"));
+    assertEquals(GZIP, Compression.negotiate("gzip"));
+    assertEquals(GZIP, Compression.negotiate("deflate, gzip"));
+    assertEquals(GZIP, Compression.negotiate("*"));
+    assertEquals(DEFLATE, Compression.negotiate("gzip;q=0.5, deflate"));
+    assertEquals(DEFLATE, Compression.negotiate("br, deflate"));
+    assertEquals(DEFLATE, Compression.negotiate("gzip;q=0, *"));
+  }
+
+  @Test
+  public void testEncodeAndDecodeGzip() throws IOException {
+    Buffer encoded = Compression.encode(BODY, GZIP, 6);
+
+    assertTrue(encoded.length() < BODY.length());
+    assertEquals(BODY, Compression.decode(encoded, GZIP, Compression.MAX_DECODED_LENGTH));
+  }
+
+  @Test
+  public void testEncodeAndDecodeDeflate() throws IOException {
+    Buffer encoded = Compression.encode(BODY, DEFLATE, 1);
+
+    assertTrue(encoded.length() < BODY.length());
+    assertEquals(BODY, Compression.decode(encoded, "DEFLATE", Compression.MAX_DECODED_LENGTH));
+  }
+
+  @Test
+  public void testDecodeSlice() throws IOException {
+    Buffer encoded = Compression.encode(BODY, GZIP, 6);
+    Buffer framed = Buffer.buffer("prefix").appendBuffer(encoded).appendString("suffix");
+
+    assertEquals(BODY, Compression.decode(framed.slice(6, 6 + encoded.length()), GZIP, Compression.MAX_DECODED_LENGTH));
+  }
+
+  @Test
+  public void testDecodeIdentity() throws IOException {
+    assertEquals(BODY, Compression.decode(BODY, null, 1));
+    assertEquals(BODY, Compression.decode(BODY, "identity", 1));
+  }
+
+  @Test
+  public void testDecodeRejectsOversizedBody() throws IOException {
+    Buffer encoded = Compression.encode(BODY, GZIP, 9);
+
+    var e = assertThrows(IOException.class, () -> Compression.decode(encoded, GZIP, 1024));
+    assertTrue(e.getMessage(), e.getMessage().contains("1024"));
+  }
+
+  @Test
+  public void testDecodeRejectsUnsupportedEncoding() {
+    assertFalse(Compression.isSupported("br"));
+    assertThrows(IOException.class, () -> Compression.decode(BODY, "br", Compression.MAX_DECODED_LENGTH));
+  }
+
+  @Test
+  public void testRoutingCompressionSettings() {
+    var routing = new Routing();
+    routing.setMethod("GET");
+    routing.setProxyPath("/organizations");
+
+    var compiled = CompiledRouting.compile(routing);
+    assertFalse(compiled.isCompressible(CompiledRouting.DEFAULT_COMPRESSION_MIN_SIZE - 1));
+    assertTrue(compiled.isCompressible(CompiledRouting.DEFAULT_COMPRESSION_MIN_SIZE));
+    assertEquals(CompiledRouting.DEFAULT_COMPRESSION_LEVEL, compiled.getCompressionLevel());
+
+    routing.setCompressionMinSize(-1);
+    assertFalse(CompiledRouting.compile(routing).isCompressible(Integer.MAX_VALUE));
+  }
+}
@@ -0,0 +1,133 @@
+package org.folio.edge.orders;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.folio.edge.orders.ConcurrencyLimiter.LimitExceededException;
+import org.junit.Test;
+
+public class ConcurrencyLimiterTest {
+
+  private static final String ROUTE = "POST /orders";
+
+  @Test
+  public void testCallsOverLimitWaitAndAreShedWhenQueueIsFull() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 10, 1, 1000);
+    List<Promise<String>> upstream = new ArrayList<>();
+
+    Future<String> first = limiter.execute("diku", ROUTE, () -> call(upstream));
+    limiter.execute("diku", ROUTE, () -> call(upstream));
+    Future<String> waiting = limiter.execute("diku", ROUTE, () -> call(upstream));
+    Future<String> shed = limiter.execute("diku", ROUTE, () -> call(upstream));
+    Future<String> otherTenant = limiter.execute("college", ROUTE, () -> call(upstream));
+
+    assertEquals(3, upstream.size());
+    assertFalse(waiting.isComplete());
+    assertTrue(shed.cause() instanceof LimitExceededException);
+    assertFalse(otherTenant.isComplete());
+    JsonObject diku = limiter.getStatistics().getJsonObject("tenants").getJsonObject("diku").getJsonObject(ROUTE);
+    assertEquals(2, (int) diku.getInteger("inFlight"));
+    assertEquals(1, (int) diku.getInteger("queueDepth"));
+    assertEquals(1L, (long) diku.getLong("rejected"));
+
+    upstream.get(0).complete("ok");
+    assertEquals("ok", first.result());
+    assertEquals(4, upstream.size());
+    upstream.get(3).complete("queued");
+    assertEquals("queued", waiting.result());
+  }
+
+  @Test
+  public void testLimitGrowsWhileInUseAndBacksOffOnFailures() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 3, 0, 1000);
+    for (int i = 0; i < 20; i++) {
+      List<Promise<String>> upstream = new ArrayList<>();
+      limiter.execute("diku", ROUTE, () -> call(upstream));
+      limiter.execute("diku", ROUTE, () -> call(upstream));
+      upstream.forEach(p -> p.complete("ok"));
+    }
+    assertEquals(3, limit(limiter));
+
+    for (int i = 0; i < 10; i++) {
+      limiter.execute("diku", ROUTE, () -> Future.failedFuture(new IllegalStateException("Connection reset")));
+    }
+    assertEquals(1, limit(limiter));
+  }
+
+  @Test
+  public void testCallsRejectedByOpenBreakerKeepLimit() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 3, 0, 1000);
+    CircuitBreakers breakers = new CircuitBreakers(50, 50, 100, 4, 1000, 2);
+    for (int i = 0; i < 4; i++) {
+      breakers.execute("diku", ROUTE, () -> Future.succeededFuture(500), s -> s >= 500);
+    }
+
+    for (int i = 0; i < 10; i++) {
+      Future<Integer> rejected = limiter.execute("diku", ROUTE,
+        () -> breakers.execute("diku", ROUTE, () -> Future.succeededFuture(200), s -> s >= 500));
+      assertTrue(rejected.cause() instanceof CircuitBreakers.CircuitOpenException);
+    }
+    assertEquals(2, limit(limiter));
+  }
+
+  @Test
+  public void testThrowingCallReleasesPermit() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 0, 1000);
+
+    Future<String> failed = limiter.execute("diku", ROUTE, () -> {
+      throw new IllegalStateException("No route");
+    });
+
+    assertEquals("No route", failed.cause().getMessage());
+    assertTrue(limiter.execute("diku", ROUTE, () -> Future.succeededFuture("ok")).succeeded());
+  }
+
+  @Test
+  public void testWaitingCallTimesOut() throws Exception {
+    Vertx vertx = Vertx.vertx();
+    try {
+      ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 5, 50);
+      CompletableFuture<Throwable> result = new CompletableFuture<>();
+      vertx.runOnContext(v -> {
+        limiter.execute("diku", ROUTE, () -> Promise.<String>promise().future());
+        limiter.execute("diku", ROUTE, () -> Future.succeededFuture("ok"))
+          .onComplete(ar -> result.complete(ar.cause()));
+      });
+
+      assertTrue(result.get(5, TimeUnit.SECONDS) instanceof LimitExceededException);
+      JsonObject diku = limiter.getStatistics().getJsonObject("tenants").getJsonObject("diku").getJsonObject(ROUTE);
+      assertEquals(1L, (long) diku.getLong("timedOut"));
+      assertEquals(0, (int) diku.getInteger("queueDepth"));
+    } finally {
+      vertx.close();
+    }
+  }
+
+  @Test
+  public void testInvalidLimits() {
+    assertThrows(IllegalArgumentException.class, () -> new ConcurrencyLimiter(0, 10, 1, 1000));
+    assertThrows(IllegalArgumentException.class, () -> new ConcurrencyLimiter(10, 5, 1, 1000));
+    assertThrows(IllegalArgumentException.class, () -> new ConcurrencyLimiter(1, 5, -1, 1000));
+  }
+
+  private static Future<String> call(List<Promise<String>> upstream) {
+    Promise<String> promise = Promise.promise();
+    upstream.add(promise);
+    return promise.future();
+  }
+
+  private static int limit(ConcurrencyLimiter limiter) {
+    return limiter.getStatistics().getJsonObject("tenants").getJsonObject("diku").getJsonObject(ROUTE).getInteger("limit");
+  }
+}
@@ -3,8 +3,14 @@ package org.folio.edge.orders;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import org.junit.Test;
@@ -14,7 +20,7 @@ public class ConfigResponseConverterTest {
   private final ConfigResponseConverter converter = new ConfigResponseConverter();
 
   @Test
-  public void testFromTenantAddresses() {
+  public void testFromTenantAddresses() throws IOException {
     JsonObject metadata = new JsonObject()
       .put("createdDate", "2026-03-18T07:44:52.875+00:00")
       .put("createdByUserId", "user-1")
@@ -33,7 +39,7 @@ public class ConfigResponseConverterTest {
         .put("totalRecords", 1)
         .put("diagnostics", new JsonArray()));
 
-    JsonObject result = converter.fromTenantAddresses(input);
+    JsonObject result = convert(input);
 
     // totalRecords derived from configs size
     assertEquals(1, result.getInteger("totalRecords").intValue());
@@ -61,21 +67,21 @@ public class ConfigResponseConverterTest {
   }
 
   @Test
-  public void testFromTenantAddressesEmptyList() {
+  public void testFromTenantAddressesEmptyList() throws IOException {
     JsonObject input = new JsonObject()
       .put("addresses", new JsonArray())
       .put("resultInfo", new JsonObject()
         .put("totalRecords", 0)
         .put("diagnostics", new JsonArray()));
 
-    JsonObject result = converter.fromTenantAddresses(input);
+    JsonObject result = convert(input);
 
     assertEquals(0, result.getInteger("totalRecords").intValue());
     assertTrue(result.getJsonArray("configs").isEmpty());
   }
 
   @Test
-  public void testFromTenantAddressesWithoutMetadata() {
+  public void testFromTenantAddressesWithoutMetadata() throws IOException {
     JsonObject address = new JsonObject()
       .put("id", "addr-2")
       .put("name", "Branch")
@@ -85,7 +91,7 @@ public class ConfigResponseConverterTest {
       .put("addresses", new JsonArray().add(address))
       .put("resultInfo", new JsonObject().put("totalRecords", 1));
 
-    JsonObject result = converter.fromTenantAddresses(input);
+    JsonObject result = convert(input);
 
     assertEquals(1, result.getInteger("totalRecords").intValue());
     JsonObject config = result.getJsonArray("configs").getJsonObject(0);
@@ -94,7 +100,7 @@ public class ConfigResponseConverterTest {
   }
 
   @Test
-  public void testTotalRecordsDerivedFromConfigsSize() {
+  public void testTotalRecordsDerivedFromConfigsSize() throws IOException {
     JsonArray addresses = new JsonArray()
       .add(new JsonObject().put("id", "a1").put("name", "n1").put("address", "a1"))
       .add(new JsonObject().put("id", "a2").put("name", "n2").put("address", "a2"))
@@ -103,9 +109,56 @@ public class ConfigResponseConverterTest {
     JsonObject input = new JsonObject()
       .put("addresses", addresses);
 
-    JsonObject result = converter.fromTenantAddresses(input);
+    JsonObject result = convert(input);
 
     assertEquals(3, result.getInteger("totalRecords").intValue());
     assertEquals(3, result.getJsonArray("configs").size());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testFieldsInAnyOrderAndUnknownFieldsSkipped() throws IOException {
+    Buffer input = Buffer.buffer("{\"resultInfo\":{\"totalRecords\":1,\"diagnostics\":[{\"message\":\"x\"}]},"
+      + "\"addresses\":[{\"metadata\":{\"createdByUserId\":\"user-1\",\"tags\":[1,{\"a\":null}]},"
+      + "\"extra\":[[]],\"address\":\"1 \\\"Quoted\\\" Rd\",\"name\":\"Depot\",\"id\":\"addr-9\"}]}");
+
+    JsonObject result = new JsonObject(converter.fromTenantAddresses(input));
+
+    assertEquals(1, result.getInteger("totalRecords").intValue());
+    assertEquals(2, result.size());
+    JsonObject config = result.getJsonArray("configs").getJsonObject(0);
+    assertEquals("addr-9", config.getString("id"));
+    assertEquals(new JsonObject().put("createdByUserId", "user-1").put("tags", new JsonArray().add(1).add(new JsonObject().putNull("a"))),
+      config.getJsonObject("metadata"));
+    JsonObject value = new JsonObject(config.getString("value"));
+    assertEquals("Depot", value.getString("name"));
+    assertEquals("1 \"Quoted\" Rd", value.getString("address"));
+  }
+
+  @Test
+  public void testMissingAndNullFields() throws IOException {
+    JsonObject input = new JsonObject()
+      .put("addresses", new JsonArray().add(new JsonObject().putNull("name").putNull("metadata")));
+
+    JsonObject config = convert(input).getJsonArray("configs").getJsonObject(0);
+
+    assertTrue(config.containsKey("id"));
+    assertNull(config.getString("id"));
+    assertTrue(config.containsKey("metadata"));
+    assertNull(config.getValue("metadata"));
+    JsonObject value = new JsonObject(config.getString("value"));
+    assertNull(value.getString("name"));
+    assertEquals("", value.getString("address"));
+  }
+
+  @Test
+  public void testMalformedResponse() {
+    assertThrows(JsonParseException.class, () -> converter.fromTenantAddresses(Buffer.buffer("[]")));
+    assertThrows(JsonParseException.class, () -> converter.fromTenantAddresses(Buffer.buffer("{\"addresses\":[\"a\"]}")));
+    assertThrows(JsonParseException.class, () -> converter.fromTenantAddresses(Buffer.buffer("{\"addresses\":[{\"id\":1}]}")));
+    assertThrows(IOException.class, () -> converter.fromTenantAddresses(Buffer.buffer("{\"addresses\":[{\"id\"")));
+  }
+
+  private JsonObject convert(JsonObject input) throws IOException {
+    return new JsonObject(converter.fromTenantAddresses(input.toBuffer()));
+  }
+}
@@ -0,0 +1,119 @@
+package org.folio.edge.orders;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.vertx.core.Vertx;
+import org.folio.edge.core.security.SecureStore;
+import org.folio.edge.core.utils.ApiKeyUtils;
+import org.folio.edge.core.utils.ApiKeyUtils.ClientInfo;
+import org.folio.edge.core.utils.ApiKeyUtils.MalformedApiKeyException;
+import org.folio.edge.core.utils.OkapiClient;
+import org.folio.edge.core.utils.OkapiClientFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CredentialCacheTest {
+
+  private static final String API_KEY = ApiKeyUtils.generateApiKey(10, "diku", "diku");
+
+  private final AtomicInteger lookups = new AtomicInteger();
+  private Vertx vertx;
+  private CredentialCache credentials;
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+    SecureStore secureStore = new SecureStore(new Properties()) {
+      @Override
+      public String get(String clientId, String tenant, String username) throws NotFoundException {
+        lookups.incrementAndGet();
+        if (!"diku".equals(tenant)) {
+          throw new NotFoundException("No password for " + username + " of " + tenant);
+        }
+        return "password";
+      }
+    };
+    credentials = new CredentialCache(secureStore, 10, 60_000, 60_000, 60_000);
+  }
+
+  @After
+  public void tearDown() {
+    vertx.close().await();
+  }
+
+  @Test
+  public void testDecodeCachesValidAndInvalidKeys() throws MalformedApiKeyException {
+    ClientInfo clientInfo = credentials.decode(API_KEY);
+    assertEquals("diku", clientInfo.tenantId);
+    assertEquals(clientInfo, credentials.decode(API_KEY));
+
+    assertThrows(MalformedApiKeyException.class, () -> credentials.decode("bogus"));
+    assertThrows(MalformedApiKeyException.class, () -> credentials.decode("bogus"));
+
+    var statistics = credentials.getStatistics();
+    assertEquals(1L, statistics.getJsonObject("apiKeys").getLong("hits").longValue());
+    assertEquals(1L, statistics.getJsonObject("invalidApiKeys").getLong("hits").longValue());
+  }
+
+  @Test
+  public void testTokenIsCachedAfterLogin() throws Exception {
+    OkapiClient client = mock(OkapiClient.class);
+    when(client.login(anyString(), anyString())).thenReturn(CompletableFuture.completedFuture("token"));
+    OkapiClientFactory ocf = okapiClientFactory(client);
+    ClientInfo clientInfo = credentials.decode(API_KEY);
+
+    assertEquals("token", credentials.getToken(vertx, ocf, clientInfo).toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS));
+    assertEquals("token", credentials.getToken(vertx, ocf, clientInfo).toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS));
+
+    verify(client, times(1)).login("diku", "password");
+    assertEquals(1, lookups.get());
+  }
+
+  @Test
+  public void testUnknownUserIsRejectedWithoutAnotherLookup() throws Exception {
+    OkapiClientFactory ocf = okapiClientFactory(mock(OkapiClient.class));
+    ClientInfo clientInfo = credentials.decode(ApiKeyUtils.generateApiKey(10, "bogus", "diku"));
+
+    for (int i = 0; i < 2; i++) {
+      var token = credentials.getToken(vertx, ocf, clientInfo).toCompletionStage().toCompletableFuture();
+      var e = assertThrows(Exception.class, () -> token.get(5, TimeUnit.SECONDS));
+      assertTrue(e.getCause() instanceof SecureStore.NotFoundException);
+    }
+    assertEquals(1, lookups.get());
+  }
+
+  @Test
+  public void testInvalidateTenant() throws Exception {
+    OkapiClient client = mock(OkapiClient.class);
+    when(client.login(anyString(), anyString())).thenReturn(CompletableFuture.completedFuture("token"));
+    OkapiClientFactory ocf = okapiClientFactory(client);
+    ClientInfo clientInfo = credentials.decode(API_KEY);
+    credentials.getToken(vertx, ocf, clientInfo).toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+    assertEquals(0, credentials.invalidate("college"));
+    assertEquals(3, credentials.invalidate("diku"));
+    credentials.getToken(vertx, ocf, clientInfo).toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    assertEquals(2, lookups.get());
+    // every login gets a client of its own
+    verify(ocf, times(2)).getOkapiClient("diku");
+  }
+
+  private static OkapiClientFactory okapiClientFactory(OkapiClient client) {
+    OkapiClientFactory ocf = mock(OkapiClientFactory.class);
+    when(ocf.getOkapiClient(anyString())).thenReturn(client);
+    return ocf;
+  }
+}
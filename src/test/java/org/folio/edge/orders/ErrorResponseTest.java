@@ -0,0 +1,51 @@
+package org.folio.edge.orders;
+
+import static org.folio.edge.core.Constants.MSG_ACCESS_DENIED;
+import static org.folio.edge.core.Constants.MSG_REQUEST_TIMEOUT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.folio.edge.core.utils.Mappers;
+import org.folio.edge.orders.Constants.ErrorCodes;
+import org.folio.edge.orders.model.ErrorWrapper;
+import org.folio.edge.orders.model.ResponseWrapper;
+import org.junit.Test;
+
+public class ErrorResponseTest {
+
+  @Test
+  public void testAccessDenied() throws IOException {
+    ResponseWrapper expected = new ResponseWrapper(new ErrorWrapper(ErrorCodes.ACCESS_DENIED.name(), MSG_ACCESS_DENIED));
+
+    assertEquals(401, ErrorResponse.ACCESS_DENIED.getStatus());
+    assertEquals(expected.toJson(), ErrorResponse.ACCESS_DENIED.getBody(true).toString());
+    assertEquals(expected.toXml(), ErrorResponse.ACCESS_DENIED.getBody(false).toString());
+  }
+
+  @Test
+  public void testRequestTimeout() throws IOException {
+    ResponseWrapper expected = new ResponseWrapper(new ErrorWrapper(ErrorCodes.REQUEST_TIMEOUT.name(), MSG_REQUEST_TIMEOUT));
+
+    assertEquals(408, ErrorResponse.REQUEST_TIMEOUT.getStatus());
+    assertEquals(expected, ResponseWrapper.fromJson(ErrorResponse.REQUEST_TIMEOUT.getBody(true).toString()));
+    assertEquals(expected, ResponseWrapper.fromXml(ErrorResponse.REQUEST_TIMEOUT.getBody(false).toString()));
+  }
+
+  @Test
+  public void testBodiesAreSerializedOnce() {
+    assertSame(ErrorResponse.ACCESS_DENIED.getBody(true), ErrorResponse.ACCESS_DENIED.getBody(true));
+    assertSame(ErrorResponse.ACCESS_DENIED.getBody(false), ErrorResponse.ACCESS_DENIED.getBody(false));
+  }
+
+  @Test
+  public void testStreamedDynamicMessageMatchesStringSerialization() throws IOException {
+    ResponseWrapper resp = new ResponseWrapper(new ErrorWrapper(ErrorCodes.BAD_REQUEST.name(), "Unknown <type> & ümläut"));
+
+    assertEquals(resp.toJson(), resp.toJsonBuffer().toString());
+    assertEquals(resp.toXml(), resp.toXmlBuffer().toString());
+    assertTrue(resp.toXmlBuffer().toString().startsWith(Mappers.XML_PROLOG));
+  }
+}
@@ -0,0 +1,117 @@
+package org.folio.edge.orders;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class ExpiringCacheTest {
+
+  private final AtomicLong now = new AtomicLong();
+
+  @Test
+  public void testGetReturnsValueUntilExpired() {
+    var cache = new ExpiringCache<String, String>(10, 1_000, now::get);
+    cache.put("diku", "locations");
+
+    now.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+    assertEquals("locations", cache.get("diku"));
+
+    now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+    assertNull(cache.get("diku"));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() {
+    var cache = new ExpiringCache<String, String>(2, 1_000, now::get);
+    cache.put("a", "1");
+    cache.put("b", "2");
+    cache.get("a");
+    cache.put("c", "3");
+
+    assertEquals("1", cache.get("a"));
+    assertNull(cache.get("b"));
+    assertEquals("3", cache.get("c"));
+  }
+
+  @Test
+  public void testStatistics() {
+    var cache = new ExpiringCache<String, String>(1, 1_000, now::get);
+    cache.put("a", "1");
+    cache.get("a");
+    cache.get("b");
+    cache.put("b", "2");
+
+    var statistics = cache.getStatistics();
+    assertEquals(1, statistics.getInteger("size").intValue());
+    assertEquals(1L, statistics.getLong("hits").longValue());
+    assertEquals(1L, statistics.getLong("misses").longValue());
+    assertEquals(1L, statistics.getLong("evictions").longValue());
+    assertEquals(1000L, statistics.getLong("ttlMs").longValue());
+  }
+
+  @Test
+  public void testLookupServesStaleEntryAndAsksOnceForRefresh() {
+    var cache = new ExpiringCache<String, String>(10, 1_000, 500, now::get, () -> 0);
+    cache.put("diku", "locations");
+
+    assertFalse(cache.lookup("diku").stale());
+    now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1_000));
+    assertNull(cache.get("diku"));
+
+    var first = cache.lookup("diku");
+    assertEquals("locations", first.value());
+    assertTrue(first.stale());
+    assertTrue(first.refresh());
+    assertFalse(cache.lookup("diku").refresh());
+
+    cache.refreshFailed("diku");
+    assertTrue(cache.lookup("diku").refresh());
+
+    now.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+    assertNull(cache.lookup("diku"));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testPutReplacesStaleEntry() {
+    var cache = new ExpiringCache<String, String>(10, 1_000, 500, now::get, () -> 0);
+    cache.put("diku", "old");
+    now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1_200));
+    cache.lookup("diku");
+    cache.put("diku", "new");
+
+    var lookup = cache.lookup("diku");
+    assertEquals("new", lookup.value());
+    assertFalse(lookup.stale());
+    assertEquals(1L, cache.getStatistics().getLong("staleHits").longValue());
+  }
+
+  @Test
+  public void testJitterShortensTimeToLiveOnlyWithStaleWindow() {
+    var jittered = new ExpiringCache<String, String>(10, 1_000, 500, now::get, () -> 1);
+    var plain = new ExpiringCache<String, String>(10, 1_000, 0, now::get, () -> 1);
+    jittered.put("diku", "locations");
+    plain.put("diku", "locations");
+
+    now.addAndGet(TimeUnit.MILLISECONDS.toNanos(900));
+    assertNull(jittered.get("diku"));
+    assertEquals("locations", jittered.lookup("diku").value());
+    assertEquals("locations", plain.get("diku"));
+  }
+
+  @Test
+  public void testInvalidate() {
+    var cache = new ExpiringCache<String, String>(10, 1_000, now::get);
+    cache.put("a", "1");
+    cache.invalidate("a");
+
+    assertNull(cache.get("a"));
+  }
+}
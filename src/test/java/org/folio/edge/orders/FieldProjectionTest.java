@@ -0,0 +1,91 @@
+package org.folio.edge.orders;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+public class FieldProjectionTest {
+
+  private static final JsonObject ORGANIZATIONS = new JsonObject()
+    .put("organizations", new JsonArray()
+      .add(new JsonObject()
+        .put("id", "o1")
+        .put("name", "Amazon")
+        .put("code", "AMAZ")
+        .put("addresses", new JsonArray()
+          .add(new JsonObject().put("city", "Seattle").put("zipCode", "98101"))
+          .add(new JsonObject().put("city", "Austin").put("zipCode", "73301")))
+        .put("metadata", new JsonObject().put("createdByUserId", "u1")))
+      .add(new JsonObject().put("id", "o2").put("code", "GOBI").put("addresses", new JsonArray())))
+    .put("totalRecords", 2)
+    .put("resultInfo", new JsonObject().put("totalRecords", 2));
+
+  @Test
+  public void testProjectsRecordsOfCollection() throws IOException {
+    JsonObject result = project("id, name", ORGANIZATIONS);
+
+    assertEquals(new JsonObject()
+      .put("organizations", new JsonArray()
+        .add(new JsonObject().put("id", "o1").put("name", "Amazon"))
+        .add(new JsonObject().put("id", "o2")))
+      .put("totalRecords", 2)
+      .put("resultInfo", new JsonObject().put("totalRecords", 2)), result);
+  }
+
+  @Test
+  public void testNestedPaths() throws IOException {
+    JsonObject result = project("id,addresses.city,metadata.createdByUserId,code.unknown", ORGANIZATIONS);
+
+    JsonArray organizations = result.getJsonArray("organizations");
+    assertEquals(new JsonObject()
+      .put("id", "o1")
+      .put("code", "AMAZ")
+      .put("addresses", new JsonArray().add(new JsonObject().put("city", "Seattle")).add(new JsonObject().put("city", "Austin")))
+      .put("metadata", new JsonObject().put("createdByUserId", "u1")), organizations.getJsonObject(0));
+    assertEquals(new JsonObject().put("id", "o2").put("code", "GOBI").put("addresses", new JsonArray()),
+      organizations.getJsonObject(1));
+  }
+
+  @Test
+  public void testWholeFieldWinsOverNestedPath() throws IOException {
+    JsonObject result = project("addresses.city,addresses", ORGANIZATIONS);
+
+    assertEquals(ORGANIZATIONS.getJsonArray("organizations").getJsonObject(0).getJsonArray("addresses"),
+      result.getJsonArray("organizations").getJsonObject(0).getJsonArray("addresses"));
+  }
+
+  @Test
+  public void testArrayResponse() throws IOException {
+    Buffer result = FieldProjection.parse("code").transform(ORGANIZATIONS.getJsonArray("organizations").toBuffer());
+
+    assertEquals(new JsonArray().add(new JsonObject().put("code", "AMAZ")).add(new JsonObject().put("code", "GOBI")),
+      new JsonArray(result));
+  }
+
+  @Test
+  public void testInvalidFields() {
+    assertThrows(IllegalArgumentException.class, () -> FieldProjection.parse(""));
+    assertThrows(IllegalArgumentException.class, () -> FieldProjection.parse(" , "));
+    assertThrows(IllegalArgumentException.class, () -> FieldProjection.parse("id,addresses..city"));
+    assertThrows(IllegalArgumentException.class, () -> FieldProjection.parse("a,".repeat(FieldProjection.MAX_FIELDS + 1)));
+  }
+
+  @Test
+  public void testMalformedResponse() {
+    FieldProjection projection = FieldProjection.parse("id");
+
+    assertThrows(JsonParseException.class, () -> projection.transform(Buffer.buffer("")));
+    assertThrows(IOException.class, () -> projection.transform(Buffer.buffer("{\"organizations\":[{\"id\"")));
+  }
+
+  private static JsonObject project(String fields, JsonObject response) throws IOException {
+    return new JsonObject(FieldProjection.parse(fields).transform(response.toBuffer()));
+  }
+}
@@ -0,0 +1,55 @@
+package org.folio.edge.orders;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+public class KeyedSemaphoreTest {
+
+  @Test
+  public void testPermitsArePerKey() {
+    KeyedSemaphore semaphore = new KeyedSemaphore(2);
+
+    assertTrue(semaphore.acquire("diku").succeeded());
+    assertTrue(semaphore.acquire("diku").succeeded());
+    assertTrue(semaphore.acquire("college").succeeded());
+    Future<Void> waiting = semaphore.acquire("diku");
+
+    assertFalse(waiting.isComplete());
+    JsonObject statistics = semaphore.getStatistics();
+    assertEquals(2, (int) statistics.getInteger("permits"));
+    assertEquals(new JsonObject().put("inUse", 2).put("waiting", 1), statistics.getJsonObject("keys").getJsonObject("diku"));
+    assertEquals(new JsonObject().put("inUse", 1).put("waiting", 0), statistics.getJsonObject("keys").getJsonObject("college"));
+  }
+
+  @Test
+  public void testReleasePassesPermitInArrivalOrder() {
+    KeyedSemaphore semaphore = new KeyedSemaphore(1);
+    semaphore.acquire("diku");
+    Future<Void> first = semaphore.acquire("diku");
+    Future<Void> second = semaphore.acquire("diku");
+
+    semaphore.release("diku");
+    assertTrue(first.succeeded());
+    assertFalse(second.isComplete());
+
+    semaphore.release("diku");
+    assertTrue(second.succeeded());
+
+    semaphore.release("diku");
+    assertTrue(semaphore.getStatistics().getJsonObject("keys").isEmpty());
+    assertTrue(semaphore.acquire("diku").succeeded());
+  }
+
+  @Test
+  public void testInvalidUse() {
+    assertThrows(IllegalArgumentException.class, () -> new KeyedSemaphore(0));
+    KeyedSemaphore semaphore = new KeyedSemaphore(1);
+    assertThrows(IllegalStateException.class, () -> semaphore.release("diku"));
+  }
+}
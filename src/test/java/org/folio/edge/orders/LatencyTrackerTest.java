@@ -0,0 +1,40 @@
+package org.folio.edge.orders;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import org.junit.Test;
+
+public class LatencyTrackerTest {
+
+  @Test
+  public void testPercentileAfterMinimumSamples() {
+    LatencyTracker tracker = new LatencyTracker(95);
+    for (int i = 1; i < LatencyTracker.MIN_SAMPLES; i++) {
+      tracker.record(i);
+    }
+    assertEquals(-1, tracker.getPercentileNanos());
+
+    tracker.record(LatencyTracker.MIN_SAMPLES);
+    assertEquals(19, tracker.getPercentileNanos());
+  }
+
+  @Test
+  public void testOnlyRecentSamplesCount() {
+    LatencyTracker tracker = new LatencyTracker(50);
+    for (int i = 0; i < LatencyTracker.SAMPLES; i++) {
+      tracker.record(1_000);
+    }
+    for (int i = 0; i < LatencyTracker.SAMPLES; i++) {
+      tracker.record(5_000);
+    }
+
+    assertEquals(5_000, tracker.getPercentileNanos());
+  }
+
+  @Test
+  public void testInvalidPercentile() {
+    assertThrows(IllegalArgumentException.class, () -> new LatencyTracker(0));
+    assertThrows(IllegalArgumentException.class, () -> new LatencyTracker(100));
+  }
+}
@@ -0,0 +1,74 @@
+package org.folio.edge.orders;
+
+import static org.apache.http.HttpStatus.SC_OK;
+import static org.awaitility.Awaitility.await;
+import static org.folio.edge.core.Constants.SYS_OKAPI_URL;
+import static org.folio.edge.core.Constants.SYS_PORT;
+import static org.folio.edge.core.Constants.SYS_SECURE_STORE_PROP_FILE;
+import static org.folio.edge.orders.Constants.API_CONFIGURATION_PROPERTY_NAME;
+import static org.folio.edge.orders.Constants.WARMUP_API_KEY_PROPERTY_NAME;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.concurrent.TimeUnit;
+
+import io.restassured.RestAssured;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.folio.edge.core.utils.test.TestUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+/**
+ * Deploys without a warm-up API key, which existing deployments do not set.
+ */
+@RunWith(VertxUnitRunner.class)
+public class MainVerticleReadinessTest {
+
+  private static final Logger logger = LogManager.getLogger(MainVerticleReadinessTest.class);
+
+  private static Vertx vertx;
+  private static String readyUrl;
+
+  @BeforeClass
+  public static void setUpOnce(TestContext context) {
+    int serverPort = TestUtils.getPort();
+    System.setProperty(SYS_PORT, String.valueOf(serverPort));
+    System.setProperty(SYS_OKAPI_URL, "http://localhost:" + TestUtils.getPort());
+    System.setProperty(SYS_SECURE_STORE_PROP_FILE, "src/main/resources/ephemeral.properties");
+    System.setProperty(API_CONFIGURATION_PROPERTY_NAME, "src/main/resources/api_configuration.json");
+    System.clearProperty(WARMUP_API_KEY_PROPERTY_NAME);
+
+    vertx = Vertx.vertx();
+    vertx.deployVerticle(MainVerticle.class.getName()).onComplete(context.asyncAssertSuccess());
+    readyUrl = "http://localhost:" + serverPort + "/admin/ready";
+  }
+
+  @AfterClass
+  public static void tearDownOnce(TestContext context) {
+    vertx.close().onComplete(context.asyncAssertSuccess());
+  }
+
+  @Test
+  public void testReadyWithoutWarmupApiKey() {
+    logger.info("=== Test that an instance without a warm-up API key becomes ready ===");
+
+    await().atMost(10, TimeUnit.SECONDS).ignoreExceptions()
+      .until(() -> RestAssured.get(readyUrl).statusCode() == SC_OK);
+
+    RestAssured
+      .get(readyUrl)
+      .then()
+      .statusCode(SC_OK)
+      .body("ready", equalTo(true))
+      .body("checks.apiConfiguration", equalTo("UP"))
+      .body("checks.secureStore", equalTo("UP"))
+      .body("checks.tenantLogin", nullValue());
+  }
+}
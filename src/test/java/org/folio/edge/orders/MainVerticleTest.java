@@ -2,6 +2,8 @@ package org.folio.edge.orders;
 
 import static org.apache.http.HttpStatus.SC_NOT_FOUND;
 import static org.apache.http.HttpStatus.SC_OK;
+import static org.apache.http.HttpStatus.SC_UNAUTHORIZED;
+import static org.awaitility.Awaitility.await;
 import static org.folio.edge.core.Constants.APPLICATION_JSON;
 import static org.folio.edge.core.Constants.APPLICATION_XML;
 import static org.folio.edge.core.Constants.MSG_ACCESS_DENIED;
@@ -15,7 +17,9 @@ import static org.folio.edge.core.Constants.SYS_SECURE_STORE_PROP_FILE;
 import static org.folio.edge.core.Constants.TEXT_PLAIN;
 import static org.folio.edge.orders.CommonEndpoint.BILLING_AND_SHIPPING;
 import static org.folio.edge.orders.CommonEndpoint.FUND_CODES_EXPENSE_CLASSES;
+import static org.folio.edge.orders.Constants.ADMIN_TOKEN_PROPERTY_NAME;
 import static org.folio.edge.orders.Constants.API_CONFIGURATION_PROPERTY_NAME;
+import static org.folio.edge.orders.Constants.WARMUP_API_KEY_PROPERTY_NAME;
 import static org.folio.edge.orders.MosaicEndpoint.CREATE_ORDERS;
 import static org.folio.edge.orders.MosaicEndpoint.VALIDATE;
 import static org.folio.edge.orders.client.OrdersMockOkapi.ADDRESS_NAME_1;
@@ -32,7 +36,9 @@ import static org.folio.edge.orders.client.OrdersMockOkapi.TOTAL_RECORDS;
 import static org.folio.edge.orders.client.OrdersMockOkapi.X_ECHO_STATUS_HEADER;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -50,6 +56,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 import io.restassured.RestAssured;
@@ -88,6 +95,8 @@ public class MainVerticleTest {
   private static final String BAD_API_KEY = API_KEY + "0000";
   private static final String UNKNOWN_TENANT_API_KEY = ApiKeyUtils.generateApiKey(10, "bogus", "diku");
   private static final long REQUEST_TIMEOUT_MS = 60000L;
+  private static final String ADMIN_TOKEN = "admin-token";
+  private static final Header ADMIN_AUTHORIZATION = new Header(HttpHeaders.AUTHORIZATION, "Bearer " + ADMIN_TOKEN);
 
   private static OrdersMockOkapi mockOkapi;
   private static Map<String, String> mockRequests;
@@ -110,6 +119,8 @@ public class MainVerticleTest {
     System.setProperty(API_CONFIGURATION_PROPERTY_NAME, "src/main/resources/api_configuration.json");
     System.setProperty(SYS_LOG_LEVEL, "TRACE");
     System.setProperty(SYS_REQUEST_TIMEOUT_MS, String.valueOf(REQUEST_TIMEOUT_MS));
+    System.setProperty(WARMUP_API_KEY_PROPERTY_NAME, API_KEY);
+    System.setProperty(ADMIN_TOKEN_PROPERTY_NAME, ADMIN_TOKEN);
 
     final DeploymentOptions opt = new DeploymentOptions();
     vertx.deployVerticle(MainVerticle.class.getName(), opt).onComplete(context.asyncAssertSuccess());
@@ -117,6 +128,9 @@ public class MainVerticleTest {
     RestAssured.baseURI = "http://localhost:" + serverPort;
     RestAssured.port = serverPort;
     RestAssured.enableLoggingOfRequestAndResponseIfValidationFails();
+    // the api configuration loads asynchronously, order routes exist once the instance is ready
+    await().atMost(10, TimeUnit.SECONDS).ignoreExceptions()
+      .until(() -> RestAssured.get("/admin/ready").statusCode() == SC_OK);
 
     mockRequests = new HashMap<>();
 
@@ -146,6 +160,61 @@ public class MainVerticleTest {
 
   // GOBI
 
+  @Test
+  public void testAdminReady() {
+    logger.info("=== Test the readiness endpoint ===");
+
+    RestAssured
+      .get("/admin/ready")
+      .then()
+      .statusCode(200)
+      .contentType(APPLICATION_JSON)
+      .body("ready", equalTo(true))
+      .body("checks.apiConfiguration", equalTo("UP"))
+      .body("checks.secureStore", equalTo("UP"))
+      .body("checks.tenantLogin", equalTo("UP"));
+  }
+
+  @Test
+  public void testAdminCredentialCache() {
+    logger.info("=== Test the credential cache endpoints ===");
+
+    RestAssured
+      .with()
+      .header(ADMIN_AUTHORIZATION)
+      .get("/admin/credential-cache")
+      .then()
+      .statusCode(200)
+      .contentType(APPLICATION_JSON)
+      .body("tokens.maxSize", equalTo(1000));
+
+    RestAssured
+      .with()
+      .header(ADMIN_AUTHORIZATION)
+      .delete("/admin/credential-cache?tenant=bogus")
+      .then()
+      .statusCode(200)
+      .contentType(APPLICATION_JSON)
+      .body("removed", equalTo(0));
+  }
+
+  @Test
+  public void testAdminEndpointsRequireToken() {
+    logger.info("=== Test that the admin endpoints reject requests without the admin token ===");
+
+    RestAssured
+      .delete("/admin/credential-cache")
+      .then()
+      .statusCode(SC_UNAUTHORIZED);
+
+    RestAssured
+      .with()
+      .header(new Header(HttpHeaders.AUTHORIZATION, "Bearer " + ADMIN_TOKEN + "0"))
+      .get("/admin/credential-cache")
+      .then()
+      .statusCode(SC_UNAUTHORIZED);
+  }
+
   @Test
   public void testAdminHealth() {
     logger.info("=== Test the health check endpoint ===");
@@ -188,6 +257,21 @@ public class MainVerticleTest {
       .body(containsString("<test>GET - OK</test>"));
   }
 
+  @Test
+  public void testGetValidateBelowCompressionThreshold() {
+    logger.info("=== Test GET validate w/ gzip accepted and a body below the compression threshold ===");
+
+    RestAssured
+      .with()
+      .header(new Header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+      .get("/orders/validate?type=GOBI&apiKey=" + API_KEY)
+      .then()
+      .statusCode(200)
+      .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+      .header(HttpHeaders.CONTENT_ENCODING, nullValue())
+      .body(containsString("<test>GET - OK</test>"));
+  }
+
   @Test
   public void testPostValidateSuccessIgnoreBody() {
     // EDGORDERS-15 - Ignore processing request body
@@ -739,6 +823,26 @@ public class MainVerticleTest {
       });
   }
 
+  @Test
+  public void testCommonEndpointResponseIsCached() {
+    String url = CommonEndpoint.LOCATIONS.getIngressUrl() + "?type=COMMON&apikey=" + API_KEY + "&query=code==cached";
+    for (int i = 0; i < 2; i++) {
+      RestAssured
+        .get(url)
+        .then()
+        .contentType(APPLICATION_JSON)
+        .statusCode(SC_OK);
+    }
+
+    RestAssured
+      .with()
+      .header(ADMIN_AUTHORIZATION)
+      .get("/admin/response-cache")
+      .then()
+      .statusCode(SC_OK)
+      .body("'GET /locations-for-order COMMON'.hits", greaterThanOrEqualTo(1));
+  }
+
   @Test
   public void testShouldReturnCommonEndpointDataWithQueryNoData() {
     Arrays.stream(CommonEndpoint.values())
@@ -0,0 +1,138 @@
+package org.folio.edge.orders;
+
+import static org.folio.edge.orders.Param.FISCAL_YEAR_CODE;
+import static org.folio.edge.orders.Param.LIMIT;
+import static org.folio.edge.orders.Param.OFFSET;
+import static org.folio.edge.orders.Param.QUERY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.vertx.core.MultiMap;
+import io.vertx.core.http.impl.headers.HeadersMultiMap;
+import org.folio.rest.mappings.model.ApiConfiguration;
+import org.folio.rest.mappings.model.Routing;
+import org.junit.Test;
+
+public class ProxyPathTemplateTest {
+
+  @Test
+  public void testExpand_withNullParams() {
+    var template = ProxyPathTemplate.compile("/orders/:orderId?limit=:limit");
+    assertEquals("/orders/:orderId?limit=:limit", template.expand(null));
+  }
+
+  @Test
+  public void testExpand_withPathParam() {
+    var params = HeadersMultiMap.httpHeaders();
+    params.add("id", "123456");
+    var template = ProxyPathTemplate.compile("/finance/funds/:id/expense-classes");
+    assertEquals("/finance/funds/123456/expense-classes", template.expand(params));
+  }
+
+  @Test
+  public void testExpand_withDefaults() {
+    var template = ProxyPathTemplate.compile("/orders?offset=:offset&limit=:limit&query=:query");
+    assertEquals("/orders?offset=0&limit=20", template.expand(HeadersMultiMap.httpHeaders()));
+  }
+
+  @Test
+  public void testExpand_withAllQueryParams() {
+    var params = HeadersMultiMap.httpHeaders();
+    params.add(OFFSET.getName(), "20");
+    params.add(LIMIT.getName(), "10");
+    params.add(QUERY.getName(), "title==test");
+    var template = ProxyPathTemplate.compile("/orders?offset=:offset&limit=:limit&query=:query");
+    assertEquals("/orders?offset=20&limit=10&query=title%3D%3Dtest", template.expand(params));
+  }
+
+  @Test
+  public void testExpand_removesLeadingOptionalQueryPart() {
+    var params = HeadersMultiMap.httpHeaders();
+    params.add(QUERY.getName(), "");
+    var template = ProxyPathTemplate.compile("/orders?query=:query&limit=:limit");
+    assertEquals("/orders?limit=20", template.expand(params));
+  }
+
+  @Test
+  public void testExpand_removesOnlyOptionalQueryPart() {
+    var template = ProxyPathTemplate.compile("/finance/fund-codes-expense-classes?fiscalYearCode=:fiscalYearCode");
+    assertEquals("/finance/fund-codes-expense-classes", template.expand(HeadersMultiMap.httpHeaders()));
+  }
+
+  @Test
+  public void testExpand_keepsUnknownPlaceholder() {
+    var template = ProxyPathTemplate.compile("/orders/:orderId");
+    assertEquals("/orders/:orderId", template.expand(HeadersMultiMap.httpHeaders()));
+  }
+
+  @Test
+  public void testExpand_doesNotMatchPlaceholderPrefix() {
+    var params = HeadersMultiMap.httpHeaders();
+    params.add("id", "1");
+    params.add("idx", "2");
+    var template = ProxyPathTemplate.compile("/items/:idx/:id");
+    assertEquals("/items/2/1", template.expand(params));
+  }
+
+  @Test
+  public void testExpand_encodesQueryValue() {
+    var params = HeadersMultiMap.httpHeaders();
+    params.add(QUERY.getName(), "name==\"a&b\"  and code==café");
+    var template = ProxyPathTemplate.compile("/organizations?query=:query");
+    assertEquals("/organizations?query=name%3D%3D%22a%26b%22++and+code%3D%3Dcaf%C3%A9", template.expand(params));
+  }
+
+  @Test
+  public void testExpand_encodesPathValue() {
+    var params = HeadersMultiMap.httpHeaders();
+    params.add("id", "a b/c:d");
+    var template = ProxyPathTemplate.compile("/orders/order-lines/:id");
+    assertEquals("/orders/order-lines/a%20b%2Fc:d", template.expand(params));
+  }
+
+  @Test
+  public void testExpand_doesNotResolvePlaceholdersInValues() {
+    var params = HeadersMultiMap.httpHeaders();
+    params.add(QUERY.getName(), ":limit");
+    params.add(LIMIT.getName(), "5");
+    var template = ProxyPathTemplate.compile("/orders?query=:query&limit=:limit");
+    assertEquals("/orders?query=%3Alimit&limit=5", template.expand(params));
+  }
+
+  @Test
+  public void testExpand_matchesQueryUtilForShippedConfiguration() throws IOException {
+    List<Routing> routing = new ObjectMapper()
+      .readValue(getClass().getClassLoader().getResource(Constants.API_CONFIGURATION_DEFAULT), ApiConfiguration.class)
+      .getRouting();
+    assertFalse(routing.isEmpty());
+
+    for (MultiMap params : List.of(HeadersMultiMap.httpHeaders(), emptyParams(), populatedParams())) {
+      for (Routing r : routing) {
+        String expected = QueryUtil.getResultPath(params, QueryUtil.getProxyPath(r.getProxyPath(), params));
+        assertEquals(r.getProxyPath(), expected, ProxyPathTemplate.compile(r.getProxyPath()).expand(params));
+      }
+    }
+  }
+
+  private static MultiMap emptyParams() {
+    return HeadersMultiMap.httpHeaders()
+      .add(OFFSET.getName(), "")
+      .add(LIMIT.getName(), "")
+      .add(QUERY.getName(), "")
+      .add(FISCAL_YEAR_CODE.getName(), "");
+  }
+
+  private static MultiMap populatedParams() {
+    return HeadersMultiMap.httpHeaders()
+      .add("type", "COMMON")
+      .add("id", "5bafea52-57ea-40a7-9164-4e31b9473781")
+      .add(OFFSET.getName(), "40")
+      .add(LIMIT.getName(), "10")
+      .add(QUERY.getName(), "active sortby name")
+      .add(FISCAL_YEAR_CODE.getName(), "FY2025");
+  }
+}
@@ -0,0 +1,136 @@
+package org.folio.edge.orders;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.vertx.core.json.JsonObject;
+import org.folio.rest.mappings.model.Routing;
+import org.junit.Test;
+
+public class RateLimiterTest {
+
+  private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final AtomicLong now = new AtomicLong(1_000 * MS);
+
+  @Test
+  public void testBurstThenRate() {
+    // 10 per second, 3 at once
+    RateLimiter limiter = new RateLimiter(10, 3, now::get);
+
+    for (int i = 0; i < 3; i++) {
+      assertEquals(0, limiter.tryAcquire("diku", "client", null));
+    }
+    assertEquals(100 * MS, limiter.tryAcquire("diku", "client", null));
+    // other API keys have buckets of their own
+    assertEquals(0, limiter.tryAcquire("diku", "other", null));
+    assertEquals(0, limiter.tryAcquire("college", "client", null));
+
+    now.addAndGet(40 * MS);
+    assertEquals(60 * MS, limiter.tryAcquire("diku", "client", null));
+    now.addAndGet(60 * MS);
+    assertEquals(0, limiter.tryAcquire("diku", "client", null));
+    assertEquals(100 * MS, limiter.tryAcquire("diku", "client", null));
+
+    // an idle bucket fills up to the burst only
+    now.addAndGet(10_000 * MS);
+    for (int i = 0; i < 3; i++) {
+      assertEquals(0, limiter.tryAcquire("diku", "client", null));
+    }
+    assertTrue(limiter.tryAcquire("diku", "client", null) > 0);
+
+    JsonObject statistics = limiter.getStatistics();
+    assertEquals(9L, (long) statistics.getLong("allowed"));
+    assertEquals(4L, (long) statistics.getJsonObject("rejected").getLong("diku"));
+  }
+
+  @Test
+  public void testRouteLimit() {
+    RateLimiter limiter = new RateLimiter(0, 1, now::get);
+    var routing = new Routing();
+    routing.setType("GOBI");
+    routing.setMethod("GET");
+    routing.setPathPattern("/orders/validate");
+    routing.setProxyPath("/gobi/validate");
+    routing.setRateLimitPerSecond(2.0);
+    CompiledRouting validate = RoutingTable.compile(List.of(routing)).slice("/orders/validate", "GET").resolve("GOBI");
+
+    // without a burst of the route an idle client may send one second's worth
+    assertEquals(0, limiter.tryAcquire("diku", "client", validate));
+    assertEquals(0, limiter.tryAcquire("diku", "client", validate));
+    assertEquals(500 * MS, limiter.tryAcquire("diku", "client", validate));
+    // other routes are not limited per API key
+    assertEquals(0, limiter.tryAcquire("diku", "client", null));
+  }
+
+  @Test
+  public void testSweepsFullBuckets() {
+    RateLimiter limiter = new RateLimiter(1, 1, now::get);
+    for (int i = 0; i < RateLimiter.MAX_BUCKETS; i++) {
+      limiter.tryAcquire("diku", "client" + i, null);
+    }
+    assertEquals(RateLimiter.MAX_BUCKETS, (int) limiter.getStatistics().getInteger("buckets"));
+
+    now.addAndGet(2_000 * MS);
+    assertEquals(0, limiter.tryAcquire("diku", "new", null));
+    assertEquals(1, (int) limiter.getStatistics().getInteger("buckets"));
+  }
+
+  @Test
+  public void testBoundsBucketsOfNewKeys() {
+    RateLimiter limiter = new RateLimiter(1, 1, now::get);
+    for (int i = 0; i < RateLimiter.MAX_BUCKETS; i++) {
+      limiter.tryAcquire("diku", "client" + i, null);
+    }
+    // no bucket is full again yet, the sweep drops the ones closest to full
+    now.addAndGet(500 * MS);
+    assertEquals(0, limiter.tryAcquire("diku", "new", null));
+    assertEquals(RateLimiter.MAX_BUCKETS / 4 * 3 + 1, (int) limiter.getStatistics().getInteger("buckets"));
+
+    // until the next sweep new keys share the overflow bucket
+    for (int i = RateLimiter.MAX_BUCKETS / 4 * 3 + 1; i < RateLimiter.MAX_BUCKETS; i++) {
+      limiter.tryAcquire("diku", "more" + i, null);
+    }
+    assertEquals(0, limiter.tryAcquire("diku", "overflow", null));
+    assertTrue(limiter.tryAcquire("diku", "another", null) > 0);
+    assertEquals(RateLimiter.MAX_BUCKETS + 1, (int) limiter.getStatistics().getInteger("buckets"));
+  }
+
+  @Test
+  public void testBoundsRejectedTenants() {
+    RateLimiter limiter = new RateLimiter(1, 1, now::get);
+    for (int i = 0; i < RateLimiter.MAX_REJECTED_TENANTS + 10; i++) {
+      limiter.tryAcquire("tenant" + i, "client", null);
+      limiter.tryAcquire("tenant" + i, "client", null);
+    }
+    JsonObject statistics = limiter.getStatistics();
+    assertEquals(RateLimiter.MAX_REJECTED_TENANTS, statistics.getJsonObject("rejected").size());
+    assertEquals(10L, (long) statistics.getLong("rejectedOtherTenants"));
+  }
+
+  @Test
+  public void testFractionalRate() {
+    RateLimiter limiter = new RateLimiter(0.5, 1, now::get);
+    assertEquals(0, limiter.tryAcquire("diku", "client", null));
+    assertEquals(2_000 * MS, limiter.tryAcquire("diku", "client", null));
+  }
+
+  @Test
+  public void testRetryAfter() {
+    assertEquals("1", ErrorResponse.retryAfter(1).toString());
+    assertEquals("1", ErrorResponse.retryAfter(TimeUnit.SECONDS.toNanos(1)).toString());
+    assertEquals("2", ErrorResponse.retryAfter(TimeUnit.SECONDS.toNanos(1) + 1).toString());
+    assertEquals("120", ErrorResponse.retryAfter(TimeUnit.SECONDS.toNanos(120)).toString());
+  }
+
+  @Test
+  public void testInvalidLimit() {
+    assertThrows(IllegalArgumentException.class, () -> new RateLimiter(-1, 10));
+    assertThrows(IllegalArgumentException.class, () -> new RateLimiter(10, 0));
+  }
+}
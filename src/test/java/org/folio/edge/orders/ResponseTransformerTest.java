@@ -0,0 +1,125 @@
+package org.folio.edge.orders;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.folio.rest.mappings.model.ResponseTransform;
+import org.folio.rest.mappings.model.ResponseTransform.BuiltIn;
+import org.junit.Test;
+
+public class ResponseTransformerTest {
+
+  private static final JsonObject FUNDS = new JsonObject()
+    .put("funds", new JsonArray()
+      .add(new JsonObject().put("id", "f1").put("code", "HIST").put("tags", new JsonObject().put("tagList", new JsonArray().add("a"))))
+      .add(new JsonObject().put("id", "f2").put("code", "SCI").put("fundStatus", "Active")))
+    .put("totalRecords", 2)
+    .put("resultInfo", new JsonObject().put("diagnostics", new JsonArray()));
+
+  @Test
+  public void testItemsProjectedRenamedAndCounted() throws IOException {
+    ResponseTransform transform = new ResponseTransform();
+    transform.setItems("funds");
+    transform.setItemsAs("records");
+    transform.setFields(List.of("id", "code", "tags"));
+    transform.setRename(Map.of("code", "fundCode"));
+    transform.setCount("count");
+
+    JsonObject result = transform(transform, FUNDS);
+
+    assertEquals(new JsonObject()
+      .put("records", new JsonArray()
+        .add(new JsonObject().put("id", "f1").put("fundCode", "HIST").put("tags", new JsonObject().put("tagList", new JsonArray().add("a"))))
+        .add(new JsonObject().put("id", "f2").put("fundCode", "SCI")))
+      .put("count", 2), result);
+  }
+
+  @Test
+  public void testKeptFieldsAndWrap() throws IOException {
+    ResponseTransform transform = new ResponseTransform();
+    transform.setItems("funds");
+    transform.setKeep(List.of("totalRecords"));
+    transform.setFields(List.of("id"));
+    transform.setWrap("data");
+
+    JsonObject result = transform(transform, FUNDS);
+
+    assertEquals(new JsonObject().put("data", new JsonObject()
+      .put("funds", new JsonArray().add(new JsonObject().put("id", "f1")).add(new JsonObject().put("id", "f2")))
+      .put("totalRecords", 2)), result);
+  }
+
+  @Test
+  public void testMissingItemsGiveEmptyArray() throws IOException {
+    ResponseTransform transform = new ResponseTransform();
+    transform.setItems("funds");
+    transform.setCount("totalRecords");
+
+    JsonObject result = transform(transform, new JsonObject().put("errors", new JsonArray()));
+
+    assertEquals(new JsonObject().put("funds", new JsonArray()).put("totalRecords", 0), result);
+  }
+
+  @Test
+  public void testWithoutItemsTransformsResponse() throws IOException {
+    ResponseTransform transform = new ResponseTransform();
+    transform.setRename(Map.of("funds", "items"));
+    transform.setFields(List.of("funds"));
+
+    JsonObject result = transform(transform, FUNDS);
+
+    assertEquals(new JsonObject().put("items", FUNDS.getJsonArray("funds")), result);
+
+    transform = new ResponseTransform();
+    transform.setFields(List.of("code"));
+    Buffer array = DeclarativeResponseTransformer.compile(transform).transform(FUNDS.getJsonArray("funds").toBuffer());
+    assertEquals(new JsonArray().add(new JsonObject().put("code", "HIST")).add(new JsonObject().put("code", "SCI")),
+      new JsonArray(array));
+  }
+
+  @Test
+  public void testMalformedResponse() {
+    ResponseTransform transform = new ResponseTransform();
+    transform.setItems("funds");
+    ResponseTransformer transformer = ResponseTransformer.compile(transform);
+
+    assertThrows(JsonParseException.class, () -> transformer.transform(Buffer.buffer("[]")));
+    assertThrows(JsonParseException.class, () -> transformer.transform(Buffer.buffer("")));
+    assertThrows(JsonParseException.class, () -> transformer.transform(Buffer.buffer("{} {}")));
+    assertThrows(IOException.class, () -> transformer.transform(Buffer.buffer("{\"funds\":[{")));
+  }
+
+  @Test
+  public void testCompileBuiltIn() {
+    ResponseTransform transform = new ResponseTransform();
+    transform.setBuiltIn(BuiltIn.TENANT_ADDRESSES_TO_CONFIGS);
+
+    assertSame(ResponseTransformer.BUILT_IN.get(ResponseTransformer.TENANT_ADDRESSES_TO_CONFIGS),
+      ResponseTransformer.compile(transform));
+
+    transform.setWrap("data");
+    assertThrows(IllegalArgumentException.class, () -> ResponseTransformer.compile(transform));
+  }
+
+  @Test
+  public void testCompileRejectsInvalidTransforms() {
+    assertThrows(IllegalArgumentException.class, () -> ResponseTransformer.compile(new ResponseTransform()));
+
+    ResponseTransform transform = new ResponseTransform();
+    transform.setCount("totalRecords");
+    assertThrows(IllegalArgumentException.class, () -> ResponseTransformer.compile(transform));
+  }
+
+  private static JsonObject transform(ResponseTransform transform, JsonObject response) throws IOException {
+    return new JsonObject(ResponseTransformer.compile(transform).transform(response.toBuffer()));
+  }
+}
@@ -0,0 +1,51 @@
+package org.folio.edge.orders;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+public class RetryBudgetTest {
+
+  @Test
+  public void testStartsFullAndRefillsByRatio() {
+    RetryBudget budget = new RetryBudget(10, 2);
+
+    assertTrue(budget.tryRetry());
+    assertTrue(budget.tryHedge());
+    assertFalse(budget.tryRetry());
+
+    for (int i = 0; i < 9; i++) {
+      budget.deposit();
+    }
+    assertFalse(budget.tryHedge());
+    budget.deposit();
+    assertTrue(budget.tryHedge());
+
+    JsonObject statistics = budget.getStatistics();
+    assertEquals(1L, (long) statistics.getLong("retries"));
+    assertEquals(2L, (long) statistics.getLong("hedges"));
+    assertEquals(2L, (long) statistics.getLong("denied"));
+    assertEquals(0L, (long) statistics.getLong("tokens"));
+  }
+
+  @Test
+  public void testBalanceIsCapped() {
+    RetryBudget budget = new RetryBudget(50, 1);
+    for (int i = 0; i < 100; i++) {
+      budget.deposit();
+    }
+
+    assertTrue(budget.tryRetry());
+    assertFalse(budget.tryRetry());
+  }
+
+  @Test
+  public void testInvalidBudget() {
+    assertThrows(IllegalArgumentException.class, () -> new RetryBudget(101, 10));
+    assertThrows(IllegalArgumentException.class, () -> new RetryBudget(10, -1));
+  }
+}
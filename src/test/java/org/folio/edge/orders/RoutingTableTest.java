@@ -0,0 +1,157 @@
+package org.folio.edge.orders;
+
+import static org.folio.edge.orders.Constants.BILLING_AND_SHIPPING_PATH;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.folio.edge.orders.RoutingTable.RouteSlice;
+import org.folio.rest.mappings.model.ResponseTransform;
+import org.folio.rest.mappings.model.Routing;
+import org.junit.Test;
+
+public class RoutingTableTest {
+
+  @Test
+  public void testCompile_groupsByPathPatternAndMethod() {
+    var gobiGet = routing("GOBI", "GET", "/orders/validate", "/gobi/validate");
+    var gobiPost = routing("GOBI", "POST", "/orders/validate", "/gobi/validate");
+    var mosaicGet = routing("MOSAIC", "GET", "/orders/validate", "/mosaic/validate");
+    var table = RoutingTable.compile(List.of(gobiGet, gobiPost, mosaicGet));
+
+    assertEquals(2, table.slices().size());
+    RouteSlice getSlice = table.slice("/orders/validate", "GET");
+    assertSame(gobiGet, getSlice.resolve("GOBI").getRouting());
+    assertSame(mosaicGet, getSlice.resolve("MOSAIC").getRouting());
+    assertSame(gobiPost, table.slice("/orders/validate", "POST").resolve("GOBI").getRouting());
+  }
+
+  @Test
+  public void testCompile_createsResponseCacheForCachedGetRoutes() {
+    var locations = routing("COMMON", "GET", "/locations-for-order", "/locations");
+    locations.setCacheTtlMs(60_000);
+    var users = routing("COMMON", "GET", "/users-for-order", "/users");
+    var table = RoutingTable.compile(List.of(locations, users));
+
+    assertNotNull(table.slice("/locations-for-order", "GET").resolve("COMMON").getResponseCache());
+    assertNull(table.slice("/users-for-order", "GET").resolve("COMMON").getResponseCache());
+    var statistics = table.getResponseCacheStatistics();
+    assertEquals(1, statistics.size());
+    assertEquals(60_000L, statistics.getJsonObject("GET /locations-for-order COMMON").getLong("ttlMs").longValue());
+  }
+
+  @Test
+  public void testCompile_coalescesGetRoutesUnlessDisabled() {
+    var locations = routing("COMMON", "GET", "/locations-for-order", "/locations");
+    var users = routing("COMMON", "GET", "/users-for-order", "/users");
+    users.setCoalesceRequests(false);
+    var orders = routing("GOBI", "POST", "/orders", "/gobi/orders");
+    var table = RoutingTable.compile(List.of(locations, users, orders));
+
+    assertNotNull(table.slice("/locations-for-order", "GET").resolve("COMMON").getInFlightRequests());
+    assertNull(table.slice("/users-for-order", "GET").resolve("COMMON").getInFlightRequests());
+    assertNull(table.slice("/orders", "POST").resolve("GOBI").getInFlightRequests());
+    var statistics = table.getRequestCoalescingStatistics();
+    assertEquals(1, statistics.size());
+    assertEquals(0L, statistics.getJsonObject("GET /locations-for-order COMMON").getLong("calls").longValue());
+  }
+
+  @Test
+  public void testCompile_compilesResponseTransforms() {
+    var funds = routing("COMMON", "GET", "/finance/funds", "/finance/funds");
+    var transform = new ResponseTransform();
+    transform.setItems("funds");
+    funds.setResponseTransform(transform);
+    var addresses = routing("COMMON", "GET", BILLING_AND_SHIPPING_PATH, "/tenant-addresses");
+    var users = routing("COMMON", "GET", "/users-for-order", "/users");
+    var table = RoutingTable.compile(List.of(funds, addresses, users));
+
+    assertNotNull(table.slice("/finance/funds", "GET").resolve("COMMON").getResponseTransformer());
+    assertSame(ResponseTransformer.BUILT_IN.get(ResponseTransformer.TENANT_ADDRESSES_TO_CONFIGS),
+      table.slice(BILLING_AND_SHIPPING_PATH, "GET").resolve("COMMON").getResponseTransformer());
+    assertNull(table.slice("/users-for-order", "GET").resolve("COMMON").getResponseTransformer());
+  }
+
+  @Test
+  public void testCompile_validatesAggregateRoutes() {
+    var funds = routing("COMMON", "GET", "/finance/funds", "/finance/funds?offset=:offset&limit=:limit");
+    funds.setAllowAggregate(true);
+    assertTrue(RoutingTable.compile(List.of(funds)).slice("/finance/funds", "GET").resolve("COMMON").isAggregateAllowed());
+
+    var unpaged = routing("COMMON", "GET", "/finance/funds", "/finance/funds?query=:query");
+    unpaged.setAllowAggregate(true);
+    assertThrows(IllegalArgumentException.class, () -> RoutingTable.compile(List.of(unpaged)));
+
+    var transformed = routing("COMMON", "GET", BILLING_AND_SHIPPING_PATH, "/tenant-addresses?offset=:offset&limit=:limit");
+    transformed.setAllowAggregate(true);
+    assertThrows(IllegalArgumentException.class, () -> RoutingTable.compile(List.of(transformed)));
+  }
+
+  @Test
+  public void testCompile_hedgingNeedsGet() {
+    var lines = routing("EBSCONET", "GET", "/orders/order-lines/:id", "/ebsconet/orders/order-lines/:id");
+    lines.setHedgeAfterPercentile(95.0);
+    assertNotNull(RoutingTable.compile(List.of(lines)).slice("/orders/order-lines/:id", "GET").resolve("EBSCONET").getLatencies());
+
+    var orders = routing("GOBI", "POST", "/orders", "/gobi/orders");
+    orders.setHedgeAfterPercentile(95.0);
+    assertThrows(IllegalArgumentException.class, () -> RoutingTable.compile(List.of(orders)));
+  }
+
+  @Test
+  public void testCompile_rateLimitBurstNeedsRate() {
+    var orders = routing("GOBI", "POST", "/orders", "/gobi/orders");
+    orders.setRateLimitBurst(5);
+    assertThrows(IllegalArgumentException.class, () -> RoutingTable.compile(List.of(orders)));
+
+    orders.setRateLimitPerSecond(0.5);
+    assertEquals(5, RoutingTable.compile(List.of(orders)).slice("/orders", "POST").resolve("GOBI").getRateLimit().getBurst());
+  }
+
+  @Test
+  public void testResolve_typeIsCaseInsensitive() {
+    var gobi = routing("GOBI", "POST", "/orders", "/gobi/orders");
+    RouteSlice slice = RoutingTable.compile(List.of(gobi)).slice("/orders", "POST");
+
+    assertSame(gobi, slice.resolve("gobi").getRouting());
+    assertSame(gobi, slice.resolve("Gobi").getRouting());
+  }
+
+  @Test
+  public void testResolve_unknownType() {
+    var gobi = routing("GOBI", "POST", "/orders", "/gobi/orders");
+    RouteSlice slice = RoutingTable.compile(List.of(gobi)).slice("/orders", "POST");
+
+    assertNull(slice.resolve("bogus"));
+  }
+
+  @Test
+  public void testCompile_firstDuplicateWins() {
+    var first = routing("GOBI", "POST", "/orders", "/gobi/orders");
+    var second = routing("gobi", "POST", "/orders", "/gobi/orders/v2");
+    RouteSlice slice = RoutingTable.compile(List.of(first, second)).slice("/orders", "POST");
+
+    assertSame(first, slice.resolve("GOBI").getRouting());
+  }
+
+  @Test
+  public void testSlice_unknownRoute() {
+    var table = RoutingTable.compile(List.of(routing("GOBI", "POST", "/orders", "/gobi/orders")));
+
+    assertNull(table.slice("/orders", "GET"));
+  }
+
+  private static Routing routing(String type, String method, String pathPattern, String proxyPath) {
+    var routing = new Routing();
+    routing.setType(type);
+    routing.setMethod(method);
+    routing.setPathPattern(pathPattern);
+    routing.setProxyPath(proxyPath);
+    return routing;
+  }
+}
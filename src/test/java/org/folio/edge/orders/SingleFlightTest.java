@@ -0,0 +1,107 @@
+package org.folio.edge.orders;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+public class SingleFlightTest {
+
+  @Test
+  public void testConcurrentCallsAreCoalesced() {
+    SingleFlight<String, String> singleFlight = new SingleFlight<>();
+    Promise<String> upstream = Promise.promise();
+    AtomicInteger invocations = new AtomicInteger();
+
+    Future<String> first = singleFlight.execute("diku", () -> {
+      invocations.incrementAndGet();
+      return upstream.future();
+    });
+    Future<String> second = singleFlight.execute("diku", () -> {
+      invocations.incrementAndGet();
+      return Future.succeededFuture("other");
+    });
+    upstream.complete("mod-orders-storage-13.0.0");
+
+    assertSame(first, second);
+    assertEquals(1, invocations.get());
+    assertEquals("mod-orders-storage-13.0.0", second.result());
+    JsonObject statistics = singleFlight.getStatistics();
+    assertEquals(1L, (long) statistics.getLong("calls"));
+    assertEquals(1L, (long) statistics.getLong("coalesced"));
+    assertEquals(0.5, statistics.getDouble("coalesceRatio"), 0.0001);
+    assertEquals(0, (int) statistics.getInteger("inFlight"));
+  }
+
+  @Test
+  public void testCallAfterCompletionRunsAgain() {
+    SingleFlight<String, String> singleFlight = new SingleFlight<>();
+    AtomicInteger invocations = new AtomicInteger();
+
+    singleFlight.execute("diku", () -> Future.succeededFuture("v" + invocations.incrementAndGet()));
+    Future<String> second = singleFlight.execute("diku", () -> Future.succeededFuture("v" + invocations.incrementAndGet()));
+
+    assertEquals("v2", second.result());
+    assertEquals(0L, (long) singleFlight.getStatistics().getLong("coalesced"));
+  }
+
+  @Test
+  public void testFailureIsSharedAndNotRemembered() {
+    SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+    Future<String> failed = singleFlight.execute("diku", () -> {
+      throw new IllegalStateException("Okapi unavailable");
+    });
+    assertTrue(failed.failed());
+    assertEquals("Okapi unavailable", failed.cause().getMessage());
+
+    Future<String> retried = singleFlight.execute("diku", () -> Future.succeededFuture("mod-orders-storage-13.0.0"));
+    assertEquals("mod-orders-storage-13.0.0", retried.result());
+  }
+
+  @Test
+  public void testFollowerIsCalledBackOnItsOwnContext() throws Exception {
+    Vertx vertx = Vertx.vertx();
+    try {
+      SingleFlight<String, String> singleFlight = new SingleFlight<>();
+      Promise<String> upstream = Promise.promise();
+      Context leader = vertx.getOrCreateContext();
+      Context follower = vertx.getOrCreateContext();
+      CompletableFuture<Context> completedOn = new CompletableFuture<>();
+
+      leader.runOnContext(v -> singleFlight.execute("diku", upstream::future));
+      await().atMost(5, TimeUnit.SECONDS).until(() -> singleFlight.getStatistics().getInteger("inFlight") == 1);
+      follower.runOnContext(v -> singleFlight.execute("diku", () -> Future.succeededFuture("other"))
+        .onSuccess(result -> completedOn.complete(Vertx.currentContext())));
+      await().atMost(5, TimeUnit.SECONDS).until(() -> singleFlight.getStatistics().getLong("coalesced") == 1);
+      leader.runOnContext(v -> upstream.complete("mod-orders-storage-13.0.0"));
+
+      assertSame(follower, completedOn.get(5, TimeUnit.SECONDS));
+    } finally {
+      vertx.close().await();
+    }
+  }
+
+  @Test
+  public void testKeysAreIndependent() {
+    SingleFlight<String, String> singleFlight = new SingleFlight<>();
+    Promise<String> diku = Promise.promise();
+
+    singleFlight.execute("diku", diku::future);
+    Future<String> other = singleFlight.execute("college", () -> Future.succeededFuture("college"));
+
+    assertEquals("college", other.result());
+    assertEquals(1, (int) singleFlight.getStatistics().getInteger("inFlight"));
+  }
+}
@@ -0,0 +1,129 @@
+package org.folio.edge.orders;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TokenManagerTest {
+
+  private static final String KEY = "diku\ndiku\nsalt";
+
+  private Vertx vertx;
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+  }
+
+  @After
+  public void tearDown() {
+    vertx.close().await();
+  }
+
+  @Test
+  public void testExpiryIsReadFromTheToken() {
+    var tokens = new TokenManager(10, 3_600_000);
+    long now = System.currentTimeMillis();
+    long exp = (now + 600_000) / 1000 * 1000;
+
+    assertEquals(exp, tokens.expiresAt(jwt(exp), now));
+    assertEquals(now + 3_600_000, tokens.expiresAt(jwt(now + 7_200_000), now));
+    assertEquals(now + 3_600_000, tokens.expiresAt("legacy-token", now));
+  }
+
+  @Test
+  public void testConcurrentLoginsAreShared() {
+    var tokens = new TokenManager(10, 3_600_000);
+    AtomicInteger logins = new AtomicInteger();
+    Promise<String> login = Promise.promise();
+
+    var first = tokens.getToken(vertx, KEY, "diku", () -> {
+      logins.incrementAndGet();
+      return login.future();
+    });
+    var second = tokens.getToken(vertx, KEY, "diku", () -> Future.succeededFuture("other"));
+    login.complete("token");
+
+    assertEquals("token", first.result());
+    assertEquals("token", second.result());
+    assertEquals("token", tokens.getToken(vertx, KEY, "diku", () -> Future.succeededFuture("other")).result());
+    assertEquals(1, logins.get());
+    assertEquals(1, tokens.getStatistics().getJsonObject("tenants").getJsonObject("diku").getInteger("tokens").intValue());
+  }
+
+  @Test
+  public void testUsedTokenIsRefreshedBeforeExpiry() {
+    var tokens = new TokenManager(10, 2_000);
+    AtomicInteger logins = new AtomicInteger();
+
+    tokens.getToken(vertx, KEY, "diku", () -> Future.succeededFuture("token-" + logins.incrementAndGet()));
+    assertEquals("token-1", tokens.getToken(vertx, KEY, "diku", () -> Future.succeededFuture("other")).result());
+
+    await().atMost(5, TimeUnit.SECONDS).until(() -> logins.get() == 2);
+    assertEquals("token-2", tokens.getToken(vertx, KEY, "diku", () -> Future.succeededFuture("other")).result());
+    assertEquals(1L, tokens.getStatistics().getJsonObject("tenants").getJsonObject("diku").getLong("refreshes").longValue());
+  }
+
+  @Test
+  public void testFailedRefreshIsCountedAndUnusedTokenIsDropped() {
+    var tokens = new TokenManager(10, 2_000);
+    AtomicInteger logins = new AtomicInteger();
+
+    tokens.getToken(vertx, KEY, "diku", () -> logins.incrementAndGet() == 1
+      ? Future.succeededFuture("token")
+      : Future.failedFuture("Okapi unavailable"));
+    tokens.getToken(vertx, KEY, "diku", () -> Future.failedFuture("unexpected"));
+
+    await().atMost(5, TimeUnit.SECONDS).until(() ->
+      tokens.getStatistics().getJsonObject("tenants").getJsonObject("diku").getLong("refreshFailures") >= 1);
+    await().atMost(5, TimeUnit.SECONDS).until(() -> tokens.getStatistics().getInteger("size") == 0);
+    assertTrue(logins.get() >= 2);
+  }
+
+  @Test
+  public void testInvalidate() {
+    var tokens = new TokenManager(10, 3_600_000);
+    tokens.getToken(vertx, KEY, "diku", () -> Future.succeededFuture("token"));
+    tokens.getToken(vertx, "college\ndiku\nsalt", "college", () -> Future.succeededFuture("token"));
+
+    assertEquals(1, tokens.invalidateIf(key -> key.startsWith("diku\n")));
+    assertEquals(1, tokens.getStatistics().getInteger("size").intValue());
+  }
+
+  private static String jwt(long expiresAtMs) {
+    return Jwts.builder()
+      .subject("diku")
+      .expiration(new Date(expiresAtMs))
+      .signWith(Keys.hmacShaKeyFor("an-hmac-key-for-the-edge-orders-tests".getBytes(StandardCharsets.UTF_8)))
+      .compact();
+  }
+
+  @Test
+  public void testLoginFailuresOfUnknownTenantsShareOneCounter() {
+    var tokens = new TokenManager(10, 3_600_000);
+    for (int i = 0; i < 3; i++) {
+      tokens.getToken(vertx, "bogus" + i + "\ndiku\nsalt", "bogus" + i, () -> Future.failedFuture("Unknown tenant"));
+    }
+    tokens.getToken(vertx, KEY, "diku", () -> Future.succeededFuture("token"));
+    tokens.getToken(vertx, "diku\nother\nsalt", "diku", () -> Future.failedFuture("Wrong password"));
+
+    var statistics = tokens.getStatistics();
+    assertEquals(3L, statistics.getLong("otherLoginFailures").longValue());
+    assertEquals(1, statistics.getJsonObject("tenants").size());
+    assertEquals(1L, statistics.getJsonObject("tenants").getJsonObject("diku").getLong("loginFailures").longValue());
+  }
+}
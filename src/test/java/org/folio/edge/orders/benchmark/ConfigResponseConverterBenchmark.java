@@ -0,0 +1,97 @@
+package org.folio.edge.orders.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.folio.edge.orders.ConfigResponseConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the streaming {@link ConfigResponseConverter} with the former conversion through {@link JsonObject}
+ * trees for /tenant-addresses responses of different sizes.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args="ConfigResponseConverterBenchmark -prof gc"},
+ * {@code gc.alloc.rate.norm} is the allocation per conversion.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigResponseConverterBenchmark {
+
+  @Param({"10", "1000", "100000"})
+  public int addresses;
+
+  private final ConfigResponseConverter converter = new ConfigResponseConverter();
+  private Buffer response;
+
+  @Setup
+  public void setUp() {
+    JsonArray array = new JsonArray();
+    for (int i = 0; i < addresses; i++) {
+      array.add(new JsonObject()
+        .put("id", "5bafea52-57ea-40a7-9164-" + String.format("%012d", i))
+        .put("name", "Library " + i)
+        .put("address", i + " Main Street, Springfield")
+        .put("metadata", new JsonObject()
+          .put("createdDate", "2026-03-18T07:44:52.875+00:00")
+          .put("createdByUserId", "d6b6b2a4-6a33-4d3c-9f4c-1f0d3b7a2c11")
+          .put("updatedDate", "2026-03-18T07:44:52.875+00:00")
+          .put("updatedByUserId", "d6b6b2a4-6a33-4d3c-9f4c-1f0d3b7a2c11")));
+    }
+    response = new JsonObject()
+      .put("addresses", array)
+      .put("resultInfo", new JsonObject().put("totalRecords", addresses).put("diagnostics", new JsonArray()))
+      .toBuffer();
+  }
+
+  @Benchmark
+  public Buffer streaming() throws IOException {
+    return converter.fromTenantAddresses(response);
+  }
+
+  @Benchmark
+  public Buffer tree() {
+    return fromTenantAddressesTree(new JsonObject(response)).toBuffer();
+  }
+
+  /**
+   * The conversion {@link ConfigResponseConverter} did before it streamed.
+   */
+  private static JsonObject fromTenantAddressesTree(JsonObject response) {
+    JsonArray addresses = response.getJsonArray("addresses", new JsonArray());
+    JsonArray configs = new JsonArray();
+    for (int i = 0; i < addresses.size(); i++) {
+      JsonObject address = addresses.getJsonObject(i);
+      JsonObject valueObj = new JsonObject()
+        .put("name", address.getString("name", ""))
+        .put("address", address.getString("address", ""));
+      JsonObject config = new JsonObject()
+        .put("id", address.getString("id"))
+        .put("value", valueObj.encode());
+      if (address.containsKey("metadata")) {
+        config.put("metadata", address.getJsonObject("metadata"));
+      }
+      configs.add(config);
+    }
+    return new JsonObject()
+      .put("configs", configs)
+      .put("totalRecords", configs.size());
+  }
+}
@@ -0,0 +1,85 @@
+package org.folio.edge.orders.benchmark;
+
+import static org.folio.edge.orders.Constants.API_CONFIGURATION_DEFAULT;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.vertx.core.MultiMap;
+import io.vertx.core.http.impl.headers.HeadersMultiMap;
+import org.folio.edge.orders.ProxyPathTemplate;
+import org.folio.edge.orders.QueryUtil;
+import org.folio.rest.mappings.model.ApiConfiguration;
+import org.folio.rest.mappings.model.Routing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares building the upstream URL with {@link QueryUtil} and with {@link ProxyPathTemplate}
+ * for every route of the shipped API configuration.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args="ProxyPathBenchmark -prof gc"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProxyPathBenchmark {
+
+  @Param({"populated", "defaults"})
+  public String params;
+
+  private String[] proxyPaths;
+  private ProxyPathTemplate[] templates;
+  private MultiMap requestParams;
+
+  @Setup
+  public void setUp() throws IOException {
+    List<Routing> routing = new ObjectMapper()
+      .readValue(ProxyPathBenchmark.class.getClassLoader().getResource(API_CONFIGURATION_DEFAULT), ApiConfiguration.class)
+      .getRouting();
+    proxyPaths = routing.stream().map(Routing::getProxyPath).toArray(String[]::new);
+    templates = routing.stream().map(r -> ProxyPathTemplate.compile(r.getProxyPath())).toArray(ProxyPathTemplate[]::new);
+
+    requestParams = HeadersMultiMap.httpHeaders()
+      .add("type", "COMMON")
+      .add("apiKey", "eyJzIjoiZGlrdSIsInQiOiJkaWt1IiwidSI6ImRpa3UifQ==");
+    if ("populated".equals(params)) {
+      requestParams
+        .add("id", "5bafea52-57ea-40a7-9164-4e31b9473781")
+        .add("offset", "40")
+        .add("limit", "10")
+        .add("query", "active sortby name")
+        .add("fiscalYearCode", "FY2025");
+    }
+  }
+
+  @Benchmark
+  public void queryUtil(Blackhole bh) {
+    for (String proxyPath : proxyPaths) {
+      bh.consume(QueryUtil.getResultPath(requestParams, QueryUtil.getProxyPath(proxyPath, requestParams)));
+    }
+  }
+
+  @Benchmark
+  public void proxyPathTemplate(Blackhole bh) {
+    for (ProxyPathTemplate template : templates) {
+      bh.consume(template.expand(requestParams));
+    }
+  }
+}
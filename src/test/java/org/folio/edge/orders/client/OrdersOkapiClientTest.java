@@ -2,14 +2,19 @@ package org.folio.edge.orders.client;
 
 import io.vertx.core.MultiMap;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.OpenOptions;
+import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.http.impl.headers.HeadersMultiMap;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.ext.web.client.HttpResponse;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.folio.edge.core.utils.OkapiClientFactory;
 import org.folio.edge.core.utils.test.TestUtils;
+import org.folio.edge.orders.CompiledRouting;
 import org.folio.rest.mappings.model.Routing;
 import org.junit.After;
 import org.junit.Before;
@@ -28,7 +33,10 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Stream;
 
+import static org.folio.edge.core.Constants.APPLICATION_XML;
 import static org.folio.edge.core.utils.test.MockOkapi.MOCK_TOKEN;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 @RunWith(VertxUnitRunner.class)
 public class OrdersOkapiClientTest {
@@ -37,7 +45,9 @@ public class OrdersOkapiClientTest {
 
   private static final String TENANT = "diku";
   private static final int REQ_TIMEOUT = 3000;
+  private static final String ORDER_FILE = "src/test/resources/requests/118279.xml";
 
+  private Vertx vertx;
   private AcquisitionsOkapiClient client;
   private OrdersMockOkapi mockOkapi;
 
@@ -51,7 +61,8 @@ public class OrdersOkapiClientTest {
     mockOkapi = new OrdersMockOkapi(okapiPort, knownTenants);
     mockOkapi.start().onComplete(context.asyncAssertSuccess());
 
-    client = new AcquisitionsOkapiClient(new OkapiClientFactory(Vertx.vertx(),
+    vertx = Vertx.vertx();
+    client = new AcquisitionsOkapiClient(new OkapiClientFactory(vertx,
       "http://localhost:" + okapiPort, REQ_TIMEOUT).getOkapiClient(TENANT));
 
     Map<String, String> mockRequests = new HashMap<>();
@@ -94,7 +105,7 @@ public class OrdersOkapiClientTest {
       routing.setPathPattern("/orders/validate");
       routing.setProxyPath("/gobi/validate");
 
-      client.send(routing,
+      client.send(CompiledRouting.compile(routing),
         "",null,null,
         resp -> {
           context.assertEquals(200, resp.statusCode());
@@ -117,7 +128,7 @@ public class OrdersOkapiClientTest {
       routing.setPathPattern("/orders/validate");
       routing.setProxyPath("/gobi/validate");
 
-      client.send(routing,
+      client.send(CompiledRouting.compile(routing),
         "",null, null,
         resp -> {
           context.assertEquals(200, resp.statusCode());
@@ -141,11 +152,109 @@ public class OrdersOkapiClientTest {
       MultiMap entries = HeadersMultiMap.httpHeaders();
       entries.add("id", "123");
 
-      client.send(routing, "", entries, null, resp -> {
+      client.send(CompiledRouting.compile(routing), "", entries, null, resp -> {
         context.assertEquals(204, resp.statusCode());
         async.complete();
       },
       t -> context.fail(t.getMessage()));
     });
   }
+
+  @Test
+  public void testRequestScopedClientUsesItsOwnToken(TestContext context) {
+    logger.info("=== Test request scoped views of a shared client ===");
+
+    Routing routing = new Routing();
+    routing.setMethod("GET");
+    routing.setPathPattern("/orders/validate");
+    routing.setProxyPath("/gobi/validate");
+    CompiledRouting compiled = CompiledRouting.compile(routing);
+
+    Async async = context.async(2);
+    client.forRequest(MOCK_TOKEN, "admin").send(compiled, "", null, null,
+      resp -> {
+        context.assertEquals(200, resp.statusCode());
+        async.countDown();
+      },
+      t -> context.fail(t.getMessage()));
+    client.forRequest("expired", "admin").send(compiled, "", null, null,
+      resp -> {
+        context.assertEquals(403, resp.statusCode());
+        async.countDown();
+      },
+      t -> context.fail(t.getMessage()));
+  }
+
+  @Test
+  public void testResponseKeyTellsModuleIdsAndTokensApart(TestContext context) {
+    MultiMap headers = HeadersMultiMap.httpHeaders()
+      .add("X-Okapi-Tenant", TENANT)
+      .add("X-Okapi-Token", MOCK_TOKEN)
+      .add(HttpHeaders.ACCEPT, APPLICATION_XML);
+    String key = AcquisitionsOkapiClient.responseKey("/orders/custom-fields", headers);
+
+    context.assertEquals(key, AcquisitionsOkapiClient.responseKey("/orders/custom-fields", headers));
+    context.assertNotEquals(key, AcquisitionsOkapiClient.responseKey("/orders/custom-fields",
+      HeadersMultiMap.httpHeaders().addAll(headers).add("X-Okapi-Module-Id", "mod-orders-storage-13.0.0")));
+    context.assertNotEquals(key, AcquisitionsOkapiClient.responseKey("/orders/custom-fields",
+      HeadersMultiMap.httpHeaders().addAll(headers).set("X-Okapi-Token", "expired")));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testViewOfSharedResponse(TestContext context) {
+    HttpResponse<Buffer> shared = mock(HttpResponse.class);
+    when(shared.statusCode()).thenReturn(200);
+    when(shared.headers()).thenReturn(MultiMap.caseInsensitiveMultiMap().add(HttpHeaders.CONTENT_TYPE, APPLICATION_XML));
+    when(shared.trailers()).thenReturn(MultiMap.caseInsensitiveMultiMap());
+    when(shared.body()).thenReturn(Buffer.buffer("<order/>"));
+    HttpResponse<Buffer> view = ResponseView.of(shared);
+
+    context.assertEquals(200, view.statusCode());
+    context.assertEquals("<order/>", view.bodyAsString());
+    context.assertFalse(shared.body() == view.body());
+    view.headers().remove(HttpHeaders.CONTENT_TYPE);
+    context.assertEquals(APPLICATION_XML, shared.headers().get(HttpHeaders.CONTENT_TYPE));
+    context.assertNull(view.getHeader(HttpHeaders.CONTENT_TYPE));
+  }
+
+  @Test
+  public void testSendStreamPostGobiOrder(TestContext context) {
+    logger.info("=== Test streaming POST of a GOBI order ===");
+
+    MultiMap headers = HeadersMultiMap.httpHeaders()
+      .add(HttpHeaders.CONTENT_LENGTH, String.valueOf(new File(ORDER_FILE).length()))
+      .add(HttpHeaders.CONTENT_TYPE, APPLICATION_XML);
+    sendStreamGobiOrder(context, headers);
+  }
+
+  @Test
+  public void testSendStreamPostGobiOrderChunked(TestContext context) {
+    logger.info("=== Test chunked streaming POST of a GOBI order ===");
+
+    MultiMap headers = HeadersMultiMap.httpHeaders()
+      .add(HttpHeaders.TRANSFER_ENCODING, "chunked")
+      .add(HttpHeaders.CONTENT_TYPE, APPLICATION_XML);
+    sendStreamGobiOrder(context, headers);
+  }
+
+  private void sendStreamGobiOrder(TestContext context, MultiMap headers) {
+    Routing routing = new Routing();
+    routing.setMethod("POST");
+    routing.setPathPattern("/orders");
+    routing.setProxyPath("/gobi/orders");
+    CompiledRouting compiled = CompiledRouting.compile(routing);
+    context.assertTrue(compiled.isStreamRequestBody());
+
+    Async async = context.async();
+    client.login("admin", "password").thenAcceptAsync(v ->
+      vertx.fileSystem().open(ORDER_FILE, new OpenOptions().setRead(true)).onComplete(context.asyncAssertSuccess(file ->
+        client.sendStream(compiled, file, HeadersMultiMap.httpHeaders(), headers,
+          resp -> {
+            context.assertEquals(201, resp.statusCode());
+            context.assertTrue(resp.bodyAsString().contains("PO-"));
+            async.complete();
+          },
+          t -> context.fail(t.getMessage())))));
+  }
 }